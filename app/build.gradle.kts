@@ -42,11 +42,11 @@ android {
 
 dependencies {
 
+    implementation(project(":doppler-core"))
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.constraintlayout)
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
-    implementation(libs.commons.math3)
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+package agalilov.doppler.app;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import uk.me.berndporr.kiss_fft.KISSFastFourierTransformer;
+import uk.me.berndporr.kiss_fft.KISSFastFourierTransformerFloat;
+import uk.me.berndporr.kiss_fft.KISSFastFourierTransformerInt16;
+
+import static org.junit.Assert.*;
+
+/**
+ * The process-wide plan cache shared by concurrent transformers, under a tight memory limit.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FftPlanCacheTest {
+    private static final int[] SIZES = {256, 512, 1000, 1024, 2048, 4096};
+
+    @After
+    public void restoreLimit() {
+        KISSFastFourierTransformer.setPlanCacheLimit(8 * 1024 * 1024);
+        KISSFastFourierTransformerFloat.setPlanCacheLimit(8 * 1024 * 1024);
+        KISSFastFourierTransformerInt16.setPlanCacheLimit(8 * 1024 * 1024);
+    }
+
+    @Test
+    public void concurrentTransformersShareEvictedPlans() throws InterruptedException {
+        KISSFastFourierTransformer.clearPlanCache();
+        // far less than the plans of all sizes, so they are evicted while other threads use them
+        final long limit = 64 * 1024;
+        KISSFastFourierTransformer.setPlanCacheLimit(limit);
+
+        final double[][] inputs = new double[SIZES.length][];
+        final double[][] expected = new double[SIZES.length][];
+        try (KISSFastFourierTransformer fft = new KISSFastFourierTransformer()) {
+            for (int s = 0; s < SIZES.length; s++) {
+                inputs[s] = new double[SIZES[s]];
+                for (int i = 0; i < SIZES[s]; i++) {
+                    inputs[s][i] = Math.sin(0.37 * i) + 0.25 * Math.cos(1.9 * i);
+                }
+                expected[s] = new double[KISSFastFourierTransformer.spectreLength(SIZES[s])];
+                fft.transformRealOptimisedForward(inputs[s], expected[s]);
+            }
+        }
+
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread(() -> {
+                try (KISSFastFourierTransformer fft = new KISSFastFourierTransformer()) {
+                    for (int iteration = 0; iteration < 300; iteration++) {
+                        final int s = (iteration + offset) % SIZES.length;
+                        final double[] out = new double[expected[s].length];
+                        fft.transformRealOptimisedForward(inputs[s], out);
+                        assertArrayEquals(expected[s], out, 0);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+        assertTrue(KISSFastFourierTransformer.getPlanCacheSize() >= 1);
+        assertTrue(KISSFastFourierTransformer.getPlanCacheSize() == 1
+                || KISSFastFourierTransformer.getPlanCacheBytes() <= limit);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closedTransformerRefusesWork() {
+        final KISSFastFourierTransformer fft = new KISSFastFourierTransformer();
+        fft.close();
+        fft.close(); // idempotent
+        fft.transformRealOptimisedForward(new double[8], new double[10]);
+    }
+
+    @Test
+    public void everyPrecisionHasItsOwnControlledCache() {
+        KISSFastFourierTransformerFloat.clearPlanCache();
+        KISSFastFourierTransformerInt16.clearPlanCache();
+        // no plan fits, only the one just used stays
+        KISSFastFourierTransformerFloat.setPlanCacheLimit(0);
+        KISSFastFourierTransformerInt16.setPlanCacheLimit(0);
+        try (KISSFastFourierTransformerFloat fft = new KISSFastFourierTransformerFloat()) {
+            for (int n : new int[]{256, 512, 1024}) {
+                fft.transformRealOptimisedForward(new float[n],
+                        new float[KISSFastFourierTransformer.spectreLength(n)]);
+            }
+        }
+        assertEquals(1, KISSFastFourierTransformerFloat.getPlanCacheSize());
+        assertTrue(KISSFastFourierTransformerFloat.getPlanCacheBytes() > 0);
+        assertEquals(0, KISSFastFourierTransformerInt16.getPlanCacheSize());
+        try (KISSFastFourierTransformerInt16 fft = new KISSFastFourierTransformerInt16()) {
+            fft.transformRealOptimisedForward(new short[256],
+                    new short[KISSFastFourierTransformer.spectreLength(256)]);
+        }
+        assertEquals(1, KISSFastFourierTransformerInt16.getPlanCacheSize());
+        KISSFastFourierTransformerFloat.clearPlanCache();
+        assertEquals(0, KISSFastFourierTransformerFloat.getPlanCacheSize());
+        assertEquals(0, KISSFastFourierTransformerFloat.getPlanCacheBytes());
+    }
+}
@@ -0,0 +1,126 @@
+package agalilov.doppler.app;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import uk.me.berndporr.kiss_fft.KISSFastFourierTransformer;
+import uk.me.berndporr.kiss_fft.KISSFastFourierTransformerFloat;
+import uk.me.berndporr.kiss_fft.KISSFastFourierTransformerInt16;
+
+import static org.junit.Assert.*;
+
+/**
+ * Accuracy against speed of the double, float and Q15 KISS builds on the device, for a window
+ * that looks like the recorded signal: a strong carrier, a weak Doppler echo and noise.
+ * The numbers are written to logcat with the {@link #TAG} tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FftPrecisionComparisonTest {
+    private static final String TAG = "FftPrecision";
+    private static final int SAMPLE_RATE = 44100;
+    private static final int N = 4096;
+    private static final int CARRIER_BIN = 1858; // about 20 kHz
+    private static final int ECHO_BIN = CARRIER_BIN + 4;
+    // the band the Doppler view shows around the carrier
+    private static final int BAND = 64;
+    private static final int ITERATIONS = 500;
+
+    @Test
+    public void compare() {
+        final short[] pcm = new short[N];
+        final Random random = new Random(1);
+        for (int i = 0; i < N; i++) {
+            final double t = 2 * Math.PI * i / N;
+            pcm[i] = (short) Math.round(12000 * Math.cos(CARRIER_BIN * t)
+                    + 600 * Math.cos(ECHO_BIN * t + 0.3)
+                    + 30 * random.nextGaussian());
+        }
+        final int length = KISSFastFourierTransformer.spectreLength(N);
+        final double[] reference = new double[length];
+        final double[] widened = new double[length];
+
+        try (KISSFastFourierTransformer fft = new KISSFastFourierTransformer()) {
+            final double[] in = new double[N];
+            for (int i = 0; i < N; i++) {
+                in[i] = pcm[i];
+            }
+            final long ns = time(() -> fft.transformRealOptimisedForward(in, reference));
+            report("double", reference, reference, ns);
+        }
+
+        try (KISSFastFourierTransformerFloat fft = new KISSFastFourierTransformerFloat()) {
+            final float[] in = new float[N];
+            final float[] out = new float[length];
+            for (int i = 0; i < N; i++) {
+                in[i] = pcm[i];
+            }
+            final long ns = time(() -> fft.transformRealOptimisedForward(in, out));
+            for (int i = 0; i < length; i++) {
+                widened[i] = out[i];
+            }
+            assertTrue(report("float", reference, widened, ns) < 1e-5);
+            assertEquals(ECHO_BIN, echoBin(widened));
+        }
+
+        try (KISSFastFourierTransformerInt16 fft = new KISSFastFourierTransformerInt16()) {
+            final short[] out = new short[length];
+            final long ns = time(() -> fft.transformRealOptimisedForward(pcm, out));
+            for (int i = 0; i < length; i++) {
+                widened[i] = (double) out[i] * N;
+            }
+            assertTrue(report("int16", reference, widened, ns) < 1e-2);
+            assertEquals(ECHO_BIN, echoBin(widened));
+        }
+    }
+
+    private static long time(Runnable transform) {
+        for (int i = 0; i < ITERATIONS / 10; i++) {
+            transform.run(); // warm up
+        }
+        final long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            transform.run();
+        }
+        return (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS;
+    }
+
+    /**
+     * @return the largest magnitude error inside the band relative to the carrier peak
+     */
+    private static double report(String name, double[] reference, double[] spectre, long ns) {
+        final double peak = Math.hypot(reference[2 * CARRIER_BIN], reference[2 * CARRIER_BIN + 1]);
+        double maxError = 0;
+        for (int k = CARRIER_BIN - BAND; k <= CARRIER_BIN + BAND; k++) {
+            final double error = Math.hypot(spectre[2 * k] - reference[2 * k],
+                    spectre[2 * k + 1] - reference[2 * k + 1]);
+            maxError = Math.max(maxError, error);
+        }
+        final double relative = maxError / peak;
+        Log.i(TAG, String.format("%s: %d us per %d-point frame at %d Hz, band error %.2e of the peak",
+                name, ns / 1000, N, SAMPLE_RATE, relative));
+        return relative;
+    }
+
+    /**
+     * @return the strongest bin above the carrier, i.e. the echo
+     */
+    private static int echoBin(double[] spectre) {
+        int best = CARRIER_BIN + 1;
+        double bestMagnitude = 0;
+        for (int k = CARRIER_BIN + 1; k <= CARRIER_BIN + BAND; k++) {
+            final double magnitude = Math.hypot(spectre[2 * k], spectre[2 * k + 1]);
+            if (magnitude > bestMagnitude) {
+                bestMagnitude = magnitude;
+                best = k;
+            }
+        }
+        return best;
+    }
+}
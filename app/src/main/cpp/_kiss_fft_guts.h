@@ -40,16 +40,54 @@ struct kiss_fft_state{
  * */
 
 
+#ifdef FIXED_POINT
+#if (FIXED_POINT == 32)
+# define FRACBITS 31
+# define SAMPPROD int64_t
+# define SAMP_MAX 2147483647
+#else
+# define FRACBITS 15
+# define SAMPPROD int32_t
+# define SAMP_MAX 32767
+#endif
+
+#define smul(a,b) ( (SAMPPROD)(a)*(b) )
+#define sround( x )  (kiss_fft_scalar)( ( (x) + (1<<(FRACBITS-1)) ) >> FRACBITS )
+
+#define S_MUL(a,b) sround( smul(a,b) )
+
+#define C_MUL(m,a,b) \
+    { (m).r = sround( smul((a).r,(b).r) - smul((a).i,(b).i) ); \
+      (m).i = sround( smul((a).r,(b).i) + smul((a).i,(b).r) ); }
+
+#define DIVSCALAR(x,k) \
+    (x) = sround( smul( x, SAMP_MAX/k ) )
+
+/* fixed point keeps every stage in range by dividing by its radix */
+#define C_FIXDIV(c,div) \
+    { DIVSCALAR( (c).r , div); \
+      DIVSCALAR( (c).i , div); }
+
+#define C_MULBYSCALAR( c, s ) \
+    { (c).r = sround( smul( (c).r , s ) ) ;\
+      (c).i = sround( smul( (c).i , s ) ) ; }
+
+#else /* not FIXED_POINT */
+
 #define S_MUL(a,b) ( (a)*(b) )
 
 #define C_MUL(m,a,b) \
     { (m).r = (a).r*(b).r - (a).i*(b).i;\
       (m).i = (a).r*(b).i + (a).i*(b).r; }
 
+#define C_FIXDIV(c,div) /* NOOP */
+
 #define C_MULBYSCALAR( c, s )		\
     { (c).r *= (s);\
       (c).i *= (s); }
 
+#endif
+
 #define C_ADD( res, a,b)\
     { \
 	    (res).r=(a).r+(b).r;  (res).i=(a).i+(b).i; \
@@ -71,13 +109,20 @@ struct kiss_fft_state{
     }
 
 
-#define HALF_OF(x) ((x)*.5)
-
+#ifdef FIXED_POINT
+#  define KISS_FFT_COS(phase)  floor(.5+SAMP_MAX * cos (phase))
+#  define KISS_FFT_SIN(phase)  floor(.5+SAMP_MAX * sin (phase))
+#  define HALF_OF(x) ((x)>>1)
+#else
+#  define KISS_FFT_COS(phase) (kiss_fft_scalar) cos(phase)
+#  define KISS_FFT_SIN(phase) (kiss_fft_scalar) sin(phase)
+#  define HALF_OF(x) ((x)*.5)
+#endif
 
 #define  kf_cexp(x,phase) \
 	{ \
-		(x)->r = cos(phase);\
-		(x)->i = sin(phase);\
+		(x)->r = KISS_FFT_COS(phase);\
+		(x)->i = KISS_FFT_SIN(phase);\
 	}
 
 
@@ -98,6 +143,9 @@ static void kf_bfly2(
     kiss_fft_cpx t;
     Fout2 = Fout + m;
     do {
+        C_FIXDIV(*Fout, 2);
+        C_FIXDIV(*Fout2, 2);
+
         C_MUL (t, *Fout2, *tw1);
         tw1 += fstride;
         C_SUB(*Fout2, *Fout, t);
@@ -123,6 +171,11 @@ static void kf_bfly4(
     tw3 = tw2 = tw1 = st->twiddles;
 
     do {
+        C_FIXDIV(*Fout, 4);
+        C_FIXDIV(Fout[m], 4);
+        C_FIXDIV(Fout[m2], 4);
+        C_FIXDIV(Fout[m3], 4);
+
         C_MUL(scratch[0], Fout[m], *tw1);
         C_MUL(scratch[1], Fout[m2], *tw2);
         C_MUL(scratch[2], Fout[m3], *tw3);
@@ -168,6 +221,10 @@ static void kf_bfly3(
     tw1 = tw2 = st->twiddles;
 
     do {
+        C_FIXDIV(*Fout, 3);
+        C_FIXDIV(Fout[m], 3);
+        C_FIXDIV(Fout[m2], 3);
+
         C_MUL(scratch[1], Fout[m], *tw1);
         C_MUL(scratch[2], Fout[m2], *tw2);
 
@@ -216,6 +273,11 @@ static void kf_bfly5(
 
     tw = st->twiddles;
     for (u = 0; u < m; ++u) {
+        C_FIXDIV(*Fout0, 5);
+        C_FIXDIV(*Fout1, 5);
+        C_FIXDIV(*Fout2, 5);
+        C_FIXDIV(*Fout3, 5);
+        C_FIXDIV(*Fout4, 5);
         scratch[0] = *Fout0;
 
         C_MUL(scratch[1], *Fout1, tw[u * fstride]);
@@ -275,6 +337,7 @@ static void kf_bfly_generic(
         k = u;
         for (q1 = 0; q1 < p; ++q1) {
             scratch[q1] = Fout[k];
+            C_FIXDIV(scratch[q1], p);
             k += m;
         }
 
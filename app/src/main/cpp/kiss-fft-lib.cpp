@@ -2,57 +2,67 @@
 #include <android/log.h>
 #include "kiss_fft.h"
 #include "kiss_fftr.h"
-#include <unordered_map>
-#include <array>
-#include <string_view>
-
-template<typename T>
-struct FftCfgs {
-    T m_inverse_cfg, m_direct_cfg;
+#include "kiss_fft_plan_cache.h"
+#include <map>
+#include <tuple>
+#include <vector>
+
+// agalilov: same order as KISSFastFourierTransformer.Window
+enum WindowType {
+    WINDOW_RECTANGULAR = 0,
+    WINDOW_HANN,
+    WINDOW_BLACKMAN_HARRIS,
+    WINDOW_KAISER,
+    WINDOW_COUNT
+};
 
-    FftCfgs()
-    {
-        m_inverse_cfg = nullptr;
-        m_direct_cfg = nullptr;
-    }
+// (size, window type, Kaiser beta)
+using WindowKey = std::tuple<int, int, double>;
 
-    FftCfgs(FftCfgs &&other)
-    {
-        m_inverse_cfg = other.m_inverse_cfg;
-        other.m_inverse_cfg = nullptr;
-        m_direct_cfg = other.m_direct_cfg;
-        other.m_direct_cfg = nullptr;
-    }
+// agalilov: per-object working memory. The FFT plans live in the shared FftPlanCache, an object
+// is used by one thread at a time, different objects may run concurrently.
+struct State {
+    std::map<WindowKey, std::vector<double>> m_windows;
+    std::vector<double> m_scratch; // windowed samples handed to kiss_fftr
+    std::vector<kiss_fft_cpx> m_tmpbuf; // kiss_fftr work buffer, the shared plans have none
+};
 
-    T get(int is_inverse)
-    {
-        return is_inverse ? m_inverse_cfg : m_direct_cfg;
+// modified Bessel function of the first kind, order 0, by its power series
+static double bessel_i0(double x) {
+    double sum = 1, term = 1;
+    const double q = x * x / 4;
+    for (int k = 1; k < 200 && term > sum * 1e-17; k++) {
+        term *= q / ((double) k * k);
+        sum += term;
     }
+    return sum;
+}
 
-    void set(int is_inverse, T fft_cfg) {
-        if (is_inverse) {
-            m_inverse_cfg = fft_cfg;
-        } else {
-            m_direct_cfg = fft_cfg;
+// periodic (DFT-even) windows, the usual choice for spectral analysis
+static void fill_window(std::vector<double> &w, int n, int type, double beta) {
+    w.resize(n);
+    const double step = 2.0 * M_PI / n;
+    const double i0_beta = bessel_i0(beta);
+    for (int i = 0; i < n; i++) {
+        switch (type) {
+            case WINDOW_HANN:
+                w[i] = 0.5 - 0.5 * cos(step * i);
+                break;
+            case WINDOW_BLACKMAN_HARRIS:
+                w[i] = 0.35875 - 0.48829 * cos(step * i) + 0.14128 * cos(2 * step * i)
+                       - 0.01168 * cos(3 * step * i);
+                break;
+            case WINDOW_KAISER: {
+                const double r = 2.0 * i / n - 1;
+                w[i] = bessel_i0(beta * sqrt(1 - r * r)) / i0_beta;
+                break;
+            }
+            default:
+                w[i] = 1;
+                break;
         }
     }
-
-    ~FftCfgs() {
-        if (m_inverse_cfg)
-            free(m_inverse_cfg);
-        else if (m_direct_cfg)
-            free(m_direct_cfg);
-    }
-};
-
-// agalilov: added FFT_CFG and related code to avoid the recon of FFT coefficients
-template<typename T>
-using FFT_CFG = std::unordered_map<int, FftCfgs<T>>;
-
-struct State {
-    FFT_CFG<kiss_fft_cfg> m_kiss_fft_cfgs;
-    FFT_CFG<kiss_fftr_cfg> m_kiss_fftr_cfgs;
-};
+}
 
 extern "C" {
 
@@ -60,32 +70,90 @@ extern "C" {
 
 const char *STATE_FLD_NAME = "m_state";
 
-static void
-update_state_field(JNIEnv *env, jobject thisObj, const State *pState) {
-    // Get a reference to this object's class
-    jclass thisClass = env->GetObjectClass(thisObj);
-    // Get the Field ID of the instance variables STATE_FLD_NAME
-    jfieldID fidNumber = env->GetFieldID(thisClass, STATE_FLD_NAME, "J");
-    if (nullptr == fidNumber) {
-        __android_log_write(ANDROID_LOG_ERROR, TAG, "update_state_field: field not found");
-        return;
+// agalilov: resolved once in JNI_OnLoad instead of on every call
+static jfieldID g_state_fid = nullptr;
+static jclass g_complex_class = nullptr; // global reference
+static jmethodID g_complex_init = nullptr;
+static jmethodID g_complex_get_real = nullptr;
+static jmethodID g_complex_get_imaginary = nullptr;
+
+JNIEXPORT jint JNI_OnLoad(JavaVM *vm, void *) {
+    JNIEnv *env = nullptr;
+    if (vm->GetEnv((void **) &env, JNI_VERSION_1_6) != JNI_OK) {
+        return JNI_ERR;
+    }
+    jclass fftClass = env->FindClass("uk/me/berndporr/kiss_fft/KISSFastFourierTransformer");
+    if (fftClass == nullptr) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "JNI_OnLoad: KISSFastFourierTransformer not found");
+        return JNI_ERR;
+    }
+    g_state_fid = env->GetFieldID(fftClass, STATE_FLD_NAME, "J");
+    env->DeleteLocalRef(fftClass);
+    if (g_state_fid == nullptr) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "JNI_OnLoad: state field not found");
+        return JNI_ERR;
+    }
+
+    jclass complex = env->FindClass("org/apache/commons/math3/complex/Complex");
+    if (complex == nullptr) {
+        // only the Complex[] methods need it, the array based ones keep working
+        env->ExceptionClear();
+        __android_log_write(ANDROID_LOG_WARN, TAG, "JNI_OnLoad: Complex not found");
+    } else {
+        g_complex_class = (jclass) env->NewGlobalRef(complex);
+        env->DeleteLocalRef(complex);
+        g_complex_init = env->GetMethodID(g_complex_class, "<init>", "(DD)V");
+        g_complex_get_real = env->GetMethodID(g_complex_class, "getReal", "()D");
+        g_complex_get_imaginary = env->GetMethodID(g_complex_class, "getImaginary", "()D");
+    }
+    return JNI_VERSION_1_6;
+}
+
+JNIEXPORT void JNI_OnUnload(JavaVM *vm, void *) {
+    JNIEnv *env = nullptr;
+    if (vm->GetEnv((void **) &env, JNI_VERSION_1_6) == JNI_OK && g_complex_class != nullptr) {
+        env->DeleteGlobalRef(g_complex_class);
+        g_complex_class = nullptr;
+    }
+}
+
+static bool
+check_complex(void) {
+    if (g_complex_class == nullptr || g_complex_init == nullptr ||
+        g_complex_get_real == nullptr || g_complex_get_imaginary == nullptr) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "Complex class is not available.");
+        return false;
     }
-    // Change the variable
-    env->SetLongField(thisObj, fidNumber, (jlong) pState);
+    return true;
 }
 
 static State *
 get_state_field(JNIEnv *env, jobject thisObj) {
-    // Get a reference to this object's class
-    jclass thisClass = env->GetObjectClass(thisObj);
-    // Get the Field ID of the instance variables fldName
-    jfieldID fidNumber = env->GetFieldID(thisClass, STATE_FLD_NAME, "J");
-    if (nullptr == fidNumber) {
-        __android_log_write(ANDROID_LOG_ERROR, TAG, "get_state_field: field not found");
-        return nullptr;
+    return (State *) env->GetLongField(thisObj, g_state_fid);
+}
+
+static State *
+require_state(JNIEnv *env, jobject self) {
+    auto pState = get_state_field(env, self);
+    if (pState == nullptr) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "Transformer is closed.");
     }
-    // Get the int given the Field ID
-    return (State *) env->GetLongField(thisObj, fidNumber);
+    return pState;
+}
+
+static FftPlanPtr
+get_plan(int n, int is_inverse, bool real) {
+    auto plan = FftPlanCache::instance().get(n, is_inverse != 0, real);
+    if (plan == nullptr) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "FFT plan allocation failed.");
+    }
+    return plan;
+}
+
+static kiss_fft_cpx *
+real_tmpbuf(State *pState, int n) {
+    pState->m_tmpbuf.resize(n / 2);
+    return pState->m_tmpbuf.data();
 }
 
 JNIEXPORT jdoubleArray
@@ -105,21 +173,9 @@ Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_dofft(JNIEnv *env, job
         return NULL;
     }
     if (is_inverse != 0) is_inverse = 1;
-    kiss_fft_cfg cfg = nullptr;
-    auto pState = get_state_field(env, self);
-    if (pState == nullptr) {
-        pState = new State;
-        update_state_field(env, self, pState);
-    }
-
-    auto it = pState->m_kiss_fft_cfgs.find(n);
-    if (it != pState->m_kiss_fft_cfgs.end()) {
-        cfg = it->second.get(is_inverse);
-    }
-
-    if (cfg == nullptr) {
-        cfg = kiss_fft_alloc(n, is_inverse);
-        pState->m_kiss_fft_cfgs[n].set(is_inverse, cfg);
+    FftPlanPtr plan = get_plan(n, is_inverse, false);
+    if (plan == nullptr) {
+        return NULL;
     }
 
     double *inValues = env->GetDoubleArrayElements(inArray, 0);
@@ -127,7 +183,7 @@ Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_dofft(JNIEnv *env, job
     jdoubleArray outArray = env->NewDoubleArray(n * 2);
     double *outValues = env->GetDoubleArrayElements(outArray, 0);
 
-    kiss_fft(cfg, (kiss_fft_cpx *) inValues, (kiss_fft_cpx *) outValues);
+    kiss_fft(plan->cfg(), (kiss_fft_cpx *) inValues, (kiss_fft_cpx *) outValues);
 
     env->ReleaseDoubleArrayElements(outArray, outValues, 0);
     env->ReleaseDoubleArrayElements(inArray, inValues, 0);
@@ -141,7 +197,9 @@ Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_dofftdouble(JNIEnv *en
                                                                       jdoubleArray data,
                                                                       jint is_inverse) {
 
-    jclass complex = env->FindClass("org/apache/commons/math3/complex/Complex");
+    if (!check_complex()) {
+        return NULL;
+    }
 
     if (data == NULL) {
         __android_log_write(ANDROID_LOG_ERROR, TAG, "data has nullptr.");
@@ -155,20 +213,9 @@ Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_dofftdouble(JNIEnv *en
         return NULL;
     }
     if (is_inverse != 0) is_inverse = 1;
-    kiss_fft_cfg cfg = nullptr;
-    auto pState = get_state_field(env, self);
-    if (pState == nullptr) {
-        pState = new State;
-        update_state_field(env, self, pState);
-    }
-    auto it = pState->m_kiss_fft_cfgs.find(n);
-    if (it != pState->m_kiss_fft_cfgs.end()) {
-        cfg = it->second.get(is_inverse);
-    }
-
-    if (cfg == nullptr) {
-        cfg = kiss_fft_alloc(n, is_inverse);
-        pState->m_kiss_fft_cfgs[n].set(is_inverse, cfg);
+    FftPlanPtr plan = get_plan(n, is_inverse, false);
+    if (plan == nullptr) {
+        return NULL;
     }
     kiss_fft_cpx *inArray = new kiss_fft_cpx[n];
     kiss_fft_cpx *outArray = new kiss_fft_cpx[n];
@@ -182,15 +229,14 @@ Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_dofftdouble(JNIEnv *en
 
     env->ReleaseDoubleArrayElements(data, values, 0);
 
-    kiss_fft(cfg, inArray, outArray);
+    kiss_fft(plan->cfg(), inArray, outArray);
 
-    jobjectArray ret = (jobjectArray) env->NewObjectArray(n, complex, NULL);
-    jmethodID complexDoubleInit = env->GetMethodID(complex, "<init>", "(DD)V");
+    jobjectArray ret = (jobjectArray) env->NewObjectArray(n, g_complex_class, NULL);
 
     for (int j = 0; j < n; j++) {
         double re = outArray[j].r;
         double im = outArray[j].i;
-        jobject cObj = env->NewObject(complex, complexDoubleInit, re, im);
+        jobject cObj = env->NewObject(g_complex_class, g_complex_init, re, im);
         env->SetObjectArrayElement(ret, j, cObj);
         env->DeleteLocalRef(cObj);
     }
@@ -206,7 +252,9 @@ JNIEXPORT jobjectArray
 Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_dofftr(JNIEnv *env, jobject self,
                                                                  jdoubleArray data) {
 
-    jclass complex = env->FindClass("org/apache/commons/math3/complex/Complex");
+    if (!check_complex()) {
+        return NULL;
+    }
 
     if (data == NULL) {
         __android_log_write(ANDROID_LOG_ERROR, TAG, "data has nullptr.");
@@ -221,39 +269,28 @@ Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_dofftr(JNIEnv *env, jo
     }
 
     const int is_inverse = 0;
-    kiss_fftr_cfg cfg = nullptr;
-    auto pState = get_state_field(env, self);
-    if (pState == nullptr) {
-        pState = new State;
-        update_state_field(env, self, pState);
-    }
-
-    auto it = pState->m_kiss_fftr_cfgs.find(n);
-    if (it != pState->m_kiss_fftr_cfgs.end()) {
-        cfg = it->second.get(is_inverse);
-    }
-    if (cfg == nullptr) {
-        cfg = kiss_fftr_alloc(n, is_inverse);
-        pState->m_kiss_fftr_cfgs[n].set(is_inverse, cfg);
+    auto pState = require_state(env, self);
+    FftPlanPtr plan = get_plan(n, is_inverse, true);
+    if (pState == nullptr || plan == nullptr) {
+        return NULL;
     }
 
     kiss_fft_cpx *outArray = new kiss_fft_cpx[n];
 
     double *values = env->GetDoubleArrayElements(data, 0);
 
-    kiss_fftr(cfg, values, outArray);
+    kiss_fftr_scratch(plan->real_cfg(), values, outArray, real_tmpbuf(pState, n));
 
     env->ReleaseDoubleArrayElements(data, values, 0);
 
     int complex_data_points = n / 2 + 1;
 
-    jobjectArray ret = (jobjectArray) env->NewObjectArray(complex_data_points, complex, NULL);
-    jmethodID complexDoubleInit = env->GetMethodID(complex, "<init>", "(DD)V");
+    jobjectArray ret = (jobjectArray) env->NewObjectArray(complex_data_points, g_complex_class, NULL);
 
     for (int j = 0; j < complex_data_points; j++) {
         double re = outArray[j].r;
         double im = outArray[j].i;
-        jobject cObj = env->NewObject(complex, complexDoubleInit, re, im);
+        jobject cObj = env->NewObject(g_complex_class, g_complex_init, re, im);
         env->SetObjectArrayElement(ret, j, cObj);
         env->DeleteLocalRef(cObj);
     }
@@ -263,13 +300,431 @@ Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_dofftr(JNIEnv *env, jo
     return ret;
 }
 
+// agalilov: complex FFT of interleaved re/im data into the caller's array, nothing is allocated.
+// data and out must be different arrays, an in-place kiss_fft() would malloc a temporary buffer.
+JNIEXPORT jboolean
+Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_dofftinto(JNIEnv *env, jobject self,
+                                                                    jdoubleArray data,
+                                                                    jdoubleArray out,
+                                                                    jint is_inverse) {
+    if (data == NULL || out == NULL) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "data or out has nullptr.");
+        return JNI_FALSE;
+    }
+
+    int n = env->GetArrayLength(data) / 2;
+
+    if (n < 1) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "FFT array length < 1!");
+        return JNI_FALSE;
+    }
+    if (env->GetArrayLength(out) < 2 * n) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "Output array is too short!");
+        return JNI_FALSE;
+    }
+    if (is_inverse != 0) is_inverse = 1;
+
+    FftPlanPtr plan = get_plan(n, is_inverse, false);
+    if (plan == nullptr) {
+        return JNI_FALSE;
+    }
+
+    auto *inValues = (kiss_fft_cpx *) env->GetPrimitiveArrayCritical(data, nullptr);
+    auto *outValues = (kiss_fft_cpx *) env->GetPrimitiveArrayCritical(out, nullptr);
+
+    kiss_fft(plan->cfg(), inValues, outValues);
+
+    env->ReleasePrimitiveArrayCritical(out, outValues, 0);
+    env->ReleasePrimitiveArrayCritical(data, inValues, JNI_ABORT);
+
+    return JNI_TRUE;
+}
+
+// agalilov: writes the n/2+1 complex points straight into the caller's interleaved re/im array,
+// no Java objects and no temporary buffers are created.
+JNIEXPORT jboolean
+Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_dofftrinto(JNIEnv *env, jobject self,
+                                                                     jdoubleArray data,
+                                                                     jdoubleArray out) {
+    if (data == NULL || out == NULL) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "data or out has nullptr.");
+        return JNI_FALSE;
+    }
+
+    int n = env->GetArrayLength(data);
+
+    if (n < 2 || (n & 1) != 0) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "Real FFT array length must be even and > 0!");
+        return JNI_FALSE;
+    }
+    if (env->GetArrayLength(out) < 2 * (n / 2 + 1)) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "Output array is too short!");
+        return JNI_FALSE;
+    }
+
+    auto pState = require_state(env, self);
+    FftPlanPtr plan = get_plan(n, 0, true);
+    if (pState == nullptr || plan == nullptr) {
+        return JNI_FALSE;
+    }
+    kiss_fft_cpx *tmpbuf = real_tmpbuf(pState, n);
+
+    // kiss_fftr_scratch() makes no JNI calls, so the critical section is safe and avoids array copies
+    auto *values = (double *) env->GetPrimitiveArrayCritical(data, nullptr);
+    auto *outValues = (kiss_fft_cpx *) env->GetPrimitiveArrayCritical(out, nullptr);
+
+    kiss_fftr_scratch(plan->real_cfg(), values, outValues, tmpbuf);
+
+    env->ReleasePrimitiveArrayCritical(out, outValues, 0);
+    env->ReleasePrimitiveArrayCritical(data, values, JNI_ABORT);
+
+    return JNI_TRUE;
+}
+
+// agalilov: inverse of dofftrinto, the n/2+1 interleaved points of data give the n real samples
+// of out (scaled by 1/n like the complex inverse), without Complex objects or allocations.
+JNIEXPORT jboolean
+Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_dofftriinto(JNIEnv *env, jobject self,
+                                                                      jdoubleArray data,
+                                                                      jdoubleArray out) {
+    if (data == NULL || out == NULL) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "data or out has nullptr.");
+        return JNI_FALSE;
+    }
+
+    int n = env->GetArrayLength(out);
+
+    if (n < 2 || (n & 1) != 0) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "Real FFT array length must be even and > 0!");
+        return JNI_FALSE;
+    }
+    if (env->GetArrayLength(data) < 2 * (n / 2 + 1)) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "Input array is too short!");
+        return JNI_FALSE;
+    }
+
+    auto pState = require_state(env, self);
+    FftPlanPtr plan = get_plan(n, 1, true);
+    if (pState == nullptr || plan == nullptr) {
+        return JNI_FALSE;
+    }
+    kiss_fft_cpx *tmpbuf = real_tmpbuf(pState, n);
+
+    // kiss_fftri_scratch() makes no JNI calls either
+    auto *values = (kiss_fft_cpx *) env->GetPrimitiveArrayCritical(data, nullptr);
+    auto *outValues = (double *) env->GetPrimitiveArrayCritical(out, nullptr);
+
+    kiss_fftri_scratch(plan->real_cfg(), values, outValues, tmpbuf);
+
+    env->ReleasePrimitiveArrayCritical(out, outValues, 0);
+    env->ReleasePrimitiveArrayCritical(data, values, JNI_ABORT);
+
+    return JNI_TRUE;
+}
+
+JNIEXPORT jboolean
+Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_dofftrdirect(JNIEnv *env, jobject self,
+                                                                       jobject data,
+                                                                       jobject out,
+                                                                       jint n) {
+    if (data == NULL || out == NULL) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "data or out has nullptr.");
+        return JNI_FALSE;
+    }
+
+    if (n < 2 || (n & 1) != 0) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "Real FFT array length must be even and > 0!");
+        return JNI_FALSE;
+    }
+
+    auto *values = (double *) env->GetDirectBufferAddress(data);
+    auto *outValues = (kiss_fft_cpx *) env->GetDirectBufferAddress(out);
+    if (values == nullptr || outValues == nullptr) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "Buffers must be direct.");
+        return JNI_FALSE;
+    }
+    if (env->GetDirectBufferCapacity(data) < (jlong) (n * sizeof(double)) ||
+        env->GetDirectBufferCapacity(out) < (jlong) ((n / 2 + 1) * sizeof(kiss_fft_cpx))) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "Direct buffer is too small!");
+        return JNI_FALSE;
+    }
+
+    auto pState = require_state(env, self);
+    FftPlanPtr plan = get_plan(n, 0, true);
+    if (pState == nullptr || plan == nullptr) {
+        return JNI_FALSE;
+    }
+    kiss_fft_cpx *tmpbuf = real_tmpbuf(pState, n);
+
+    kiss_fftr_scratch(plan->real_cfg(), values, outValues, tmpbuf);
+
+    return JNI_TRUE;
+}
+
+// the table is computed on first use and kept in the State next to the FFT configs
+static const std::vector<double> &
+get_window(State *pState, int n, int type, double beta) {
+    if (type != WINDOW_KAISER) beta = 0;
+    auto &w = pState->m_windows[WindowKey(n, type, beta)];
+    if ((int) w.size() != n) {
+        fill_window(w, n, type, beta);
+    }
+    return w;
+}
+
+// circular history samples[start..n-1], samples[0..start-1] times the window into dst
+static void
+unroll_windowed(const jshort *samples, int n, int start, const double *w, double *dst) {
+    int j = 0;
+    for (int i = start; i < n; i++, j++) {
+        dst[j] = samples[i] * w[j];
+    }
+    for (int i = 0; i < start; i++, j++) {
+        dst[j] = samples[i] * w[j];
+    }
+}
+
+static bool
+check_pcm_args(JNIEnv *env, jshortArray pcm, jint start, jint window, jdoubleArray out, int min_out) {
+    if (pcm == NULL || out == NULL) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "pcm or out has nullptr.");
+        return false;
+    }
+    int n = env->GetArrayLength(pcm);
+    if (start < 0 || start >= n) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "start is out of the pcm array!");
+        return false;
+    }
+    if (window < 0 || window >= WINDOW_COUNT) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "Unknown window!");
+        return false;
+    }
+    if (env->GetArrayLength(out) < min_out) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "Output array is too short!");
+        return false;
+    }
+    return true;
+}
+
+// agalilov: 16-bit PCM in, spectrum out: unrolls the circular history starting at `start`,
+// converts and windows it into a native scratch buffer and runs the real FFT, all in one call.
+JNIEXPORT jboolean
+Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_dofftrpcm(JNIEnv *env, jobject self,
+                                                                    jshortArray pcm,
+                                                                    jint start,
+                                                                    jint window,
+                                                                    jdouble beta,
+                                                                    jdoubleArray out) {
+    if (pcm == NULL) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "pcm has nullptr.");
+        return JNI_FALSE;
+    }
+    int n = env->GetArrayLength(pcm);
+    if (n < 2 || (n & 1) != 0) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "Real FFT array length must be even and > 0!");
+        return JNI_FALSE;
+    }
+    if (!check_pcm_args(env, pcm, start, window, out, 2 * (n / 2 + 1))) {
+        return JNI_FALSE;
+    }
+
+    auto pState = require_state(env, self);
+    FftPlanPtr plan = get_plan(n, 0, true);
+    if (pState == nullptr || plan == nullptr) {
+        return JNI_FALSE;
+    }
+    kiss_fft_cpx *tmpbuf = real_tmpbuf(pState, n);
+    const std::vector<double> &w = get_window(pState, n, window, beta);
+    pState->m_scratch.resize(n);
+
+    auto *samples = (jshort *) env->GetPrimitiveArrayCritical(pcm, nullptr);
+    auto *outValues = (kiss_fft_cpx *) env->GetPrimitiveArrayCritical(out, nullptr);
+
+    unroll_windowed(samples, n, start, w.data(), pState->m_scratch.data());
+    kiss_fftr_scratch(plan->real_cfg(), pState->m_scratch.data(), outValues, tmpbuf);
+
+    env->ReleasePrimitiveArrayCritical(out, outValues, 0);
+    env->ReleasePrimitiveArrayCritical(pcm, samples, JNI_ABORT);
+
+    return JNI_TRUE;
+}
+
+// agalilov: the windowing half of dofftrpcm, for the analyses that do not use kiss_fftr
+JNIEXPORT jboolean
+Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_dowindowpcm(JNIEnv *env, jobject self,
+                                                                      jshortArray pcm,
+                                                                      jint start,
+                                                                      jint window,
+                                                                      jdouble beta,
+                                                                      jdoubleArray out) {
+    if (pcm == NULL) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "pcm has nullptr.");
+        return JNI_FALSE;
+    }
+    int n = env->GetArrayLength(pcm);
+    if (!check_pcm_args(env, pcm, start, window, out, n)) {
+        return JNI_FALSE;
+    }
+    auto pState = require_state(env, self);
+    if (pState == nullptr) {
+        return JNI_FALSE;
+    }
+    const std::vector<double> &w = get_window(pState, n, window, beta);
+
+    auto *samples = (jshort *) env->GetPrimitiveArrayCritical(pcm, nullptr);
+    auto *outValues = (double *) env->GetPrimitiveArrayCritical(out, nullptr);
+
+    unroll_windowed(samples, n, start, w.data(), outValues);
+
+    env->ReleasePrimitiveArrayCritical(out, outValues, 0);
+    env->ReleasePrimitiveArrayCritical(pcm, samples, JNI_ABORT);
+
+    return JNI_TRUE;
+}
+
+// frames k = 0..frames-1 start at offset + k * hop and are n samples long
+static bool
+check_batch_args(JNIEnv *env, jarray data, jint offset, jint n, jint hop, jint frames,
+                 jdoubleArray out) {
+    if (data == NULL || out == NULL) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "data or out has nullptr.");
+        return false;
+    }
+    if (n < 2 || (n & 1) != 0) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "Real FFT length must be even and > 0!");
+        return false;
+    }
+    if (offset < 0 || hop < 1 || frames < 1) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "Bad batch offset, hop or frame count!");
+        return false;
+    }
+    if ((jlong) offset + (jlong) (frames - 1) * hop + n > env->GetArrayLength(data)) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "Batch runs past the end of the input!");
+        return false;
+    }
+    if ((jlong) frames * 2 * (n / 2 + 1) > env->GetArrayLength(out)) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "Output array is too short!");
+        return false;
+    }
+    return true;
+}
+
+// agalilov: K real forward transforms in one call, frame k's n/2+1 complex points go to
+// out[k * (n + 2)]. The config is looked up once and the arrays are pinned once for the batch.
+JNIEXPORT jboolean
+Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_dofftrbatch(JNIEnv *env, jobject self,
+                                                                      jdoubleArray data,
+                                                                      jint offset,
+                                                                      jint n,
+                                                                      jint hop,
+                                                                      jint frames,
+                                                                      jdoubleArray out) {
+    if (!check_batch_args(env, data, offset, n, hop, frames, out)) {
+        return JNI_FALSE;
+    }
+    auto pState = require_state(env, self);
+    FftPlanPtr plan = get_plan(n, 0, true);
+    if (pState == nullptr || plan == nullptr) {
+        return JNI_FALSE;
+    }
+    kiss_fft_cpx *tmpbuf = real_tmpbuf(pState, n);
+    const int points = n / 2 + 1;
+
+    auto *values = (double *) env->GetPrimitiveArrayCritical(data, nullptr);
+    auto *outValues = (kiss_fft_cpx *) env->GetPrimitiveArrayCritical(out, nullptr);
+
+    for (int k = 0; k < frames; k++) {
+        kiss_fftr_scratch(plan->real_cfg(), values + offset + (size_t) k * hop,
+                          outValues + (size_t) k * points, tmpbuf);
+    }
+
+    env->ReleasePrimitiveArrayCritical(out, outValues, 0);
+    env->ReleasePrimitiveArrayCritical(data, values, JNI_ABORT);
+
+    return JNI_TRUE;
+}
+
+// agalilov: dofftrbatch for 16-bit PCM, every frame is windowed on the way like in dofftrpcm
+JNIEXPORT jboolean
+Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_dofftrpcmbatch(JNIEnv *env, jobject self,
+                                                                         jshortArray pcm,
+                                                                         jint offset,
+                                                                         jint n,
+                                                                         jint hop,
+                                                                         jint frames,
+                                                                         jint window,
+                                                                         jdouble beta,
+                                                                         jdoubleArray out) {
+    if (!check_batch_args(env, pcm, offset, n, hop, frames, out)) {
+        return JNI_FALSE;
+    }
+    if (window < 0 || window >= WINDOW_COUNT) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "Unknown window!");
+        return JNI_FALSE;
+    }
+    auto pState = require_state(env, self);
+    FftPlanPtr plan = get_plan(n, 0, true);
+    if (pState == nullptr || plan == nullptr) {
+        return JNI_FALSE;
+    }
+    kiss_fft_cpx *tmpbuf = real_tmpbuf(pState, n);
+    const std::vector<double> &w = get_window(pState, n, window, beta);
+    pState->m_scratch.resize(n);
+    double *scratch = pState->m_scratch.data();
+    const int points = n / 2 + 1;
+
+    auto *samples = (jshort *) env->GetPrimitiveArrayCritical(pcm, nullptr);
+    auto *outValues = (kiss_fft_cpx *) env->GetPrimitiveArrayCritical(out, nullptr);
+
+    for (int k = 0; k < frames; k++) {
+        const jshort *frame = samples + offset + (size_t) k * hop;
+        for (int i = 0; i < n; i++) {
+            scratch[i] = frame[i] * w[i];
+        }
+        kiss_fftr_scratch(plan->real_cfg(), scratch, outValues + (size_t) k * points, tmpbuf);
+    }
+
+    env->ReleasePrimitiveArrayCritical(out, outValues, 0);
+    env->ReleasePrimitiveArrayCritical(pcm, samples, JNI_ABORT);
+
+    return JNI_TRUE;
+}
+
+// agalilov: copy of the cached window table, for callers that window their own data
+JNIEXPORT jboolean
+Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_getwindow(JNIEnv *env, jobject self,
+                                                                    jint window,
+                                                                    jdouble beta,
+                                                                    jdoubleArray out) {
+    if (out == NULL) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "out has nullptr.");
+        return JNI_FALSE;
+    }
+    if (window < 0 || window >= WINDOW_COUNT) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "Unknown window!");
+        return JNI_FALSE;
+    }
+    int n = env->GetArrayLength(out);
+    if (n < 1) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "Window length < 1!");
+        return JNI_FALSE;
+    }
+    auto pState = require_state(env, self);
+    if (pState == nullptr) {
+        return JNI_FALSE;
+    }
+    const std::vector<double> &w = get_window(pState, n, window, beta);
+    env->SetDoubleArrayRegion(out, 0, n, w.data());
+    return JNI_TRUE;
+}
+
 JNIEXPORT jdoubleArray
 Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_dofftri(JNIEnv *env, jobject self,
                                                                   jobjectArray data) {
 
-    jclass complex = env->FindClass("org/apache/commons/math3/complex/Complex");
-    jmethodID getImaginary = env->GetMethodID(complex, "getImaginary", "()D");
-    jmethodID getReal = env->GetMethodID(complex, "getReal", "()D");
+    if (!check_complex()) {
+        return NULL;
+    }
 
     if (data == NULL) {
         __android_log_write(ANDROID_LOG_ERROR, TAG, "data has nullptr.");
@@ -286,19 +741,10 @@ Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_dofftri(JNIEnv *env, j
     constexpr int is_inverse = 1;
     // length of real sequence
     const int real_data_points = 2 * n - 2;
-    kiss_fftr_cfg cfg = nullptr;
-    auto pState = get_state_field(env, self);
-    if (pState == nullptr) {
-        pState = new State;
-        update_state_field(env, self, pState);
-    }
-    auto it = pState->m_kiss_fftr_cfgs.find(real_data_points);
-    if (it != pState->m_kiss_fftr_cfgs.end()) {
-        cfg = it->second.get(is_inverse);
-    }
-    if (cfg == nullptr) {
-        cfg = kiss_fftr_alloc(real_data_points, is_inverse);
-        pState->m_kiss_fftr_cfgs[real_data_points].set(is_inverse,cfg);
+    auto pState = require_state(env, self);
+    FftPlanPtr plan = get_plan(real_data_points, is_inverse, true);
+    if (pState == nullptr || plan == nullptr) {
+        return NULL;
     }
 
     kiss_fft_cpx *inArray = new kiss_fft_cpx[n];
@@ -308,8 +754,8 @@ Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_dofftri(JNIEnv *env, j
         double re = 0;
         double im = 0;
         if (!(env->IsSameObject(one, NULL))) {
-            re = env->CallDoubleMethod(one, getReal);
-            im = env->CallDoubleMethod(one, getImaginary);
+            re = env->CallDoubleMethod(one, g_complex_get_real);
+            im = env->CallDoubleMethod(one, g_complex_get_imaginary);
         }
         inArray[j].r = re;
         inArray[j].i = im;
@@ -320,7 +766,7 @@ Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_dofftri(JNIEnv *env, j
     double *outValues = env->GetDoubleArrayElements(outArray, 0);
 
     // inverse transform assuming that the complex numbers are complex conjugate
-    kiss_fftri(cfg, inArray, outValues);
+    kiss_fftri_scratch(plan->real_cfg(), inArray, outValues, real_tmpbuf(pState, real_data_points));
 
     env->ReleaseDoubleArrayElements(outArray, outValues, 0);
 
@@ -329,10 +775,36 @@ Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_dofftri(JNIEnv *env, j
     return outArray;
 }
 
+// agalilov: the State is created with the Java object and freed by close() or its Cleaner,
+// both only see the pointer value, never the object.
+JNIEXPORT jlong
+Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_createState(JNIEnv *, jclass) {
+    return (jlong) new State;
+}
+
 JNIEXPORT void
-Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_removeConfigs(JNIEnv *env, jobject self) {
-    auto pState = get_state_field(env, self);
-    update_state_field(env, self, nullptr);
-    delete pState;
+Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_freeState(JNIEnv *, jclass, jlong state) {
+    delete (State *) state;
+}
+
+JNIEXPORT void
+Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_setPlanCacheLimit(JNIEnv *, jclass,
+                                                                            jlong bytes) {
+    FftPlanCache::instance().set_limit(bytes < 0 ? 0 : (size_t) bytes);
+}
+
+JNIEXPORT jlong
+Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_getPlanCacheBytes(JNIEnv *, jclass) {
+    return (jlong) FftPlanCache::instance().bytes();
+}
+
+JNIEXPORT jint
+Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_getPlanCacheSize(JNIEnv *, jclass) {
+    return (jint) FftPlanCache::instance().size();
+}
+
+JNIEXPORT void
+Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformer_clearPlanCache(JNIEnv *, jclass) {
+    FftPlanCache::instance().clear();
+}
 }
-}
\ No newline at end of file
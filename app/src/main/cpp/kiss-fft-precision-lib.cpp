@@ -0,0 +1,128 @@
+#include <jni.h>
+#include <android/log.h>
+#include "kiss_fft.h"
+#include "kiss_fftr.h"
+#include "kiss_fft_plan_cache.h"
+#include <vector>
+
+// agalilov: this file is built twice, see CMakeLists.txt. With kiss_fft_scalar=float it backs
+// KISSFastFourierTransformerFloat, with FIXED_POINT=16 (Q15) KISSFastFourierTransformerInt16.
+#ifdef FIXED_POINT
+#define JNI_METHOD(name) Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformerInt16_##name
+typedef jshortArray ScalarArray;
+static_assert(sizeof(kiss_fft_scalar) == sizeof(jshort), "Q15 build expected");
+#else
+#define JNI_METHOD(name) Java_uk_me_berndporr_kiss_1fft_KISSFastFourierTransformerFloat_##name
+typedef jfloatArray ScalarArray;
+static_assert(sizeof(kiss_fft_scalar) == sizeof(jfloat), "float build expected");
+#endif
+
+// per-object work buffer, the plans live in this library's FftPlanCache
+struct State {
+    std::vector<kiss_fft_cpx> m_tmpbuf;
+};
+
+extern "C" {
+
+#define TAG "KISSFFT"
+
+static const char *STATE_FLD_NAME = "m_state";
+
+// resolved once in JNI_OnLoad instead of on every call
+static jfieldID g_state_fid = nullptr;
+
+JNIEXPORT jint JNI_OnLoad(JavaVM *vm, void *) {
+    JNIEnv *env = nullptr;
+    if (vm->GetEnv((void **) &env, JNI_VERSION_1_6) != JNI_OK) {
+        return JNI_ERR;
+    }
+#ifdef FIXED_POINT
+    jclass fftClass = env->FindClass("uk/me/berndporr/kiss_fft/KISSFastFourierTransformerInt16");
+#else
+    jclass fftClass = env->FindClass("uk/me/berndporr/kiss_fft/KISSFastFourierTransformerFloat");
+#endif
+    if (fftClass == nullptr) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "JNI_OnLoad: transformer class not found");
+        return JNI_ERR;
+    }
+    g_state_fid = env->GetFieldID(fftClass, STATE_FLD_NAME, "J");
+    env->DeleteLocalRef(fftClass);
+    if (g_state_fid == nullptr) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "JNI_OnLoad: state field not found");
+        return JNI_ERR;
+    }
+    return JNI_VERSION_1_6;
+}
+
+JNIEXPORT jboolean
+JNI_METHOD(dofftrinto)(JNIEnv *env, jobject self, ScalarArray data, ScalarArray out) {
+    if (data == NULL || out == NULL) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "data or out has nullptr.");
+        return JNI_FALSE;
+    }
+
+    int n = env->GetArrayLength(data);
+
+    if (n < 2 || (n & 1) != 0) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "Real FFT array length must be even and > 0!");
+        return JNI_FALSE;
+    }
+    if (env->GetArrayLength(out) < 2 * (n / 2 + 1)) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "Output array is too short!");
+        return JNI_FALSE;
+    }
+
+    auto pState = (State *) env->GetLongField(self, g_state_fid);
+    if (pState == nullptr) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "Transformer is closed.");
+        return JNI_FALSE;
+    }
+    FftPlanPtr plan = FftPlanCache::instance().get(n, false, true);
+    if (plan == nullptr) {
+        __android_log_write(ANDROID_LOG_ERROR, TAG, "FFT plan allocation failed.");
+        return JNI_FALSE;
+    }
+    pState->m_tmpbuf.resize(n / 2);
+
+    auto *values = (kiss_fft_scalar *) env->GetPrimitiveArrayCritical(data, nullptr);
+    auto *outValues = (kiss_fft_cpx *) env->GetPrimitiveArrayCritical(out, nullptr);
+
+    kiss_fftr_scratch(plan->real_cfg(), values, outValues, pState->m_tmpbuf.data());
+
+    env->ReleasePrimitiveArrayCritical(out, outValues, 0);
+    env->ReleasePrimitiveArrayCritical(data, values, JNI_ABORT);
+
+    return JNI_TRUE;
+}
+
+JNIEXPORT jlong
+JNI_METHOD(createState)(JNIEnv *, jclass) {
+    return (jlong) new State;
+}
+
+JNIEXPORT void
+JNI_METHOD(freeState)(JNIEnv *, jclass, jlong state) {
+    delete (State *) state;
+}
+
+// the same controls as the double build's, on this library's own cache
+JNIEXPORT void
+JNI_METHOD(setPlanCacheLimit)(JNIEnv *, jclass, jlong bytes) {
+    FftPlanCache::instance().set_limit(bytes < 0 ? 0 : (size_t) bytes);
+}
+
+JNIEXPORT jlong
+JNI_METHOD(getPlanCacheBytes)(JNIEnv *, jclass) {
+    return (jlong) FftPlanCache::instance().bytes();
+}
+
+JNIEXPORT jint
+JNI_METHOD(getPlanCacheSize)(JNIEnv *, jclass) {
+    return (jint) FftPlanCache::instance().size();
+}
+
+JNIEXPORT void
+JNI_METHOD(clearPlanCache)(JNIEnv *, jclass) {
+    FftPlanCache::instance().clear();
+}
+}
@@ -87,7 +87,6 @@ kiss_fft_cfg kiss_fft_alloc(int nfft, int inverse_fft, void *mem, size_t *lenmem
 
 
 void kiss_fft_stride(kiss_fft_cfg st, const kiss_fft_cpx *fin, kiss_fft_cpx *fout, int in_stride) {
-    int j;
     if (fin == fout) {
         //NOTE: this is not really an in-place FFT algorithm.
         //It just performs an out-of-place FFT into a temp buffer
@@ -98,12 +97,15 @@ void kiss_fft_stride(kiss_fft_cfg st, const kiss_fft_cpx *fin, kiss_fft_cpx *fou
     } else {
         kf_work(fout, fin, 1, in_stride, st->factors, st);
     }
+#ifndef FIXED_POINT
+    // the fixed point butterflies already scale every stage
     if (st->inverse) {
-        for (j = 0; j < st->nfft; j++) {
+        for (int j = 0; j < st->nfft; j++) {
             fout[j].r /= st->nfft;
             fout[j].i /= st->nfft;
         }
     }
+#endif
 }
 
 
@@ -9,9 +9,27 @@
 #define KISS_FFT_MALLOC malloc
 #define KISS_FFT_FREE free
 
+/*
+ agalilov: the scalar type is chosen at build time, see CMakeLists.txt.
+ FIXED_POINT=16 gives Q15 int16_t with 1/nfft scaling of the forward transform,
+ otherwise kiss_fft_scalar may be defined as float and defaults to double.
+ */
+#ifdef FIXED_POINT
+#include <stdint.h>
+# if (FIXED_POINT == 32)
+#  define kiss_fft_scalar int32_t
+# else
+#  define kiss_fft_scalar int16_t
+# endif
+#else
+# ifndef kiss_fft_scalar
+#  define kiss_fft_scalar double
+# endif
+#endif
+
 typedef struct {
-    double r;
-    double i;
+    kiss_fft_scalar r;
+    kiss_fft_scalar i;
 } kiss_fft_cpx;
 
 typedef struct kiss_fft_state* kiss_fft_cfg;
@@ -0,0 +1,76 @@
+#include "kiss_fft_plan_cache.h"
+
+FftPlan::FftPlan(const FftPlanKey &key) {
+    const int is_inverse = key.inverse ? 1 : 0;
+    size_t len = 0;
+    if (key.real) {
+        kiss_fftr_alloc(key.n, is_inverse, nullptr, &len);
+        m_real_cfg = kiss_fftr_alloc(key.n, is_inverse);
+    } else {
+        kiss_fft_alloc(key.n, is_inverse, nullptr, &len);
+        m_cfg = kiss_fft_alloc(key.n, is_inverse);
+    }
+    m_bytes = valid() ? len : 0;
+}
+
+FftPlan::~FftPlan() {
+    // both are single malloc blocks
+    free(m_cfg);
+    free(m_real_cfg);
+}
+
+FftPlanCache &FftPlanCache::instance() {
+    static FftPlanCache cache;
+    return cache;
+}
+
+FftPlanPtr FftPlanCache::get(int n, bool inverse, bool real) {
+    const FftPlanKey key{n, inverse, real, KISS_FFT_PRECISION};
+    std::lock_guard<std::mutex> lock(m_mutex);
+    auto it = m_index.find(key);
+    if (it != m_index.end()) {
+        m_lru.splice(m_lru.begin(), m_lru, it->second);
+        return it->second->second;
+    }
+    auto plan = std::make_shared<const FftPlan>(key);
+    if (!plan->valid()) {
+        return nullptr;
+    }
+    m_lru.emplace_front(key, plan);
+    m_index[key] = m_lru.begin();
+    m_bytes += plan->bytes();
+    evict_locked();
+    return plan;
+}
+
+void FftPlanCache::evict_locked() {
+    while (m_bytes > m_limit && m_lru.size() > 1) {
+        const Entry &oldest = m_lru.back();
+        m_bytes -= oldest.second->bytes();
+        m_index.erase(oldest.first);
+        m_lru.pop_back();
+    }
+}
+
+void FftPlanCache::set_limit(size_t bytes) {
+    std::lock_guard<std::mutex> lock(m_mutex);
+    m_limit = bytes;
+    evict_locked();
+}
+
+size_t FftPlanCache::bytes() const {
+    std::lock_guard<std::mutex> lock(m_mutex);
+    return m_bytes;
+}
+
+size_t FftPlanCache::size() const {
+    std::lock_guard<std::mutex> lock(m_mutex);
+    return m_lru.size();
+}
+
+void FftPlanCache::clear() {
+    std::lock_guard<std::mutex> lock(m_mutex);
+    m_index.clear();
+    m_lru.clear();
+    m_bytes = 0;
+}
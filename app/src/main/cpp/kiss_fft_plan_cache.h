@@ -0,0 +1,104 @@
+#ifndef KISS_FFT_PLAN_CACHE_H
+#define KISS_FFT_PLAN_CACHE_H
+
+#include "kiss_fft.h"
+#include "kiss_fftr.h"
+#include <cstddef>
+#include <list>
+#include <memory>
+#include <mutex>
+#include <unordered_map>
+
+/*
+ agalilov: process-wide cache of KISS FFT plans, shared by every transformer object and thread.
+
+ A plan is immutable once built: complex plans are only read by kiss_fft(), real plans are used
+ through kiss_fftr_scratch()/kiss_fftri_scratch() with the caller's work buffer. Callers keep the
+ shared_ptr for the duration of the transform, so an evicted plan is freed only after its last
+ user is done with it. The least recently used plans are evicted once the total size of the
+ cached plans exceeds the limit.
+ */
+
+// scalar type of this build, part of the key so a cache shared between builds stays correct
+#if defined(FIXED_POINT)
+#define KISS_FFT_PRECISION 16
+#else
+#define KISS_FFT_PRECISION ((int) sizeof(kiss_fft_scalar) * 8)
+#endif
+
+struct FftPlanKey {
+    int n;
+    bool inverse;
+    bool real;
+    int precision;
+
+    bool operator==(const FftPlanKey &other) const {
+        return n == other.n && inverse == other.inverse && real == other.real &&
+               precision == other.precision;
+    }
+};
+
+struct FftPlanKeyHash {
+    size_t operator()(const FftPlanKey &key) const {
+        return ((size_t) key.n << 8) ^ ((size_t) key.precision << 2) ^
+               ((size_t) key.real << 1) ^ (size_t) key.inverse;
+    }
+};
+
+class FftPlan {
+public:
+    FftPlan(const FftPlanKey &key);
+
+    ~FftPlan();
+
+    FftPlan(const FftPlan &) = delete;
+
+    FftPlan &operator=(const FftPlan &) = delete;
+
+    bool valid() const { return m_cfg != nullptr || m_real_cfg != nullptr; }
+
+    kiss_fft_cfg cfg() const { return m_cfg; }
+
+    kiss_fftr_cfg real_cfg() const { return m_real_cfg; }
+
+    size_t bytes() const { return m_bytes; }
+
+private:
+    kiss_fft_cfg m_cfg = nullptr;
+    kiss_fftr_cfg m_real_cfg = nullptr;
+    size_t m_bytes = 0;
+};
+
+using FftPlanPtr = std::shared_ptr<const FftPlan>;
+
+class FftPlanCache {
+public:
+    static constexpr size_t DEFAULT_LIMIT_BYTES = 8 * 1024 * 1024;
+
+    static FftPlanCache &instance();
+
+    // the plan for n points, built on a miss; null if the allocation failed
+    FftPlanPtr get(int n, bool inverse, bool real);
+
+    // the plan just returned by get() always stays, even if it alone exceeds the limit
+    void set_limit(size_t bytes);
+
+    size_t bytes() const;
+
+    size_t size() const;
+
+    void clear();
+
+private:
+    using Entry = std::pair<FftPlanKey, FftPlanPtr>;
+
+    void evict_locked();
+
+    mutable std::mutex m_mutex;
+    std::list<Entry> m_lru; // most recently used first
+    std::unordered_map<FftPlanKey, std::list<Entry>::iterator, FftPlanKeyHash> m_index;
+    size_t m_bytes = 0;
+    size_t m_limit = DEFAULT_LIMIT_BYTES;
+};
+
+#endif
@@ -20,18 +20,29 @@ kiss_fftr_cfg kiss_fftr_alloc(int nfft,int inverse_fft,void * mem = nullptr, siz
 */
 
 
-void kiss_fftr(kiss_fftr_cfg cfg,const double *timedata,kiss_fft_cpx *freqdata);
+void kiss_fftr(kiss_fftr_cfg cfg,const kiss_fft_scalar *timedata,kiss_fft_cpx *freqdata);
 /*
  input timedata has nfft scalar points
  output freqdata has nfft/2+1 complex points
 */
 
-void kiss_fftri(kiss_fftr_cfg cfg,const kiss_fft_cpx *freqdata,double *timedata);
+void kiss_fftri(kiss_fftr_cfg cfg,const kiss_fft_cpx *freqdata,kiss_fft_scalar *timedata);
 /*
  input freqdata has  nfft/2+1 complex points
  output timedata has nfft scalar points
 */
 
+/*
+ agalilov: same as kiss_fftr/kiss_fftri but with a caller-owned work buffer of nfft/2 complex
+ points instead of the one inside the cfg. The cfg is then only read, so several threads can
+ share it as long as each one passes its own tmpbuf.
+ */
+void kiss_fftr_scratch(kiss_fftr_cfg cfg,const kiss_fft_scalar *timedata,kiss_fft_cpx *freqdata,
+                       kiss_fft_cpx *tmpbuf);
+
+void kiss_fftri_scratch(kiss_fftr_cfg cfg,const kiss_fft_cpx *freqdata,kiss_fft_scalar *timedata,
+                        kiss_fft_cpx *tmpbuf);
+
 #define kiss_fftr_free free
 
 #endif
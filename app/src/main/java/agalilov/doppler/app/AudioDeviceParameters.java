@@ -1,23 +1,27 @@
-package agalilov.doppler;
+package agalilov.doppler.app;
 
 import android.media.AudioFormat;
 import android.media.AudioRecord;
 import android.media.AudioTrack;
 
-final class AudioParameters {
+import agalilov.doppler.AudioParameters;
+
+/**
+ * The Android side of {@link AudioParameters}: encoding, channel masks and the minimum
+ * AudioRecord / AudioTrack buffer sizes for its sample rate.
+ */
+final class AudioDeviceParameters {
     private static final int _channelRecordConfig = AudioFormat.CHANNEL_IN_MONO;
     private static final int _channelPlayConfig = AudioFormat.CHANNEL_OUT_MONO;
-    //private final AudioFormat _audioRecordFormat, _audioPlayFormat;
-    private final int _recordBufferSize, _playBufferSize, _nFftChunkSamples, _playFreq, _encoding, _sampleRate;
+    private final AudioParameters _audio;
+    private final int _recordBufferSize, _playBufferSize, _encoding;
 
-    public AudioParameters(int sampleRate, int nFftChunkSamples, int encoding, int playFreq) {
-        _sampleRate = sampleRate;
-        _nFftChunkSamples = nFftChunkSamples;
+    public AudioDeviceParameters(AudioParameters audio, int encoding) {
+        _audio = audio;
         _encoding = encoding;
-        _playFreq = playFreq;
 
         _recordBufferSize = AudioRecord.getMinBufferSize(
-                sampleRate,
+                audio.getSampleRate(),
                 _channelRecordConfig,
                 encoding);
         if (_recordBufferSize < 0) {
@@ -25,7 +29,7 @@ final class AudioParameters {
         }
 
         _playBufferSize = AudioTrack.getMinBufferSize(
-                sampleRate,
+                audio.getSampleRate(),
                 _channelPlayConfig,
                 encoding);
         if (_playBufferSize < 0) {
@@ -33,6 +37,10 @@ final class AudioParameters {
         }
     }
 
+    public AudioParameters getAudio() {
+        return _audio;
+    }
+
     public int getRecordBufferSize() {
         return _recordBufferSize;
     }
@@ -41,22 +49,17 @@ final class AudioParameters {
         return _playBufferSize;
     }
 
-    public int getNFftChunkSamples() {
-        return _nFftChunkSamples;
-    }
-
-    public int getPlayFreq() {
-        return _playFreq;
+    /**
+     * @return getPlayBufferSize() in samples rather than bytes
+     */
+    public int getPlayBufferSamples() {
+        return _playBufferSize / (_encoding == AudioFormat.ENCODING_PCM_16BIT ? 2 : 1);
     }
 
     public int getEncoding() {
         return _encoding;
     }
 
-    public int getSampleRate() {
-        return _sampleRate;
-    }
-
     public int getChannelRecordConfig() {
         return _channelRecordConfig;
     }
@@ -64,8 +67,4 @@ final class AudioParameters {
     public int getChannelPlayConfig() {
         return _channelPlayConfig;
     }
-
-    public int getHarmonic() {
-        return (int) Math.round((double) (_nFftChunkSamples * _playFreq) / _sampleRate);
-    }
 }
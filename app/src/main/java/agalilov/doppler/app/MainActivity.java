@@ -0,0 +1,313 @@
+package agalilov.doppler.app;
+
+import static android.content.pm.ActivityInfo.SCREEN_ORIENTATION_SENSOR_LANDSCAPE;
+
+import android.Manifest;
+import android.content.pm.PackageManager;
+import android.media.AudioFormat;
+import android.os.Bundle;
+import android.util.Log;
+import android.view.View;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.app.ActivityCompat;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import agalilov.doppler.AnalysisParameters;
+import agalilov.doppler.AudioParameters;
+import agalilov.doppler.CfarDetector;
+import agalilov.doppler.EchoTracker;
+import agalilov.doppler.FftEngine;
+import agalilov.doppler.MultiCarrierAnalyzer;
+import agalilov.doppler.PipelineStats;
+import agalilov.doppler.ProcessingThread;
+import agalilov.doppler.R;
+import agalilov.doppler.RangeProcessor;
+import agalilov.doppler.RecordAudioThread;
+import agalilov.doppler.SpectrumAverager;
+import agalilov.doppler.SpectrumLayout;
+import agalilov.doppler.databinding.ActivityMainBinding;
+import uk.me.berndporr.kiss_fft.KISSFastFourierTransformer;
+
+public class MainActivity extends AppCompatActivity implements View.OnClickListener, ProcessingThread.IOnSpectreReady {
+    public static final String TAG = "Doppler";
+    private static final int REQUEST_RECORD_AUDIO_PERMISSION = 200;
+    // MULTI_CARRIER: the central frequency and the carriers below it
+    private static final int CARRIERS = 4;
+    private static final int CARRIER_SPACING_HZ = 1000;
+    private ActivityMainBinding _binding;
+
+    private final String[] _permissions = new String[]{Manifest.permission.RECORD_AUDIO};
+    private boolean _isMicInUse = false;
+    private RecordAudioThread _recordAudioThread = null;
+    private PlayAudioThread _playAudioThread = null;
+    // the stats files are written off the UI thread, one after the other
+    private final ExecutorService _statsWriter = Executors.newSingleThreadExecutor();
+    // the current frame's detections, processing thread only
+    private CfarDetector.Detections _detections = null;
+    // the averaged spectrum is shown instead of the raw one when the setting asks for it
+    private boolean _isAveraged = false;
+    private double[] _averagedSpectre = null;
+
+    @Override
+    public void onRequestPermissionsResult(
+            int requestCode,
+            @NonNull String[] permissions,
+            @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        // Requesting permission to RECORD_AUDIO
+        boolean granted = grantResults.length > 0 &&
+                requestCode == REQUEST_RECORD_AUDIO_PERMISSION &&
+                grantResults[0] == PackageManager.PERMISSION_GRANTED;
+        if (granted) {
+            continueCreation();
+        } else {
+            Toast.makeText(this, "Sound recording is not available", Toast.LENGTH_LONG)
+                    .show();
+            finish();
+        }
+    }
+
+    private void continueCreation() {
+        setRequestedOrientation(SCREEN_ORIENTATION_SENSOR_LANDSCAPE);
+        _binding = ActivityMainBinding.inflate(getLayoutInflater());
+        _binding.btnStartStop.setOnClickListener(this);
+        _binding.dopplerView.setOnClickListener(v -> _binding.dopplerView.toggleStatsOverlay());
+        _binding.dopplerView.setOnLongClickListener(v -> {
+            _binding.dopplerView.toggleWaterfall();
+            return true;
+        });
+        _binding.spinnerWindow.setSelection(KISSFastFourierTransformer.Window.BLACKMAN_HARRIS.ordinal());
+        setContentView(_binding.getRoot());
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().hide();
+        }
+        ActivityCompat.requestPermissions(
+                this,
+                _permissions,
+                REQUEST_RECORD_AUDIO_PERMISSION);
+    }
+
+    @Override
+    public void onClick(View v) {
+        if (v == _binding.btnStartStop) {
+            if (_isMicInUse) {
+                _binding.btnStartStop.setText(R.string.start);
+            } else {
+                _binding.btnStartStop.setText(R.string.stop);
+            }
+            _isMicInUse = !_isMicInUse;
+            if (_isMicInUse) {
+                startAudioProcessing();
+            } else {
+                stopAudioProcessing();
+            }
+        }
+    }
+
+    private void stopAudioProcessing() {
+        if (_recordAudioThread != null && _playAudioThread != null) {
+            _recordAudioThread.interrupt();
+            _playAudioThread.interrupt();
+            try {
+                _recordAudioThread.join();
+                _playAudioThread.join();
+                writeStats(_recordAudioThread.getProcessingThread().getStats());
+            } catch (InterruptedException e) {
+                Log.e(TAG, "Interrupted");
+            } finally {
+                _binding.dopplerView.setPipelineStats(null);
+                _recordAudioThread = null;
+                _playAudioThread = null;
+            }
+        }
+    }
+
+    /**
+     * Leaves the session's timings in the app's external files directory for offline comparison.
+     * The CSV is taken here, the disk is only touched on {@link #_statsWriter}.
+     */
+    private void writeStats(PipelineStats stats) {
+        final StringWriter csv = new StringWriter();
+        try {
+            stats.writeCsv(csv);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot format pipeline stats", e);
+            return;
+        }
+        final String name = "pipeline-" + System.currentTimeMillis() + ".csv";
+        _statsWriter.execute(() -> {
+            File file = new File(getExternalFilesDir(null), name);
+            try (Writer writer = new FileWriter(file)) {
+                writer.write(csv.toString());
+                Log.i(TAG, "Pipeline stats written to " + file);
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot write " + file, e);
+            }
+        });
+    }
+
+    private void startAudioProcessing() {
+        if (_recordAudioThread != null || _playAudioThread != null) {
+            throw new IllegalStateException("Thread is already running or was not properly cleared");
+        }
+        float soundSpeed = Float.parseFloat(_binding.editSoundSpeed.getText().toString());
+        int centralFreq = Integer.parseInt(_binding.editCentralFreq.getText().toString());
+        int sampleRate = Integer.parseInt(_binding.editSampleRate.getText().toString());
+        int fftWindow = Integer.parseInt(_binding.editFFTWindow.getText().toString());
+        int hop = Integer.parseInt(_binding.editHop.getText().toString());
+        double averagingSeconds = Double.parseDouble(_binding.editAveragingSeconds.getText().toString());
+        SpectrumAverager.Kind averaging = SpectrumAverager.Kind.values()[
+                _binding.spinnerAveraging.getSelectedItemPosition()];
+        AnalysisParameters.SpectrumMode mode = AnalysisParameters.SpectrumMode.values()[
+                _binding.spinnerMode.getSelectedItemPosition()];
+        boolean isMultiCarrier = mode == AnalysisParameters.SpectrumMode.MULTI_CARRIER;
+        AudioParameters params = new AudioParameters(sampleRate, fftWindow, Math.min(hop, fftWindow),
+                centralFreq, isMultiCarrier ? CARRIERS : 1, CARRIER_SPACING_HZ);
+        AudioDeviceParameters device = new AudioDeviceParameters(params, AudioFormat.ENCODING_PCM_16BIT);
+        AnalysisParameters analysis = new AnalysisParameters.Builder()
+                .setSpectrumMode(mode)
+                .setFftEngine(FftEngine.Kind.values()[
+                        _binding.spinnerEngine.getSelectedItemPosition()])
+                .setWindow(KISSFastFourierTransformer.Window.values()[
+                        _binding.spinnerWindow.getSelectedItemPosition()])
+                .setSoundSpeed(soundSpeed, _binding.checkBoxPlayFreq.isChecked())
+                .setAveraging(averaging, averagingSeconds)
+                .build();
+        _recordAudioThread = new RecordAudioThread(new MicAudioSource(device), params, analysis, this);
+        _playAudioThread = mode == AnalysisParameters.SpectrumMode.RANGE
+                ? new PlayAudioThread(device, RangeProcessor.chirp(params, analysis).build())
+                : new PlayAudioThread(device);
+        _binding.dopplerView.setSpectrumLayout(SpectrumLayout.of(params, analysis));
+        _binding.dopplerView.setSoundSpeed(soundSpeed, _binding.checkBoxPlayFreq.isChecked());
+        _binding.dopplerView.setFusedSpeed(Double.NaN, 0, 0);
+        _binding.dopplerView.setEchoRange(Double.NaN);
+        _binding.dopplerView.setEcho(Double.NaN, Double.NaN);
+        _binding.dopplerView.setTracks(null);
+        _detections = null;
+        _isAveraged = averaging != SpectrumAverager.Kind.NONE;
+        _averagedSpectre = null;
+        _binding.dopplerView.setPipelineStats(_recordAudioThread.getProcessingThread().getStats());
+        _recordAudioThread.start();
+        if (_binding.checkBoxPlayFreq.isChecked())
+            _playAudioThread.start();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        stopAudioProcessing();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // the pending files are still written, nothing new is accepted
+        _statsWriter.shutdown();
+    }
+
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString("centralFreq", _binding.editCentralFreq.getText().toString());
+        outState.putString("soundSpeed", _binding.editSoundSpeed.getText().toString());
+        outState.putString("sampleRate", _binding.editSampleRate.getText().toString());
+        outState.putString("fftWindow", _binding.editFFTWindow.getText().toString());
+        outState.putString("hop", _binding.editHop.getText().toString());
+        outState.putBoolean("playFreq", _binding.checkBoxPlayFreq.isChecked());
+        outState.putInt("spectrumMode", _binding.spinnerMode.getSelectedItemPosition());
+        outState.putInt("fftEngine", _binding.spinnerEngine.getSelectedItemPosition());
+        outState.putInt("windowFunction", _binding.spinnerWindow.getSelectedItemPosition());
+        outState.putInt("averaging", _binding.spinnerAveraging.getSelectedItemPosition());
+        outState.putString("averagingSeconds", _binding.editAveragingSeconds.getText().toString());
+    }
+
+    @Override
+    protected void onRestoreInstanceState(@NonNull Bundle savedInstanceState) {
+        super.onRestoreInstanceState(savedInstanceState);
+
+        String centralFreq = savedInstanceState.getString("centralFreq");
+        if (centralFreq != null && !centralFreq.isEmpty())
+            _binding.editCentralFreq.setText(centralFreq);
+
+        String soundSpeed = savedInstanceState.getString("soundSpeed");
+        if (soundSpeed != null && !soundSpeed.isEmpty())
+            _binding.editSoundSpeed.setText(soundSpeed);
+
+        String sampleRate = savedInstanceState.getString("sampleRate");
+        if (sampleRate != null && !sampleRate.isEmpty())
+            _binding.editSampleRate.setText(sampleRate);
+
+        String fftWindow = savedInstanceState.getString("fftWindow");
+        if (fftWindow != null && !fftWindow.isEmpty())
+            _binding.editFFTWindow.setText(fftWindow);
+
+        String hop = savedInstanceState.getString("hop");
+        if (hop != null && !hop.isEmpty())
+            _binding.editHop.setText(hop);
+
+        String averagingSeconds = savedInstanceState.getString("averagingSeconds");
+        if (averagingSeconds != null && !averagingSeconds.isEmpty())
+            _binding.editAveragingSeconds.setText(averagingSeconds);
+
+        boolean isPleyFreq = savedInstanceState.getBoolean("playFreq");
+        _binding.checkBoxPlayFreq.setChecked(isPleyFreq);
+
+        _binding.spinnerMode.setSelection(savedInstanceState.getInt("spectrumMode"));
+        _binding.spinnerEngine.setSelection(savedInstanceState.getInt("fftEngine"));
+        _binding.spinnerWindow.setSelection(savedInstanceState.getInt("windowFunction",
+                KISSFastFourierTransformer.Window.BLACKMAN_HARRIS.ordinal()));
+        _binding.spinnerAveraging.setSelection(savedInstanceState.getInt("averaging"));
+    }
+
+    @Override
+    public void onDetectionsReady(CfarDetector.Detections detections) {
+        _detections = detections;
+    }
+
+    @Override
+    public void onAveragedSpectreReady(double[] data) {
+        _averagedSpectre = data;
+    }
+
+    @Override
+    public void onSpectreReady(double[] data) {
+        _binding.dopplerView.enqueue(_isAveraged ? _averagedSpectre : data, _detections);
+    }
+
+    @Override
+    public void onRangeReady(RangeProcessor.Profile profile) {
+        final int echo = profile.strongestEcho();
+        _binding.dopplerView.setEchoRange(echo >= 0 ? profile.range(echo) : Double.NaN);
+    }
+
+    @Override
+    public void onEchoReady(double frequency, double speed) {
+        _binding.dopplerView.setEcho(frequency, speed);
+    }
+
+    @Override
+    public void onTracksReady(EchoTracker tracker) {
+        _binding.dopplerView.setTracks(tracker);
+    }
+
+    @Override
+    public void onSpeedReady(MultiCarrierAnalyzer.Reading reading) {
+        _binding.dopplerView.setFusedSpeed(reading.getSpeed(), reading.getDetectedCarriers(),
+                reading.getCarrierCount());
+    }
+}
\ No newline at end of file
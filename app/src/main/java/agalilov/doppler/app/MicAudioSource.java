@@ -0,0 +1,77 @@
+package agalilov.doppler.app;
+
+import android.Manifest;
+import android.annotation.SuppressLint;
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+
+import androidx.annotation.RequiresPermission;
+
+import java.nio.ShortBuffer;
+
+import agalilov.doppler.AudioSource;
+
+/**
+ * The microphone through {@link AudioRecord}, unprocessed so the ultrasonic carrier survives.
+ */
+final class MicAudioSource implements AudioSource {
+    private final AudioDeviceParameters _params;
+    private final short[] _rawData;
+    private final ShortBuffer _view;
+    private AudioRecord _audioRecord = null;
+
+    MicAudioSource(AudioDeviceParameters params) {
+        _params = params;
+        // one buffer serves every read
+        _rawData = new short[params.getRecordBufferSize()];
+        _view = ShortBuffer.wrap(_rawData);
+    }
+
+    @Override
+    public int getSampleRate() {
+        return _params.getAudio().getSampleRate();
+    }
+
+    @Override
+    public boolean isRealTime() {
+        return true;
+    }
+
+    @RequiresPermission(Manifest.permission.RECORD_AUDIO)
+    @Override
+    public void start() {
+        @SuppressLint("WrongConstant")
+        AudioFormat af = new AudioFormat.Builder()
+                .setEncoding(_params.getEncoding())
+                .setSampleRate(getSampleRate())
+                .setChannelMask(_params.getChannelRecordConfig())
+                .build();
+        _audioRecord = new AudioRecord.Builder()
+                .setAudioSource(MediaRecorder.AudioSource.UNPROCESSED)
+                .setAudioFormat(af)
+                .setBufferSizeInBytes(_params.getRecordBufferSize())
+                .build();
+        _audioRecord.startRecording();
+    }
+
+    @Override
+    public int read(Sink sink) throws InterruptedException {
+        final int nRead = _audioRecord.read(_rawData, 0, _rawData.length);
+        if (nRead > 0) {
+            _view.clear().limit(nRead);
+            sink.write(_view);
+        }
+        // errors are negative too, but the microphone is never exhausted
+        return Math.max(nRead, 0);
+    }
+
+    @Override
+    public void close() {
+        if (_audioRecord != null) {
+            _audioRecord.stop();
+            _audioRecord.release();
+            _audioRecord = null;
+        }
+    }
+}
@@ -0,0 +1,642 @@
+package agalilov.doppler.app;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+import androidx.annotation.NonNull;
+
+import java.util.Objects;
+
+import agalilov.doppler.CfarDetector;
+import agalilov.doppler.DecimalText;
+import agalilov.doppler.DopplerVelocity;
+import agalilov.doppler.EchoTracker;
+import agalilov.doppler.PeakFinder;
+import agalilov.doppler.PipelineStats;
+import agalilov.doppler.SpectrumLayout;
+import agalilov.doppler.SpscRing;
+import agalilov.doppler.Waterfall;
+
+public class MySurfaceView extends SurfaceView implements SurfaceHolder.Callback {
+
+    private static final class Frame {
+        double[] data = new double[0];
+        // bins of the detections in data
+        final int[] detections = new int[CfarDetector.MAX_DETECTIONS];
+        int nDetections;
+        long captureNanos;
+    }
+
+    /**
+     * Draws on its own looper thread, paced by Choreographer: each vsync takes the newest queued
+     * spectrum and drops the older ones, so rendering follows the display rate, not the FFT rate.
+     */
+    private class DrawThread implements Choreographer.FrameCallback {
+        static final String TAG = "MySurfaceView.DrawThread";
+        // a frame that is not drawn yet is replaced by a fresher one rather than delaying the producer
+        private static final int SPECTRE_QUEUE_CAPACITY = 2;
+        // queued spectres + the one being drawn + the producer's spare
+        private static final int SPECTRE_BUFFERS = SPECTRE_QUEUE_CAPACITY + 2;
+        private final SpscRing<Frame> _queue =
+                new SpscRing<>(SPECTRE_QUEUE_CAPACITY, SpscRing.OverflowPolicy.OVERWRITE_OLDEST);
+        // drawn spectres go back to the producer here so enqueue() does not allocate in the steady state
+        private final SpscRing<Frame> _free =
+                new SpscRing<>(SPECTRE_BUFFERS, SpscRing.OverflowPolicy.DROP_NEWEST);
+        private final SurfaceHolder _holder;
+        private final HandlerThread _looper = new HandlerThread(TAG);
+        private Choreographer _choreographer = null; // owned by the looper thread
+        private Frame _spare = null; // owned by the producer thread
+        private volatile boolean _isRunning = true;
+
+        DrawThread(SurfaceHolder holder) {
+            _holder = holder;
+        }
+
+        void start() {
+            _looper.start();
+            new Handler(_looper.getLooper()).post(() -> {
+                // Choreographer.getInstance() belongs to the calling looper
+                _choreographer = Choreographer.getInstance();
+                _choreographer.postFrameCallback(this);
+            });
+        }
+
+        void quit() throws InterruptedException {
+            _isRunning = false;
+            _looper.quitSafely();
+            _looper.join();
+        }
+
+        /**
+         * Called from the processing thread only, never blocks.
+         */
+        public void enqueue(double[] data, CfarDetector.Detections detections, long captureNanos) {
+            Frame copy = _spare;
+            _spare = null;
+            if (copy == null) {
+                copy = _free.poll();
+            }
+            if (copy == null) {
+                copy = _queue.evictOldest();
+                if (copy != null) {
+                    coalesced(1);
+                }
+            }
+            if (copy == null) {
+                copy = new Frame();
+            }
+            if (copy.data.length != data.length) {
+                copy.data = new double[data.length];
+            }
+            System.arraycopy(data, 0, copy.data, 0, data.length);
+            copy.nDetections = detections != null ? detections.getCount() : 0;
+            for (int i = 0; i < copy.nDetections; i++) {
+                copy.detections[i] = detections.getBin(i);
+            }
+            copy.captureNanos = captureNanos;
+            _spare = _queue.offer(copy);
+            if (_spare != null) {
+                coalesced(1);
+            }
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!_isRunning) {
+                return;
+            }
+            final boolean isWaterfall = _isWaterfall;
+            if (isWaterfall != _isWaterfallShown) {
+                _isWaterfallShown = isWaterfall;
+                clearWaterfall();
+            }
+            Frame frame = _queue.poll();
+            if (frame != null) {
+                // only the newest spectrum is worth this vsync; the waterfall still gets every one
+                Frame newer;
+                int older = 0;
+                while ((newer = _queue.poll()) != null) {
+                    if (isWaterfall) {
+                        addColumn(frame.data);
+                    }
+                    _free.offer(frame);
+                    frame = newer;
+                    older++;
+                }
+                if (older > 0) {
+                    coalesced(older);
+                }
+                if (isWaterfall) {
+                    addColumn(frame.data);
+                }
+                render(frame);
+                _free.offer(frame);
+            }
+            _choreographer.postFrameCallback(this);
+        }
+
+        private void render(Frame frame) {
+            if (!_holder.getSurface().isValid()) {
+                return;
+            }
+            final long start = System.nanoTime();
+            Canvas canvas = _holder.lockCanvas();
+            if (canvas == null) {
+                return;
+            }
+            try {
+                draw(canvas, frame);
+            } finally {
+                _holder.unlockCanvasAndPost(canvas);
+            }
+            final PipelineStats stats = _stats;
+            if (stats != null) {
+                final long end = System.nanoTime();
+                stats.record(PipelineStats.Stage.RENDER, end - start);
+                if (frame.captureNanos != 0) {
+                    stats.record(PipelineStats.Stage.END_TO_END, end - frame.captureNanos);
+                }
+                stats.add(PipelineStats.Counter.DRAWN_FRAMES, 1);
+            }
+        }
+
+        private void coalesced(int nFrames) {
+            final PipelineStats stats = _stats;
+            if (stats != null) {
+                stats.add(PipelineStats.Counter.COALESCED_FRAMES, nFrames);
+            }
+        }
+    }
+
+    static final String TAG = "MySurfaceView";
+
+    private static final long STATS_REFRESH_NANOS = 500_000_000L;
+    // screen pixels per waterfall column, and the span of its colours below the strongest echo
+    private static final int WATERFALL_COLUMN_WIDTH = 2;
+    private static final double WATERFALL_RANGE_DB = 60;
+
+    private DrawThread _thread = null;
+    private int _centralHarmonic = 0;
+    private SpectrumLayout _layout = new SpectrumLayout(0, 1, 0, 0);
+    private DopplerVelocity _velocity = new DopplerVelocity(0, false);
+    // MULTI_CARRIER only, written by the processing thread
+    private volatile double _fusedSpeed = Double.NaN;
+    private volatile int _detectedCarriers = 0, _carriers = 0;
+    // RANGE only, written by the processing thread
+    private volatile double _echoRange = Double.NaN;
+    // FULL_FFT, ZOOM and BASEBAND, written by the processing thread
+    private volatile double _echoFrequency = Double.NaN, _echoSpeed = Double.NaN;
+    private volatile boolean _hasTracks = false;
+    private final Object _tracksLock = new Object();
+    private final int[] _trackIds = new int[EchoTracker.MAX_TRACKS];
+    private final double[] _trackFrequencies = new double[EchoTracker.MAX_TRACKS];
+    private final double[] _trackSpeeds = new double[EchoTracker.MAX_TRACKS];
+    private int _nTracks = 0; // guarded by _tracksLock
+    private volatile PipelineStats _stats = null;
+    private volatile boolean _isStatsOverlay = false;
+    private volatile boolean _isWaterfall = false;
+
+    // drawing state, owned by the draw thread once it runs
+    private final Paint _paintBars = new Paint();
+    private final Paint _paintDetected = new Paint();
+    private final Paint _paintText = new Paint();
+    private final Paint _paintCentral = new Paint();
+    private final Paint _paintStats = new Paint();
+    private final char[] _text = new char[64];
+    private int _width = -1, _height = -1;
+    private int _nHarmonics = 0;
+    private float[] _barX = new float[0];
+    private float[] _amplitudes = new float[0];
+    private float[] _lines = new float[0];
+    private final float[] _detectedLines = new float[4 * CfarDetector.MAX_DETECTIONS];
+    private boolean[] _isDetected = new boolean[0];
+    private String[] _statsLines = null;
+    private long _statsNanos = 0;
+    private final int[] _drawTrackIds = new int[EchoTracker.MAX_TRACKS];
+    private final double[] _drawTrackFrequencies = new double[EchoTracker.MAX_TRACKS];
+    private final double[] _drawTrackSpeeds = new double[EchoTracker.MAX_TRACKS];
+    private boolean _isWaterfallShown = false;
+    private Waterfall _waterfall = null;
+    private Bitmap _waterfallBitmap = null;
+    private final Rect _waterfallSrc = new Rect(), _waterfallDst = new Rect();
+
+    /**
+     * Tells the view which frequency each bin of the enqueued spectres has.
+     */
+    public void setSpectrumLayout(SpectrumLayout layout) {
+        _layout = layout;
+        _centralHarmonic = layout.getCentralBin();
+    }
+
+    public void setSoundSpeed(float soundSpeed, boolean isReflectedSound) {
+        _velocity = new DopplerVelocity(soundSpeed, isReflectedSound);
+    }
+
+    /**
+     * @param speed     fused speed in m/s, NaN when there is none
+     * @param nDetected carriers that heard an echo, of {@code nCarriers}; 0 carriers hides the reading
+     */
+    public void setFusedSpeed(double speed, int nDetected, int nCarriers) {
+        _fusedSpeed = speed;
+        _detectedCarriers = nDetected;
+        _carriers = nCarriers;
+    }
+
+    /**
+     * @param stats where the drawing thread records RENDER, END_TO_END and its counters; null
+     *              for none
+     */
+    public void setPipelineStats(PipelineStats stats) {
+        _stats = stats;
+    }
+
+    public void toggleStatsOverlay() {
+        _isStatsOverlay = !_isStatsOverlay;
+    }
+
+    /**
+     * Switches between the bar spectrum and the waterfall, which starts with an empty history.
+     */
+    public void toggleWaterfall() {
+        _isWaterfall = !_isWaterfall;
+    }
+
+    /**
+     * @param metres distance to the strongest echo, NaN hides it
+     */
+    public void setEchoRange(double metres) {
+        _echoRange = metres;
+    }
+
+    /**
+     * Copies the confirmed tracks, which replace the detection labels.
+     *
+     * @param tracker null for none, the detections are labelled then
+     */
+    public void setTracks(EchoTracker tracker) {
+        synchronized (_tracksLock) {
+            int n = 0;
+            if (tracker != null) {
+                for (int i = 0; i < tracker.getTrackCount(); i++) {
+                    final EchoTracker.Track track = tracker.getTrack(i);
+                    if (track.isConfirmed()) {
+                        _trackIds[n] = track.getId();
+                        _trackFrequencies[n] = track.getFrequency();
+                        _trackSpeeds[n] = track.getSpeed();
+                        n++;
+                    }
+                }
+            }
+            _nTracks = n;
+        }
+        _hasTracks = tracker != null;
+    }
+
+    /**
+     * @param frequency strongest echo between bins, NaN hides it
+     * @param speed     its speed in m/s
+     */
+    public void setEcho(double frequency, double speed) {
+        _echoSpeed = speed;
+        _echoFrequency = frequency;
+    }
+
+    private void draw(Canvas canvas, Frame frame) {
+        final int w = canvas.getWidth();
+        final int h = canvas.getHeight();
+        if (w != _width || h != _height) {
+            resize(w, h);
+        }
+        final float strokeWidth = _paintBars.getStrokeWidth();
+        final float textSize = _paintText.getTextSize();
+
+        // Fill the canvas with specified ARGB color.
+        canvas.drawARGB(255, 0x04, 0x09, 0x47);
+        if (_isWaterfallShown) {
+            drawWaterfall(canvas, w, h);
+        } else {
+            drawBars(canvas, frame, h, textSize);
+        }
+        final int carriers = _carriers;
+        if (carriers > 0) {
+            final double fusedSpeed = _fusedSpeed;
+            int n = DecimalText.append(_text, 0, 100 * fusedSpeed, 1);
+            n = DecimalText.append(_text, n, " cm/s (");
+            n = DecimalText.append(_text, n, Double.isNaN(fusedSpeed) ? 0 : _detectedCarriers);
+            n = DecimalText.append(_text, n, "/");
+            n = DecimalText.append(_text, n, carriers);
+            n = DecimalText.append(_text, n, " carriers)");
+            canvas.drawText(_text, 0, n, strokeWidth, textSize, _paintText);
+        }
+        final double echoRange = _echoRange;
+        if (!Double.isNaN(echoRange)) {
+            int n = DecimalText.append(_text, 0, "Echo at ");
+            n = DecimalText.append(_text, n, echoRange, 2);
+            n = DecimalText.append(_text, n, " m");
+            canvas.drawText(_text, 0, n, strokeWidth, textSize, _paintText);
+        }
+        final double echoFrequency = _echoFrequency;
+        if (!Double.isNaN(echoFrequency)) {
+            int n = DecimalText.append(_text, 0, "Echo ");
+            n = DecimalText.append(_text, n, echoFrequency, 2);
+            n = DecimalText.append(_text, n, "Hz (");
+            n = DecimalText.append(_text, n, 100 * _echoSpeed, 1);
+            n = DecimalText.append(_text, n, " cm/s)");
+            canvas.drawText(_text, 0, n, strokeWidth, textSize, _paintText);
+        }
+        final PipelineStats stats = _stats;
+        if (_isStatsOverlay && stats != null) {
+            final long now = System.nanoTime();
+            if (_statsLines == null || now - _statsNanos >= STATS_REFRESH_NANOS) {
+                // the summary allocates, so it is rebuilt twice a second rather than every frame
+                _statsLines = stats.summary().split("\n");
+                _statsNanos = now;
+            }
+            final float lineHeight = _paintStats.getTextSize();
+            float y = 2 * textSize;
+            for (String line : _statsLines) {
+                canvas.drawText(line, strokeWidth, y, _paintStats);
+                y += lineHeight;
+            }
+        } else {
+            _statsLines = null;
+        }
+    }
+
+    /**
+     * Bars of the detected bins stand out in their own colour; the detector has already told
+     * them from the noise, the bars are not compared against any threshold here.
+     */
+    private void drawBars(Canvas canvas, Frame frame, int h, float textSize) {
+        final double[] data = frame.data;
+        final int centralHarmonic = _centralHarmonic;
+        final int startHarmonic = centralHarmonic - _nHarmonics / 2;
+        final int nBins = data.length / 2;
+        final int nBars = _barX.length;
+        // one pass for the powers and their maximum, the bars are scaled afterwards
+        int central = -1;
+        double max = 0;
+        for (int bar = 0, i = startHarmonic; bar < nBars; bar++, i++) {
+            final float m = i < 0 || i >= nBins ? 0 : (float) PeakFinder.power(data, i);
+            _amplitudes[bar] = m;
+            if (i == centralHarmonic) {
+                central = bar;
+            } else if (m > max) {
+                max = m;
+            }
+        }
+        final double centralHarmonicMagnitude = central >= 0 ? _amplitudes[central] : 0;
+
+        float scale = 0;
+        if (max > 0) {
+            scale = (float) ((h - textSize) / Math.max(max, centralHarmonicMagnitude / 100));
+        }
+
+        for (int d = 0; d < frame.nDetections; d++) {
+            final int bar = frame.detections[d] - startHarmonic;
+            if (bar >= 0 && bar < nBars) {
+                _isDetected[bar] = true;
+            }
+        }
+        int nLines = 0, nDetectedLines = 0;
+        for (int bar = 0; bar < nBars; bar++) {
+            final float ampl = scale * _amplitudes[bar];
+            _amplitudes[bar] = ampl;
+            if (bar == central || ampl < 1) {
+                continue;
+            }
+            final float[] lines = _isDetected[bar] ? _detectedLines : _lines;
+            int n = _isDetected[bar] ? nDetectedLines : nLines;
+            final float x = _barX[bar];
+            lines[n++] = x;
+            lines[n++] = h;
+            lines[n++] = x;
+            lines[n++] = h - ampl;
+            if (_isDetected[bar]) {
+                nDetectedLines = n;
+            } else {
+                nLines = n;
+            }
+        }
+        if (nLines > 0) {
+            canvas.drawLines(_lines, 0, nLines, _paintBars);
+        }
+        if (nDetectedLines > 0) {
+            canvas.drawLines(_detectedLines, 0, nDetectedLines, _paintDetected);
+        }
+        for (int d = 0; d < frame.nDetections; d++) {
+            final int bar = frame.detections[d] - startHarmonic;
+            if (bar >= 0 && bar < nBars) {
+                _isDetected[bar] = false;
+            }
+        }
+        if (central >= 0) {
+            canvas.drawLine(_barX[central], h, _barX[central], 0, _paintCentral);
+        }
+        if (_hasTracks) {
+            drawTrackLabels(canvas, startHarmonic, h);
+            return;
+        }
+        for (int d = 0; d < frame.nDetections; d++) {
+            final int i = frame.detections[d];
+            final int bar = i - startHarmonic;
+            if (bar < 0 || bar >= nBars) {
+                continue;
+            }
+            int n = DecimalText.append(_text, 0, _layout.frequency(i), 2);
+            n = DecimalText.append(_text, n, "Hz (");
+            n = DecimalText.append(_text, n, 100 * speed(i), 1);
+            n = DecimalText.append(_text, n, " cm/s)");
+            canvas.drawText(_text, 0, n, _barX[bar], h - Math.max(_amplitudes[bar], h * 0.1f), _paintText);
+        }
+    }
+
+    /**
+     * Labels the confirmed tracks at their bars, so a label keeps its place and its id while the
+     * echo lasts instead of jumping between the bars of its main lobe.
+     */
+    private void drawTrackLabels(Canvas canvas, int startHarmonic, int h) {
+        final int nTracks;
+        synchronized (_tracksLock) {
+            nTracks = _nTracks;
+            System.arraycopy(_trackIds, 0, _drawTrackIds, 0, nTracks);
+            System.arraycopy(_trackFrequencies, 0, _drawTrackFrequencies, 0, nTracks);
+            System.arraycopy(_trackSpeeds, 0, _drawTrackSpeeds, 0, nTracks);
+        }
+        for (int t = 0; t < nTracks; t++) {
+            final int bar = (int) Math.round((_drawTrackFrequencies[t] - _layout.getFirstBinHz())
+                    / _layout.getBinHz()) - startHarmonic;
+            if (bar < 0 || bar >= _barX.length) {
+                continue;
+            }
+            int n = DecimalText.append(_text, 0, "#");
+            n = DecimalText.append(_text, n, _drawTrackIds[t]);
+            n = DecimalText.append(_text, n, " ");
+            n = DecimalText.append(_text, n, _drawTrackFrequencies[t], 2);
+            n = DecimalText.append(_text, n, "Hz (");
+            n = DecimalText.append(_text, n, 100 * _drawTrackSpeeds[t], 1);
+            n = DecimalText.append(_text, n, " cm/s)");
+            canvas.drawText(_text, 0, n, _barX[bar], h - Math.max(_amplitudes[bar], h * 0.1f), _paintText);
+        }
+    }
+
+    /**
+     * Blits the waterfall ring in two parts, from the oldest column to the end of the bitmap and
+     * then from its start, so nothing is redrawn as the history scrolls.
+     */
+    private void drawWaterfall(Canvas canvas, int w, int h) {
+        final int nColumns = _waterfall.getColumns();
+        final int nRows = _waterfall.getRows();
+        final int oldest = _waterfall.getOldestColumn();
+        final int split = (int) ((long) w * (nColumns - oldest) / nColumns);
+        _waterfallSrc.set(oldest, 0, nColumns, nRows);
+        _waterfallDst.set(0, 0, split, h);
+        canvas.drawBitmap(_waterfallBitmap, _waterfallSrc, _waterfallDst, null);
+        if (oldest > 0) {
+            _waterfallSrc.set(0, 0, oldest, nRows);
+            _waterfallDst.set(split, 0, w, h);
+            canvas.drawBitmap(_waterfallBitmap, _waterfallSrc, _waterfallDst, null);
+        }
+    }
+
+    /**
+     * Colours the next waterfall column and copies just that column into the bitmap.
+     */
+    private void addColumn(double[] data) {
+        final Waterfall waterfall = _waterfall;
+        if (waterfall == null) {
+            return; // not sized yet
+        }
+        final int x = waterfall.add(data, _centralHarmonic);
+        _waterfallBitmap.setPixels(waterfall.getColumn(), 0, 1, x, 0, 1, waterfall.getRows());
+    }
+
+    private void clearWaterfall() {
+        if (_waterfall != null) {
+            _waterfall.clear();
+            _waterfallBitmap.eraseColor(_waterfall.getFloorColor());
+        }
+    }
+
+    /**
+     * Sizes the paints and lays out the bars for a new canvas size.
+     */
+    private void resize(int w, int h) {
+        _width = w;
+        _height = h;
+        final float strokeWidth = w / 200f;
+        final float textSize = h / 20f;
+        _paintBars.setStrokeWidth(strokeWidth);
+        _paintDetected.setStrokeWidth(strokeWidth);
+        _paintText.setTextSize(textSize);
+        _paintStats.setTextSize(textSize / 2);
+
+        final float step = 1.2f * strokeWidth;
+        _nHarmonics = (int) ((w - strokeWidth * 2) / step);
+        int nBars = 0;
+        for (float x = step + strokeWidth; x < w - strokeWidth; x += step) {
+            nBars++;
+        }
+        _barX = new float[nBars];
+        float x = step + strokeWidth;
+        for (int bar = 0; bar < nBars; bar++, x += step) {
+            _barX[bar] = x;
+        }
+        _amplitudes = new float[nBars];
+        _isDetected = new boolean[nBars];
+        _lines = new float[4 * nBars];
+
+        // one row per bar so the waterfall shows the same bins
+        if (_waterfallBitmap != null) {
+            _waterfallBitmap.recycle();
+        }
+        _waterfall = new Waterfall(Math.max(1, nBars), Math.max(1, w / WATERFALL_COLUMN_WIDTH),
+                WATERFALL_RANGE_DB);
+        _waterfallBitmap = Bitmap.createBitmap(_waterfall.getColumns(), _waterfall.getRows(),
+                Bitmap.Config.ARGB_8888);
+        _waterfallBitmap.eraseColor(_waterfall.getFloorColor());
+    }
+
+    private double speed(int harmonic) {
+        return _velocity.speed(_layout.frequency(_centralHarmonic), _layout.frequency(harmonic));
+    }
+
+    /**
+     * Called from the processing thread inside the IOnSpectreReady callback.
+     *
+     * @param detections the detections in data, copied with it; null for none
+     */
+    public void enqueue(double[] data, CfarDetector.Detections detections) {
+        final PipelineStats stats = _stats;
+        Objects.requireNonNull(_thread).enqueue(data, detections,
+                stats != null ? stats.getFrameCaptureNanos() : 0);
+    }
+
+    public MySurfaceView(Context context) {
+        super(context);
+        init();
+    }
+
+    public MySurfaceView(Context context, AttributeSet attributeSet) {
+        super(context, attributeSet);
+        init();
+    }
+
+    public MySurfaceView(Context context, AttributeSet attributeSet, int defStyleAttr) {
+        super(context, attributeSet, defStyleAttr);
+        init();
+    }
+
+    private void init() {
+        _paintBars.setColor(Color.YELLOW);
+        _paintBars.setAntiAlias(true);
+        _paintDetected.setColor(Color.RED);
+        _paintDetected.setAntiAlias(true);
+        _paintText.setColor(Color.GREEN);
+        _paintText.setAntiAlias(true);
+        _paintCentral.setColor(Color.WHITE);
+        _paintCentral.setStrokeWidth(2);
+        _paintCentral.setAntiAlias(true);
+        _paintStats.setColor(Color.GREEN);
+        _paintStats.setAntiAlias(true);
+        setZOrderOnTop(true);
+        getHolder().addCallback(this);
+    }
+
+    @Override
+    public void surfaceChanged(@NonNull SurfaceHolder holder, int format, int width, int height) {
+    }
+
+    @Override
+    public void surfaceCreated(@NonNull SurfaceHolder holder) {
+        final Typeface tf = Typeface.createFromAsset(getContext().getAssets(), "fonts/liberation_mono_regular.ttf");
+        _paintText.setTypeface(tf);
+        _paintStats.setTypeface(tf);
+        _width = -1;
+        _thread = new DrawThread(holder);
+        _thread.start();
+    }
+
+    @Override
+    public void surfaceDestroyed(@NonNull SurfaceHolder holder) {
+        try {
+            _thread.quit();
+        } catch (InterruptedException e) {
+            Log.d(TAG, "Interrupted");
+        } finally {
+            _thread = null;
+        }
+    }
+}
@@ -1,17 +1,29 @@
-package agalilov.doppler;
+package agalilov.doppler.app;
 
 import android.annotation.SuppressLint;
 import android.media.AudioAttributes;
 import android.media.AudioFormat;
 import android.media.AudioTrack;
 
+import agalilov.doppler.AudioParameters;
+import agalilov.doppler.ToneGenerator;
+
 class PlayAudioThread extends Thread {
-    private final AudioParameters _params;
+    private final AudioDeviceParameters _params;
     private final int _harmonic;
+    private final ToneGenerator _generator;
+
+    /**
+     * Emits every carrier of the parameters, sharing the full scale.
+     */
+    public PlayAudioThread(AudioDeviceParameters params) {
+        this(params, carriers(params.getAudio()));
+    }
 
-    public PlayAudioThread(AudioParameters params) {
+    public PlayAudioThread(AudioDeviceParameters params, ToneGenerator generator) {
         _params = params;
-        _harmonic = (int) Math.round((double) (_params.getNFftChunkSamples() * _params.getPlayFreq()) / _params.getSampleRate());
+        _harmonic = params.getAudio().getHarmonic();
+        _generator = generator;
     }
 
     @Override
@@ -22,7 +34,7 @@ class PlayAudioThread extends Thread {
                         .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
                         .build())
                 .setAudioFormat(new AudioFormat.Builder()
-                        .setSampleRate(_params.getSampleRate())
+                        .setSampleRate(_params.getAudio().getSampleRate())
                         .setChannelMask(_params.getChannelPlayConfig())
                         .setEncoding(_params.getEncoding())
                         .build()
@@ -31,16 +43,9 @@ class PlayAudioThread extends Thread {
                 .build();
         try {
             track.play();
-            final int amplitude = 32767;
-            final short[] samples = new short[_params.getPlayBufferSize()];
-            final int fftChuckLength = _params.getNFftChunkSamples();
-            final double delta = 2 * Math.PI * _harmonic / fftChuckLength;
-            double phase = 0.0;
+            final short[] samples = new short[_params.getPlayBufferSamples()];
             while (!interrupted()) {
-                for (int i = 0; i < samples.length; i++) {
-                    samples[i] = (short) (amplitude * Math.sin(phase));
-                    phase += delta;
-                }
+                _generator.fill(samples, 0, samples.length);
                 track.write(samples, 0, samples.length);
             }
         } finally {
@@ -49,6 +54,14 @@ class PlayAudioThread extends Thread {
         }
     }
 
+    private static ToneGenerator carriers(AudioParameters audio) {
+        final ToneGenerator.Builder builder = new ToneGenerator.Builder(audio.getSampleRate());
+        for (int i = 0; i < audio.getCarrierCount(); i++) {
+            builder.addTone(audio.getCarrierFreq(i), 1.0 / audio.getCarrierCount());
+        }
+        return builder.build();
+    }
+
     public int getHarmonic() {
         return _harmonic;
     }
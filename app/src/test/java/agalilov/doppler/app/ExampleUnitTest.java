@@ -1,4 +1,4 @@
-package agalilov.doppler;
+package agalilov.doppler.app;
 
 import org.junit.Test;
 
@@ -0,0 +1,52 @@
+// JMH benchmarks of the FFT engines and the per-frame pipeline on the desktop JVM.
+// Run with: ./gradlew :benchmark:jmh   (needs cmake and a C++ compiler for the KISS libraries)
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    // the benchmarks share the agalilov.doppler package to reach its package-private classes
+    implementation(project(":doppler-core"))
+}
+
+val nativeBuildDir = layout.buildDirectory.dir("native")
+
+val configureHostNative by tasks.registering(Exec::class) {
+    inputs.file("native/CMakeLists.txt")
+    outputs.file(nativeBuildDir.map { it.file("CMakeCache.txt") })
+    commandLine("cmake", "-S", file("native").absolutePath, "-B", nativeBuildDir.get().asFile.absolutePath,
+        "-DCMAKE_BUILD_TYPE=Release")
+}
+
+val buildHostNative by tasks.registering(Exec::class) {
+    dependsOn(configureHostNative)
+    inputs.dir("../app/src/main/cpp")
+    inputs.dir("native")
+    outputs.dir(nativeBuildDir)
+    commandLine("cmake", "--build", nativeBuildDir.get().asFile.absolutePath, "--parallel")
+}
+
+jmh {
+    // thrpt for ops/s, sample for the p50/p90/p99/p99.9 latency percentiles
+    benchmarkMode.set(listOf("thrpt", "sample"))
+    timeUnit.set("us")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    // allocation rate per operation, the steady-state paths should stay at ~0 B/op
+    profilers.set(listOf("gc"))
+    resultFormat.set("JSON")
+    jvmArgs.set(listOf("-Djava.library.path=" + nativeBuildDir.get().asFile.absolutePath))
+    // e.g. ./gradlew :benchmark:jmh -Pjmh.includes=FrameBenchmark
+    (project.findProperty("jmh.includes") as String?)?.let { includes.set(listOf(it)) }
+}
+
+tasks.named("jmh") {
+    dependsOn(buildHostNative)
+}
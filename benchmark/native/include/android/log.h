@@ -0,0 +1,30 @@
+// Host stand-in for the NDK logging header, so the KISS JNI sources build for the desktop JVM.
+#pragma once
+
+#include <cstdarg>
+#include <cstdio>
+
+typedef enum android_LogPriority {
+    ANDROID_LOG_UNKNOWN = 0,
+    ANDROID_LOG_DEFAULT,
+    ANDROID_LOG_VERBOSE,
+    ANDROID_LOG_DEBUG,
+    ANDROID_LOG_INFO,
+    ANDROID_LOG_WARN,
+    ANDROID_LOG_ERROR,
+    ANDROID_LOG_FATAL,
+    ANDROID_LOG_SILENT
+} android_LogPriority;
+
+static inline int __android_log_write(int prio, const char *tag, const char *text) {
+    return std::fprintf(stderr, "%d/%s: %s\n", prio, tag, text);
+}
+
+static inline int __android_log_print(int prio, const char *tag, const char *fmt, ...) {
+    int n = std::fprintf(stderr, "%d/%s: ", prio, tag);
+    va_list args;
+    va_start(args, fmt);
+    n += std::vfprintf(stderr, fmt, args);
+    va_end(args);
+    return n + std::fprintf(stderr, "\n");
+}
@@ -0,0 +1,119 @@
+package agalilov.doppler;
+
+import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.transform.DftNormalization;
+import org.apache.commons.math3.transform.FastFourierTransformer;
+import org.apache.commons.math3.transform.TransformType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+
+import uk.me.berndporr.kiss_fft.KISSFastFourierTransformer;
+
+/**
+ * One transform of n points: the pure Java {@link FFT}, the KISS JNI entry points and
+ * commons-math3. The allocating KISS calls are the ones the app used originally, the
+ * {@code *Into} ones are what the pipeline uses now.
+ */
+@State(Scope.Thread)
+public class FftBenchmark {
+    @Param({"512", "1024", "2048", "4096", "8192", "16384", "32768", "65536"})
+    public int size;
+
+    private double[] _real;      // n real samples
+    private double[] _complex;   // n complex points, interleaved
+    private Complex[] _complexObjects;
+    private double[] _work, _spectre;
+    private FFT _fft;
+    private FFT.Real _fftReal;
+    private KISSFastFourierTransformer _kiss;
+    private FastFourierTransformer _commons;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Random random = new Random(1);
+        _real = new double[size];
+        _complex = new double[2 * size];
+        _complexObjects = new Complex[size];
+        for (int i = 0; i < size; i++) {
+            _real[i] = random.nextGaussian();
+            _complex[2 * i] = random.nextGaussian();
+            _complex[2 * i + 1] = random.nextGaussian();
+            _complexObjects[i] = new Complex(_complex[2 * i], _complex[2 * i + 1]);
+        }
+        _work = new double[2 * size + 2];
+        _spectre = new double[2 * size];
+        _fft = new FFT(size);
+        _fftReal = new FFT.Real(size);
+        _kiss = new KISSFastFourierTransformer();
+        _commons = new FastFourierTransformer(DftNormalization.STANDARD);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        _kiss.close();
+    }
+
+    @Benchmark
+    public double[] javaComplex() {
+        // in place, so the copy is part of the measurement (n doubles, small next to the FFT)
+        System.arraycopy(_complex, 0, _work, 0, 2 * size);
+        _fft.transform(_work, false);
+        return _work;
+    }
+
+    @Benchmark
+    public double[] javaReal() {
+        System.arraycopy(_real, 0, _work, 0, size);
+        _fftReal.forward(_work);
+        return _work;
+    }
+
+    /** dofft */
+    @Benchmark
+    public Complex[] kissComplex() {
+        return _kiss.transform(_complexObjects, TransformType.FORWARD);
+    }
+
+    /** dofftdouble: real input, full complex spectrum */
+    @Benchmark
+    public Complex[] kissComplexOfReal() {
+        return _kiss.transform(_real);
+    }
+
+    /** dofftr */
+    @Benchmark
+    public Complex[] kissReal() {
+        return _kiss.transformRealOptimisedForward(_real);
+    }
+
+    /** dofftinto */
+    @Benchmark
+    public double[] kissComplexInto() {
+        _kiss.transform(_complex, _spectre, TransformType.FORWARD);
+        return _spectre;
+    }
+
+    /** dofftrinto */
+    @Benchmark
+    public double[] kissRealInto() {
+        _kiss.transformRealOptimisedForward(_real, _spectre);
+        return _spectre;
+    }
+
+    @Benchmark
+    public Complex[] commonsComplex() {
+        return _commons.transform(_complexObjects, TransformType.FORWARD);
+    }
+
+    @Benchmark
+    public Complex[] commonsReal() {
+        return _commons.transform(_real, TransformType.FORWARD);
+    }
+}
@@ -0,0 +1,92 @@
+package agalilov.doppler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import uk.me.berndporr.kiss_fft.KISSFastFourierTransformer;
+
+/**
+ * Everything between a full {@link SampleHistory} and the bar heights: the per-frame work of
+ * ProcessingThread (FULL_FFT) followed by the magnitude pass of MySurfaceView.draw.
+ */
+@State(Scope.Thread)
+public class FrameBenchmark {
+    @Param({"2048", "8192", "32768"})
+    public int size;
+
+    // FftEngine.Kind by name, the generated JMH code lives in another package
+    @Param({"KISS_DOUBLE", "KISS_FLOAT", "KISS_INT16", "JAVA"})
+    public String engine;
+
+    @Param({"BLACKMAN_HARRIS"})
+    public KISSFastFourierTransformer.Window window;
+
+    private static final double KAISER_BETA = 9;
+    private SampleHistory _history;
+    private FftEngine _fft;
+    private double[] _timeData, _windowTable, _spectre;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        _history = new SampleHistory(size);
+        // a 20 kHz carrier and a weaker echo at 44.1 kHz, a quarter hop past the wrap
+        final short[] hop = new short[size + size / 4];
+        for (int i = 0; i < hop.length; i++) {
+            hop[i] = (short) (3000 * Math.sin(2 * Math.PI * 20000 * i / 44100.0)
+                    + 300 * Math.sin(2 * Math.PI * 20037 * i / 44100.0));
+        }
+        _history.append(hop, 0, hop.length);
+        _fft = FftEngine.create(FftEngine.Kind.valueOf(engine));
+        _timeData = new double[size];
+        _windowTable = new double[size];
+        _fft.getWindow(window, KAISER_BETA, _windowTable);
+        _spectre = new double[size + 2];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        _fft.close();
+    }
+
+    /**
+     * short to double and the window in Java, then the real transform.
+     */
+    @Benchmark
+    public double convertTransformMagnitude() {
+        _history.copyTo(_timeData);
+        for (int i = 0; i < size; i++) {
+            _timeData[i] *= _windowTable[i];
+        }
+        _fft.transformReal(_timeData, _spectre);
+        return maxMagnitude();
+    }
+
+    /**
+     * The ProcessingThread path: the engine unrolls, converts and windows the history itself.
+     */
+    @Benchmark
+    public double fusedTransformMagnitude() {
+        _fft.transformReal(_history.getSamples(), _history.getOldest(), window, KAISER_BETA, _spectre);
+        return maxMagnitude();
+    }
+
+    // same loop as MySurfaceView.draw, over every bin
+    private double maxMagnitude() {
+        double max = 0;
+        final int nBins = _spectre.length / 2;
+        for (int i = 0; i < nBins; i++) {
+            final double re = _spectre[2 * i];
+            final double im = _spectre[2 * i + 1];
+            final double m = re * re + im * im;
+            if (m > max) {
+                max = m;
+            }
+        }
+        return max;
+    }
+}
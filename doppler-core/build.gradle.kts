@@ -0,0 +1,17 @@
+// Android-free DSP: framing, windowing, FFT engines, spectrum layout and the Doppler math.
+// The app adds audio I/O and rendering on top; the KISS engines need the kiss-fft-lib
+// native libraries on java.library.path (see benchmark/native for a host build).
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    // Complex and TransformType are part of the KISSFastFourierTransformer API
+    api(libs.commons.math3)
+    testImplementation(libs.junit)
+}
@@ -0,0 +1,281 @@
+package agalilov.doppler;
+
+import uk.me.berndporr.kiss_fft.KISSFastFourierTransformer;
+
+/**
+ * How the processing thread turns a window of samples into a spectrum.
+ */
+public final class AnalysisParameters {
+    public enum SpectrumMode {
+        /** Full n/2+1 bin real FFT, bin spacing sampleRate / nFftChunkSamples. */
+        FULL_FFT,
+        /** Only a band around the carrier, bin spacing divided by the zoom factor. */
+        ZOOM,
+        /**
+         * Carrier mixed down to 0 Hz and decimated before a complex FFT of
+         * nFftChunkSamples / decimation points, same bin spacing as FULL_FFT.
+         */
+        BASEBAND,
+        /**
+         * A ZOOM band around every carrier, analysed in parallel; the spectrum is the band of
+         * the first carrier, the speeds of all of them are fused into one reading.
+         */
+        MULTI_CARRIER,
+        /**
+         * PlayAudioThread emits a periodic chirp, every frame is matched filtered against it into
+         * a range profile; the spectrum is the unwindowed FULL_FFT one the filter starts from.
+         */
+        RANGE
+    }
+
+    private final SpectrumMode _spectrumMode;
+    private final FftEngine.Kind _fftEngine;
+    private final KISSFastFourierTransformer.Window _window;
+    private final double _kaiserBeta;
+    private final int _zoomFactor, _zoomBins, _decimation, _tapsPerBranch;
+    private final DopplerVelocity _velocity;
+    private final int _chirpBandwidth;
+    private final PeakEstimator.Method _peakEstimator;
+    private final CfarDetector.Kind _cfarKind;
+    private final int _cfarTrainingCells;
+    private final double _cfarFalseAlarmRate;
+    private final SpectrumAverager.Kind _averaging;
+    private final double _averagingTimeConstant;
+
+    private AnalysisParameters(Builder builder) {
+        _spectrumMode = builder._spectrumMode;
+        _fftEngine = builder._fftEngine;
+        _window = builder._window;
+        _kaiserBeta = builder._kaiserBeta;
+        _zoomFactor = builder._zoomFactor;
+        _zoomBins = builder._zoomBins;
+        _decimation = builder._decimation;
+        _tapsPerBranch = builder._tapsPerBranch;
+        _velocity = new DopplerVelocity(builder._soundSpeed, builder._isReflectedSound);
+        _chirpBandwidth = builder._chirpBandwidth;
+        _peakEstimator = builder._peakEstimator;
+        _cfarKind = builder._cfarKind;
+        _cfarTrainingCells = builder._cfarTrainingCells;
+        _cfarFalseAlarmRate = builder._cfarFalseAlarmRate;
+        _averaging = builder._averaging;
+        _averagingTimeConstant = builder._averagingTimeConstant;
+    }
+
+    public SpectrumMode getSpectrumMode() {
+        return _spectrumMode;
+    }
+
+    public FftEngine.Kind getFftEngine() {
+        return _fftEngine;
+    }
+
+    public KISSFastFourierTransformer.Window getWindow() {
+        return _window;
+    }
+
+    public double getKaiserBeta() {
+        return _kaiserBeta;
+    }
+
+    public int getZoomFactor() {
+        return _zoomFactor;
+    }
+
+    public int getZoomBins() {
+        return _zoomBins;
+    }
+
+    public int getDecimation() {
+        return _decimation;
+    }
+
+    public int getTapsPerBranch() {
+        return _tapsPerBranch;
+    }
+
+    /**
+     * @return how echoes' shifts turn into speeds
+     */
+    public DopplerVelocity getVelocity() {
+        return _velocity;
+    }
+
+    public int getChirpBandwidth() {
+        return _chirpBandwidth;
+    }
+
+    public PeakEstimator.Method getPeakEstimator() {
+        return _peakEstimator;
+    }
+
+    public CfarDetector.Kind getCfarKind() {
+        return _cfarKind;
+    }
+
+    public int getCfarTrainingCells() {
+        return _cfarTrainingCells;
+    }
+
+    public double getCfarFalseAlarmRate() {
+        return _cfarFalseAlarmRate;
+    }
+
+    public SpectrumAverager.Kind getAveraging() {
+        return _averaging;
+    }
+
+    /**
+     * @return seconds
+     */
+    public double getAveragingTimeConstant() {
+        return _averagingTimeConstant;
+    }
+
+    public static final class Builder {
+        private SpectrumMode _spectrumMode = SpectrumMode.FULL_FFT;
+        private FftEngine.Kind _fftEngine = FftEngine.Kind.KISS_DOUBLE;
+        // the carrier is far stronger than the echoes, Hann sidelobes would bury them
+        private KISSFastFourierTransformer.Window _window = KISSFastFourierTransformer.Window.BLACKMAN_HARRIS;
+        private double _kaiserBeta = 9;
+        private int _zoomFactor = 4;
+        private int _zoomBins = 256;
+        // 44100 / 32 = 1378 Hz of baseband, about +-5.9 m/s around a 20 kHz carrier
+        private int _decimation = 32;
+        private int _tapsPerBranch = 8;
+        private double _soundSpeed = 343;
+        private boolean _isReflectedSound = true;
+        // 343 / (2 * 4000) = 4.3 cm of range resolution
+        private int _chirpBandwidth = 4000;
+        private PeakEstimator.Method _peakEstimator = PeakEstimator.Method.JACOBSEN;
+        private CfarDetector.Kind _cfarKind = CfarDetector.Kind.CELL_AVERAGING;
+        private int _cfarTrainingCells = 16;
+        // a false echo every few minutes in the FULL_FFT search band of a 4096 point window
+        private double _cfarFalseAlarmRate = 1e-6;
+        private SpectrumAverager.Kind _averaging = SpectrumAverager.Kind.NONE;
+        private double _averagingTimeConstant = 0.1;
+
+        public Builder setSpectrumMode(SpectrumMode spectrumMode) {
+            _spectrumMode = spectrumMode;
+            return this;
+        }
+
+        /**
+         * @param fftEngine FLOAT and INT16 apply to the real transform of FULL_FFT only, the
+         *                  other modes run those engines in double
+         */
+        public Builder setFftEngine(FftEngine.Kind fftEngine) {
+            _fftEngine = fftEngine;
+            return this;
+        }
+
+        public Builder setWindow(KISSFastFourierTransformer.Window window) {
+            _window = window;
+            return this;
+        }
+
+        /**
+         * @param kaiserBeta shape of {@link KISSFastFourierTransformer.Window#KAISER}, larger is
+         *                   lower sidelobes and a wider main lobe
+         */
+        public Builder setKaiserBeta(double kaiserBeta) {
+            if (kaiserBeta < 0) {
+                throw new IllegalArgumentException("Kaiser beta must not be negative");
+            }
+            _kaiserBeta = kaiserBeta;
+            return this;
+        }
+
+        /**
+         * @param zoomFactor how many times finer than sampleRate / nFftChunkSamples the bins are
+         * @param zoomBins   number of bins computed around the carrier
+         */
+        public Builder setZoom(int zoomFactor, int zoomBins) {
+            if (zoomFactor < 1 || zoomBins < 1) {
+                throw new IllegalArgumentException("Zoom factor and bins must be positive");
+            }
+            _zoomFactor = zoomFactor;
+            _zoomBins = zoomBins;
+            return this;
+        }
+
+        /**
+         * @param decimation    sample rate reduction of the BASEBAND front end
+         * @param tapsPerBranch anti-alias filter length per polyphase branch
+         */
+        public Builder setDecimation(int decimation, int tapsPerBranch) {
+            if (decimation < 1 || tapsPerBranch < 1) {
+                throw new IllegalArgumentException("Decimation and taps must be positive");
+            }
+            _decimation = decimation;
+            _tapsPerBranch = tapsPerBranch;
+            return this;
+        }
+
+        /**
+         * Same meaning as in {@link DopplerVelocity}.
+         */
+        public Builder setSoundSpeed(double soundSpeed, boolean isReflectedSound) {
+            if (soundSpeed <= 0) {
+                throw new IllegalArgumentException("Sound speed must be positive");
+            }
+            _soundSpeed = soundSpeed;
+            _isReflectedSound = isReflectedSound;
+            return this;
+        }
+
+        /**
+         * @param chirpBandwidth RANGE: the chirp sweeps from the carrier minus this many Hz up to
+         *                       the carrier, once per FFT window
+         */
+        public Builder setChirpBandwidth(int chirpBandwidth) {
+            if (chirpBandwidth <= 0) {
+                throw new IllegalArgumentException("Chirp bandwidth must be positive");
+            }
+            _chirpBandwidth = chirpBandwidth;
+            return this;
+        }
+
+        /**
+         * @param peakEstimator how the frequency of an echo is refined between bins
+         */
+        public Builder setPeakEstimator(PeakEstimator.Method peakEstimator) {
+            _peakEstimator = peakEstimator;
+            return this;
+        }
+
+        /**
+         * @param kind           how the noise floor is estimated from the training cells
+         * @param trainingCells  bins on either side of a bin its noise floor is estimated from
+         * @param falseAlarmRate probability of a noise bin being detected
+         */
+        public Builder setCfar(CfarDetector.Kind kind, int trainingCells, double falseAlarmRate) {
+            if (trainingCells < 1) {
+                throw new IllegalArgumentException("Training cells must be positive");
+            }
+            if (!(falseAlarmRate > 0 && falseAlarmRate < 1)) {
+                throw new IllegalArgumentException("False alarm rate must be within (0, 1)");
+            }
+            _cfarKind = kind;
+            _cfarTrainingCells = trainingCells;
+            _cfarFalseAlarmRate = falseAlarmRate;
+            return this;
+        }
+
+        /**
+         * @param averaging    how the power spectra of consecutive frames are averaged
+         * @param timeConstant seconds the average takes to follow a change, about
+         */
+        public Builder setAveraging(SpectrumAverager.Kind averaging, double timeConstant) {
+            if (!(timeConstant > 0)) {
+                throw new IllegalArgumentException("Time constant must be positive");
+            }
+            _averaging = averaging;
+            _averagingTimeConstant = timeConstant;
+            return this;
+        }
+
+        public AnalysisParameters build() {
+            return new AnalysisParameters(this);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package agalilov.doppler;
+
+/**
+ * Sample rate, FFT framing and carriers of a mono 16-bit PCM stream. The device side
+ * (encoding, channel masks, buffer sizes) is in the app's AudioDeviceParameters.
+ */
+public final class AudioParameters {
+    private final int _nFftChunkSamples, _hopSamples, _playFreq, _sampleRate;
+    private final int _nCarriers, _carrierSpacing;
+
+    public AudioParameters(int sampleRate, int nFftChunkSamples, int playFreq) {
+        this(sampleRate, nFftChunkSamples, nFftChunkSamples, playFreq);
+    }
+
+    /**
+     * @param hopSamples samples between the starts of consecutive FFT windows, e.g.
+     *                   nFftChunkSamples / 4 for 75% overlap
+     */
+    public AudioParameters(int sampleRate, int nFftChunkSamples, int hopSamples, int playFreq) {
+        this(sampleRate, nFftChunkSamples, hopSamples, playFreq, 1, 0);
+    }
+
+    /**
+     * Several carriers: carrier i is at playFreq - i * carrierSpacing, each rounded to an FFT bin.
+     */
+    public AudioParameters(int sampleRate, int nFftChunkSamples, int hopSamples, int playFreq,
+                           int nCarriers, int carrierSpacing) {
+        if (hopSamples < 1 || hopSamples > nFftChunkSamples) {
+            throw new IllegalArgumentException("Hop must be in 1.." + nFftChunkSamples);
+        }
+        if (nCarriers < 1 || (nCarriers > 1 && carrierSpacing <= 0)
+                || playFreq - (nCarriers - 1) * carrierSpacing <= 0 || 2 * playFreq >= sampleRate) {
+            throw new IllegalArgumentException("Carriers must be between 0 and the Nyquist frequency");
+        }
+        _sampleRate = sampleRate;
+        _nFftChunkSamples = nFftChunkSamples;
+        _hopSamples = hopSamples;
+        _playFreq = playFreq;
+        _nCarriers = nCarriers;
+        _carrierSpacing = carrierSpacing;
+    }
+
+    public int getNFftChunkSamples() {
+        return _nFftChunkSamples;
+    }
+
+    public int getHopSamples() {
+        return _hopSamples;
+    }
+
+    public int getPlayFreq() {
+        return _playFreq;
+    }
+
+    public int getSampleRate() {
+        return _sampleRate;
+    }
+
+    public int getCarrierCount() {
+        return _nCarriers;
+    }
+
+    public int getCarrierSpacing() {
+        return _carrierSpacing;
+    }
+
+    public int getHarmonic() {
+        return getHarmonic(0);
+    }
+
+    public int getHarmonic(int carrier) {
+        final int freq = _playFreq - carrier * _carrierSpacing;
+        return (int) Math.round((double) _nFftChunkSamples * freq / _sampleRate);
+    }
+
+    /**
+     * @return the frequency PlayAudioThread actually emits: getPlayFreq() rounded to an FFT bin
+     */
+    public double getCarrierFreq() {
+        return getCarrierFreq(0);
+    }
+
+    public double getCarrierFreq(int carrier) {
+        return (double) getHarmonic(carrier) * _sampleRate / _nFftChunkSamples;
+    }
+}
@@ -0,0 +1,37 @@
+package agalilov.doppler;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Mono 16-bit PCM for {@link RecordAudioThread}: the live microphone, a recording or
+ * samples already in memory.
+ */
+public interface AudioSource extends AutoCloseable {
+    interface Sink {
+        /**
+         * Consumes the remaining samples of {@code samples}, advancing its position. The buffer
+         * belongs to the source and is only valid during the call.
+         */
+        void write(ShortBuffer samples) throws InterruptedException;
+    }
+
+    int getSampleRate();
+
+    /**
+     * @return true if samples arrive at the sample rate, like the microphone; false if they come
+     * as fast as they are consumed, then nothing may be dropped on the way
+     */
+    boolean isRealTime();
+
+    void start();
+
+    /**
+     * Waits for the next block of samples and hands it to {@code sink}.
+     *
+     * @return number of samples handed over, -1 once the source is exhausted
+     */
+    int read(Sink sink) throws InterruptedException;
+
+    @Override
+    void close();
+}
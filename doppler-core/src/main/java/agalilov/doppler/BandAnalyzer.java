@@ -0,0 +1,62 @@
+package agalilov.doppler;
+
+import uk.me.berndporr.kiss_fft.KISSFastFourierTransformer;
+
+/**
+ * Computes only the bins of a {@link SpectrumLayout} band instead of the full FFT, at any bin
+ * spacing. The output has the same interleaved re/im format and phase convention as
+ * {@link KISSFastFourierTransformer#transformRealOptimisedForward(double[], double[])}.
+ */
+abstract class BandAnalyzer {
+    protected final int _windowSize;
+    protected final int _nBins;
+
+    protected BandAnalyzer(int windowSize, int nBins) {
+        _windowSize = windowSize;
+        _nBins = nBins;
+    }
+
+    /**
+     * @param timeData {@code windowSize} real samples
+     * @param out      at least 2 * nBins doubles, interleaved re/im
+     */
+    abstract void analyze(double[] timeData, double[] out);
+
+    /**
+     * Picks the cheapest algorithm for the band: a Goertzel bank costs O(windowSize * nBins),
+     * the chirp-z transform O(L log L) with L >= windowSize + nBins - 1.
+     */
+    static BandAnalyzer create(SpectrumLayout layout, int windowSize, int sampleRate,
+                               FftEngine fft) {
+        final double w0 = 2 * Math.PI * layout.getFirstBinHz() / sampleRate;
+        final double dw = 2 * Math.PI * layout.getBinHz() / sampleRate;
+        final int nBins = layout.getNBins();
+        if (goertzelCost(windowSize, nBins) <= ChirpZTransform.cost(windowSize, nBins, fft)) {
+            return new GoertzelBank(windowSize, nBins, w0, dw);
+        }
+        return new ChirpZTransform(windowSize, nBins, w0, dw, fft);
+    }
+
+    /**
+     * @return per frame cost of the algorithm {@link #create} picks, in the units of
+     * {@link ChirpZTransform#cost(int, int, FftEngine)}
+     */
+    static double cost(SpectrumLayout layout, int windowSize, FftEngine fft) {
+        return Math.min(goertzelCost(windowSize, layout.getNBins()),
+                ChirpZTransform.cost(windowSize, layout.getNBins(), fft));
+    }
+
+    /**
+     * @return per frame cost of the FULL_FFT real transform of the window, for comparison
+     */
+    static double fullFftCost(int windowSize) {
+        // a complex FFT of half the size, the split into the real spectrum and the window
+        final int half = windowSize / 2;
+        return 5.0 * half * (Math.log(half) / Math.log(2)) + 10.0 * half + windowSize;
+    }
+
+    private static double goertzelCost(int windowSize, int nBins) {
+        // one multiply and two adds per sample and bin
+        return 3.0 * windowSize * nBins;
+    }
+}
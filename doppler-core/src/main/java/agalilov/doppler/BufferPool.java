@@ -0,0 +1,58 @@
+package agalilov.doppler;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Fixed set of preallocated buffers handed over between two threads.
+ * <p>
+ * The acquiring thread owns a buffer from {@link #acquire()} until it passes it on; whoever holds
+ * it last gives it back with {@link #release(Object)}. Acquire and release must each be called from
+ * a single thread (they may be different ones), nothing is allocated after construction.
+ */
+final class BufferPool<T> {
+    private final SpscRing<T> _free;
+    private final AtomicLong _exhausted = new AtomicLong();
+
+    BufferPool(int count, Supplier<T> factory) {
+        _free = new SpscRing<>(count, SpscRing.OverflowPolicy.DROP_NEWEST);
+        for (int i = 0; i < count; i++) {
+            _free.offer(factory.get());
+        }
+    }
+
+    /**
+     * @return a free buffer or {@code null} if every buffer is in use; the latter is counted
+     */
+    T acquire() {
+        final T buffer = _free.poll();
+        if (buffer == null) {
+            _exhausted.incrementAndGet();
+        }
+        return buffer;
+    }
+
+    /**
+     * Like {@link #acquire()}, but waits for a buffer to be released instead of failing.
+     */
+    T take() throws InterruptedException {
+        return _free.take();
+    }
+
+    void release(T buffer) {
+        if (_free.offer(buffer) != null) {
+            throw new IllegalStateException("Buffer released twice or does not belong to the pool");
+        }
+    }
+
+    int available() {
+        return _free.size();
+    }
+
+    /**
+     * @return how many times {@link #acquire()} found the pool empty
+     */
+    long getExhaustedCount() {
+        return _exhausted.get();
+    }
+}
@@ -0,0 +1,335 @@
+package agalilov.doppler;
+
+/**
+ * Constant false alarm rate detection of echoes in a spectrum: a bin is detected when its power
+ * exceeds its local noise floor, estimated from the training cells on either side of it, by a
+ * factor set for the false alarm rate. The floor follows the noise and the carrier level, unlike
+ * a fraction of the frame maximum.
+ * <p>
+ * The bins of the carrier's main lobe are neither detected nor used for training. Guard cells
+ * between a bin and its training cells keep an echo's own main lobe out of its floor. Cells
+ * missing at the ends of the band or next to the carrier shrink the training set, and the factor
+ * is taken for the cells that remain.
+ */
+public final class CfarDetector {
+    public enum Kind {
+        /** Mean of the training cells, kept as running sums: O(1) per bin. */
+        CELL_AVERAGING,
+        /**
+         * Order statistic (the 3/4 quantile) of the training cells, robust to a second echo among
+         * them; the cells are kept sorted, a binary search and a short array move per bin.
+         */
+        ORDERED_STATISTIC
+    }
+
+    public static final int MAX_DETECTIONS = 32;
+
+    /**
+     * One frame's detections, overwritten by the next frame; adjacent detected bins are merged
+     * into their strongest bin.
+     */
+    public static final class Detections {
+        private final int[] _bins = new int[MAX_DETECTIONS];
+        private final double[] _snrs = new double[MAX_DETECTIONS];
+        private int _count = 0;
+
+        public int getCount() {
+            return _count;
+        }
+
+        /**
+         * @param i 0 .. {@link #getCount()} - 1, in order of frequency
+         */
+        public int getBin(int i) {
+            return _bins[i];
+        }
+
+        /**
+         * @return power of the detection over its noise floor
+         */
+        public double getSnr(int i) {
+            return _snrs[i];
+        }
+
+        /**
+         * @return index of the detection with the highest SNR, -1 if there is none
+         */
+        public int strongest() {
+            int strongest = -1;
+            for (int i = 0; i < _count; i++) {
+                if (strongest < 0 || _snrs[i] > _snrs[strongest]) {
+                    strongest = i;
+                }
+            }
+            return strongest;
+        }
+
+        private void add(int bin, double snr) {
+            if (_count < MAX_DETECTIONS) {
+                _bins[_count] = bin;
+                _snrs[_count++] = snr;
+                return;
+            }
+            // full: the weakest detection makes room for a stronger one, the order is kept
+            int weakest = 0;
+            for (int i = 1; i < _count; i++) {
+                if (_snrs[i] < _snrs[weakest]) {
+                    weakest = i;
+                }
+            }
+            if (snr > _snrs[weakest]) {
+                System.arraycopy(_bins, weakest + 1, _bins, weakest, _count - weakest - 1);
+                System.arraycopy(_snrs, weakest + 1, _snrs, weakest, _count - weakest - 1);
+                _bins[_count - 1] = bin;
+                _snrs[_count - 1] = snr;
+            }
+        }
+    }
+
+    private final Kind _kind;
+    private final int _trainingCells, _guardCells;
+    private final int _from, _to; // bins searched
+    private final int _centralBin, _lobeBins;
+    private final double[] _factors; // threshold over the floor, per number of training cells
+    private final double[] _sorted; // ORDERED_STATISTIC only
+    private final Detections _detections = new Detections();
+
+    /**
+     * @param searchBins farthest bin from the carrier searched
+     */
+    CfarDetector(AudioParameters audio, AnalysisParameters analysis, SpectrumLayout layout, int searchBins) {
+        _kind = analysis.getCfarKind();
+        _trainingCells = analysis.getCfarTrainingCells();
+        // an echo's main lobe, in layout bins
+        final double fftBinHz = (double) audio.getSampleRate() / audio.getNFftChunkSamples();
+        _guardCells = (int) Math.ceil(WindowTable.mainLobeHalfWidth(analysis.getWindow(),
+                analysis.getKaiserBeta()) * fftBinHz / layout.getBinHz());
+        _centralBin = layout.getCentralBin();
+        _lobeBins = layout.carrierLobeBins(audio, analysis);
+        _from = Math.max(0, _centralBin - searchBins);
+        _to = Math.min(layout.getNBins(), _centralBin + searchBins + 1);
+        _factors = new double[2 * _trainingCells + 1];
+        for (int n = 1; n < _factors.length; n++) {
+            _factors[n] = _kind == Kind.CELL_AVERAGING
+                    ? cellAveragingFactor(n, analysis.getCfarFalseAlarmRate())
+                    : orderedStatisticFactor(n, analysis.getCfarFalseAlarmRate());
+        }
+        _sorted = _kind == Kind.ORDERED_STATISTIC ? new double[2 * _trainingCells] : null;
+    }
+
+    /**
+     * Threshold over the mean of n exponentially distributed (square law) noise powers.
+     */
+    static double cellAveragingFactor(int n, double falseAlarmRate) {
+        return n * (Math.pow(falseAlarmRate, -1.0 / n) - 1);
+    }
+
+    /**
+     * Threshold over the k-th smallest of n noise powers, found by bisection of
+     * Pfa = prod_{i<k} (n - i) / (n - i + factor).
+     */
+    static double orderedStatisticFactor(int n, double falseAlarmRate) {
+        final int k = orderIndex(n) + 1;
+        double low = 0, high = 1;
+        while (falseAlarmRate(n, k, high) > falseAlarmRate) {
+            high *= 2;
+        }
+        for (int i = 0; i < 100; i++) {
+            final double middle = (low + high) / 2;
+            if (falseAlarmRate(n, k, middle) > falseAlarmRate) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        return high;
+    }
+
+    private static double falseAlarmRate(int n, int k, double factor) {
+        double p = 1;
+        for (int i = 0; i < k; i++) {
+            p *= (n - i) / (n - i + factor);
+        }
+        return p;
+    }
+
+    /**
+     * @return index of the order statistic among n sorted cells
+     */
+    private static int orderIndex(int n) {
+        return Math.max(0, (3 * n + 3) / 4 - 1);
+    }
+
+    private boolean isTraining(int bin) {
+        return bin >= _from && bin < _to && Math.abs(bin - _centralBin) >= _lobeBins;
+    }
+
+    /**
+     * Detects over the whole search band.
+     *
+     * @param data interleaved re/im spectrum
+     */
+    Detections detect(double[] data) {
+        clear();
+        detect(data, _from, _to);
+        return _detections;
+    }
+
+    /**
+     * Starts a frame detected range by range with {@link #detect(double[], int, int)}.
+     */
+    void clear() {
+        _detections._count = 0;
+    }
+
+    /**
+     * Adds the detections among bins from .. to - 1 to the frame's; their training cells reach
+     * out of the range, as far as the search band. The ranges of a frame have to be disjoint and
+     * come in increasing order.
+     *
+     * @return bins read, tested and training
+     */
+    int detect(double[] data, int from, int to) {
+        from = Math.max(from, _from);
+        to = Math.min(to, _to);
+        if (from >= to) {
+            return 0;
+        }
+        // training cells [i - guard - training, i - guard) and (i + guard, i + guard + training]
+        double lagging = 0, leading = 0;
+        int nLagging = 0, nLeading = 0, nSorted = 0, nRead = to - from;
+        for (int j = from - _guardCells - _trainingCells; j < from - _guardCells; j++) {
+            if (isTraining(j)) {
+                final double power = PeakFinder.power(data, j);
+                lagging += power;
+                nLagging++;
+                nRead++;
+                if (_sorted != null) {
+                    nSorted = insert(nSorted, power);
+                }
+            }
+        }
+        for (int j = from + _guardCells + 1; j <= from + _guardCells + _trainingCells; j++) {
+            if (isTraining(j)) {
+                final double power = PeakFinder.power(data, j);
+                leading += power;
+                nLeading++;
+                nRead++;
+                if (_sorted != null) {
+                    nSorted = insert(nSorted, power);
+                }
+            }
+        }
+        int clusterBin = -1;
+        double clusterPower = 0, clusterSnr = 0;
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                // the window slides by one bin: one cell leaves and one enters on either side,
+                // leaving first so that the sorted cells never outgrow their array
+                final int enteringLagging = i - _guardCells - 1;
+                final int leavingLagging = i - _guardCells - _trainingCells - 1;
+                final int leavingLeading = i + _guardCells;
+                final int enteringLeading = i + _guardCells + _trainingCells;
+                if (isTraining(leavingLeading)) {
+                    final double power = PeakFinder.power(data, leavingLeading);
+                    leading -= power;
+                    nLeading--;
+                    if (_sorted != null) {
+                        nSorted = remove(nSorted, power);
+                    }
+                }
+                if (isTraining(leavingLagging)) {
+                    final double power = PeakFinder.power(data, leavingLagging);
+                    lagging -= power;
+                    nLagging--;
+                    if (_sorted != null) {
+                        nSorted = remove(nSorted, power);
+                    }
+                }
+                if (isTraining(enteringLagging)) {
+                    final double power = PeakFinder.power(data, enteringLagging);
+                    lagging += power;
+                    nLagging++;
+                    if (enteringLagging < from) {
+                        nRead++; // tested bins are counted already
+                    }
+                    if (_sorted != null) {
+                        nSorted = insert(nSorted, power);
+                    }
+                }
+                if (isTraining(enteringLeading)) {
+                    final double power = PeakFinder.power(data, enteringLeading);
+                    leading += power;
+                    nLeading++;
+                    if (enteringLeading >= to) {
+                        nRead++;
+                    }
+                    if (_sorted != null) {
+                        nSorted = insert(nSorted, power);
+                    }
+                }
+            }
+            final int n = nLagging + nLeading;
+            boolean isDetected = false;
+            double snr = 0;
+            final double power = PeakFinder.power(data, i);
+            if (n > 0 && Math.abs(i - _centralBin) >= _lobeBins) {
+                final double floor = _sorted != null
+                        ? _sorted[orderIndex(n)]
+                        // the running sums drift by rounding, a floor cannot be negative
+                        : Math.max(0, lagging + leading) / n;
+                if (floor > 0) {
+                    snr = power / floor;
+                    isDetected = snr > _factors[n];
+                }
+            }
+            if (isDetected) {
+                if (clusterBin < 0 || power > clusterPower) {
+                    clusterBin = i;
+                    clusterPower = power;
+                    clusterSnr = snr;
+                }
+            } else if (clusterBin >= 0) {
+                _detections.add(clusterBin, clusterSnr);
+                clusterBin = -1;
+            }
+        }
+        if (clusterBin >= 0) {
+            _detections.add(clusterBin, clusterSnr);
+        }
+        return nRead;
+    }
+
+    /**
+     * @return the detections of the last frame
+     */
+    Detections getDetections() {
+        return _detections;
+    }
+
+    private int insert(int n, double power) {
+        final int position = lowerBound(n, power);
+        System.arraycopy(_sorted, position, _sorted, position + 1, n - position);
+        _sorted[position] = power;
+        return n + 1;
+    }
+
+    private int remove(int n, double power) {
+        final int position = lowerBound(n, power);
+        System.arraycopy(_sorted, position + 1, _sorted, position, n - position - 1);
+        return n - 1;
+    }
+
+    private int lowerBound(int n, double power) {
+        int low = 0, high = n;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (_sorted[middle] < power) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,89 @@
+package agalilov.doppler;
+
+/**
+ * Bluestein's chirp-z transform: nBins DTFT samples at w0 + k * dw computed as a fast convolution
+ * with a chirp, X[k] = e^{-j dw k^2/2} * sum_n (x[n] e^{-j (w0 n + dw n^2/2)}) e^{j dw (k-n)^2/2}.
+ * The chirp spectrum is computed once, each frame costs two complex FFTs of the padded length.
+ */
+final class ChirpZTransform extends BandAnalyzer {
+    private final FftEngine _fft;
+    private final int _fftSize;
+    private final double[] _preChirp;  // e^{-j (w0 n + dw n^2/2)}, n < windowSize
+    private final double[] _postChirp; // e^{-j dw k^2/2}, k < nBins
+    private final double[] _chirpSpectre;
+    private final double[] _work, _workSpectre;
+
+    ChirpZTransform(int windowSize, int nBins, double w0, double dw, FftEngine fft) {
+        super(windowSize, nBins);
+        _fft = fft;
+        _fftSize = fftSize(windowSize, nBins, fft);
+        _preChirp = new double[2 * windowSize];
+        for (int n = 0; n < windowSize; n++) {
+            final double phase = w0 * n + dw * halfSquare(n);
+            _preChirp[2 * n] = Math.cos(phase);
+            _preChirp[2 * n + 1] = -Math.sin(phase);
+        }
+        _postChirp = new double[2 * nBins];
+        for (int k = 0; k < nBins; k++) {
+            final double phase = dw * halfSquare(k);
+            _postChirp[2 * k] = Math.cos(phase);
+            _postChirp[2 * k + 1] = -Math.sin(phase);
+        }
+        // e^{j dw m^2/2} for m = -(windowSize-1)..(nBins-1), negative m wrapped to the end
+        _work = new double[2 * _fftSize];
+        _workSpectre = new double[2 * _fftSize];
+        _chirpSpectre = new double[2 * _fftSize];
+        for (int m = 0; m < nBins; m++) {
+            _work[2 * m] = Math.cos(dw * halfSquare(m));
+            _work[2 * m + 1] = Math.sin(dw * halfSquare(m));
+        }
+        for (int m = 1; m < windowSize; m++) {
+            final int j = _fftSize - m;
+            _work[2 * j] = Math.cos(dw * halfSquare(m));
+            _work[2 * j + 1] = Math.sin(dw * halfSquare(m));
+        }
+        _fft.transformComplex(_work, _chirpSpectre, false);
+    }
+
+    @Override
+    void analyze(double[] timeData, double[] out) {
+        for (int n = 0; n < _windowSize; n++) {
+            _work[2 * n] = timeData[n] * _preChirp[2 * n];
+            _work[2 * n + 1] = timeData[n] * _preChirp[2 * n + 1];
+        }
+        for (int i = 2 * _windowSize; i < _work.length; i++) {
+            _work[i] = 0;
+        }
+        _fft.transformComplex(_work, _workSpectre, false);
+        for (int i = 0; i < _fftSize; i++) {
+            final double ar = _workSpectre[2 * i], ai = _workSpectre[2 * i + 1];
+            final double br = _chirpSpectre[2 * i], bi = _chirpSpectre[2 * i + 1];
+            _workSpectre[2 * i] = ar * br - ai * bi;
+            _workSpectre[2 * i + 1] = ar * bi + ai * br;
+        }
+        _fft.transformComplex(_workSpectre, _work, true);
+        for (int k = 0; k < _nBins; k++) {
+            final double yr = _work[2 * k], yi = _work[2 * k + 1];
+            final double cr = _postChirp[2 * k], ci = _postChirp[2 * k + 1];
+            out[2 * k] = yr * cr - yi * ci;
+            out[2 * k + 1] = yr * ci + yi * cr;
+        }
+    }
+
+    static double cost(int windowSize, int nBins, FftEngine fft) {
+        final int l = fftSize(windowSize, nBins, fft);
+        // two complex FFTs plus the pre-, point- and post-multiplications
+        return 2 * 5.0 * l * (Math.log(l) / Math.log(2)) + 6.0 * (windowSize + l + nBins);
+    }
+
+    /**
+     * Smallest size >= windowSize + nBins - 1 the engine transforms efficiently.
+     */
+    static int fftSize(int windowSize, int nBins, FftEngine fft) {
+        return fft.nextFastSize(windowSize + nBins - 1);
+    }
+
+    private static double halfSquare(int n) {
+        return 0.5 * n * (double) n;
+    }
+}
@@ -0,0 +1,46 @@
+package agalilov.doppler;
+
+/**
+ * Circular history of the last {@code size} complex samples, stored as interleaved re/im.
+ * The complex counterpart of {@link SampleHistory} for the baseband STFT.
+ */
+final class ComplexHistory {
+    private final double[] _samples;
+    private int _pos = 0;  // in doubles
+    private int _fill = 0; // in doubles
+
+    ComplexHistory(int size) {
+        _samples = new double[2 * size];
+    }
+
+    void append(double[] src, int count) {
+        int offset = 0;
+        int length = 2 * count;
+        while (length > 0) {
+            final int n = Math.min(length, _samples.length - _pos);
+            System.arraycopy(src, offset, _samples, _pos, n);
+            offset += n;
+            length -= n;
+            _pos = (_pos + n) % _samples.length;
+            _fill = Math.min(_samples.length, _fill + n);
+        }
+    }
+
+    void reset() {
+        _pos = 0;
+        _fill = 0;
+    }
+
+    boolean isFull() {
+        return _fill == _samples.length;
+    }
+
+    /**
+     * Unrolls the window into {@code dst}, oldest sample first.
+     */
+    void copyTo(double[] dst) {
+        final int tail = _samples.length - _pos;
+        System.arraycopy(_samples, _pos, dst, 0, tail);
+        System.arraycopy(_samples, 0, dst, tail, _pos);
+    }
+}
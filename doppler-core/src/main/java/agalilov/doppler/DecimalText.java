@@ -0,0 +1,63 @@
+package agalilov.doppler;
+
+/**
+ * Fixed-point numbers written straight into a char[], for labels drawn every frame without the
+ * Formatter, StringBuilder and String garbage of String.format.
+ */
+public final class DecimalText {
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1000, 10000, 100000, 1000000};
+
+    private DecimalText() {
+    }
+
+    /**
+     * @param decimals digits after the point, rounded half up; up to 6
+     * @return position after the last written char; "--" for NaN and infinities
+     */
+    public static int append(char[] buffer, int position, double value, int decimals) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            buffer[position++] = '-';
+            buffer[position++] = '-';
+            return position;
+        }
+        final long scaled = Math.round(Math.abs(value) * POWERS_OF_TEN[decimals]);
+        if (value < 0 && scaled != 0) {
+            buffer[position++] = '-';
+        }
+        position = append(buffer, position, scaled / POWERS_OF_TEN[decimals]);
+        if (decimals > 0) {
+            buffer[position++] = '.';
+            long fraction = scaled % POWERS_OF_TEN[decimals];
+            for (int i = position + decimals - 1; i >= position; i--) {
+                buffer[i] = (char) ('0' + fraction % 10);
+                fraction /= 10;
+            }
+            position += decimals;
+        }
+        return position;
+    }
+
+    public static int append(char[] buffer, int position, long value) {
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        final int start = position;
+        do {
+            buffer[position++] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        // digits came out least significant first
+        for (int i = start, j = position - 1; i < j; i++, j--) {
+            final char c = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = c;
+        }
+        return position;
+    }
+
+    public static int append(char[] buffer, int position, String text) {
+        text.getChars(0, text.length(), buffer, position);
+        return position + text.length();
+    }
+}
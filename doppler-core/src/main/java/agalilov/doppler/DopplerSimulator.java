@@ -0,0 +1,258 @@
+package agalilov.doppler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic stand-in for the microphone: the direct-path carrier of PlayAudioThread plus
+ * reflections Doppler-shifted by their velocity profiles, with amplitude fading and noise.
+ * <p>
+ * Every tone is a complex phasor advanced by one multiplication per sample; velocity, fading
+ * and the phasor step are updated once per block of {@link #BLOCK} samples, so no
+ * trigonometry runs per sample. A minute of audio takes a few milliseconds.
+ */
+final class DopplerSimulator {
+    interface VelocityProfile {
+        /**
+         * @return speed in m/s at {@code t} seconds, positive when approaching
+         */
+        double speed(double t);
+
+        static VelocityProfile constant(double speed) {
+            return t -> speed;
+        }
+
+        /**
+         * From {@code from} m/s at t = 0 to {@code to} m/s at t = {@code duration}, then constant.
+         */
+        static VelocityProfile ramp(double from, double to, double duration) {
+            return t -> from + (to - from) * Math.min(1, t / duration);
+        }
+
+        /**
+         * A hand waving back and forth: peak speed {@code amplitude} m/s, {@code hz} times a second.
+         */
+        static VelocityProfile oscillating(double amplitude, double hz) {
+            return t -> amplitude * Math.sin(2 * Math.PI * hz * t);
+        }
+    }
+
+    static final int BLOCK = 64;
+    private static final int NOISE_TABLE_SIZE = 1 << 16;
+
+    private static final class Reflector {
+        final double amplitude, fadeDepth, fadeHz;
+        final VelocityProfile profile;
+        double re = 1, im = 0; // phasor, e^{j phase}
+
+        Reflector(double amplitude, VelocityProfile profile, double fadeDepth, double fadeHz) {
+            this.amplitude = amplitude;
+            this.profile = profile;
+            this.fadeDepth = fadeDepth;
+            this.fadeHz = fadeHz;
+        }
+    }
+
+    private final int _sampleRate;
+    private final double _carrierHz, _carrierAmplitude, _noiseAmplitude;
+    private final DopplerVelocity _velocity;
+    private final Reflector[] _reflectors;
+    private final double[] _noise; // unit Gaussian samples
+    private final double[] _block = new double[BLOCK];
+    private double _carrierRe = 1, _carrierIm = 0;
+    private final double _carrierStepRe, _carrierStepIm;
+    private long _position = 0; // samples generated so far
+    private long _noiseState;
+
+    private DopplerSimulator(Builder builder) {
+        _sampleRate = builder._sampleRate;
+        _carrierHz = builder._carrierHz;
+        _carrierAmplitude = builder._carrierAmplitude;
+        _noiseAmplitude = builder._noiseAmplitude;
+        _velocity = new DopplerVelocity(builder._soundSpeed, builder._isReflectedSound);
+        // fresh phasors, a builder may build several simulators
+        _reflectors = new Reflector[builder._reflectors.size()];
+        for (int i = 0; i < _reflectors.length; i++) {
+            final Reflector r = builder._reflectors.get(i);
+            _reflectors[i] = new Reflector(r.amplitude, r.profile, r.fadeDepth, r.fadeHz);
+        }
+        _carrierStepRe = Math.cos(2 * Math.PI * _carrierHz / _sampleRate);
+        _carrierStepIm = Math.sin(2 * Math.PI * _carrierHz / _sampleRate);
+        final Random random = new Random(builder._seed);
+        _noise = new double[NOISE_TABLE_SIZE];
+        for (int i = 0; i < _noise.length; i++) {
+            _noise[i] = random.nextGaussian();
+        }
+        _noiseState = builder._seed | 1;
+    }
+
+    int getSampleRate() {
+        return _sampleRate;
+    }
+
+    double getCarrierHz() {
+        return _carrierHz;
+    }
+
+    /**
+     * @return the ground truth: speed of reflector {@code index} at {@code t} seconds
+     */
+    double speed(int index, double t) {
+        return _reflectors[index].profile.speed(t);
+    }
+
+    /**
+     * @return the frequency reflector {@code index} is heard at, at {@code t} seconds
+     */
+    double frequency(int index, double t) {
+        return _velocity.receivedFrequency(_carrierHz, speed(index, t));
+    }
+
+    short[] generate(int length) {
+        final short[] out = new short[length];
+        generate(out, 0, length);
+        return out;
+    }
+
+    /**
+     * Continues the signal where the previous call stopped.
+     */
+    void generate(short[] out, int offset, int length) {
+        while (length > 0) {
+            final int n = Math.min(BLOCK, length);
+            renderBlock(n);
+            for (int i = 0; i < n; i++) {
+                final double v = _block[i];
+                out[offset + i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(v)));
+            }
+            _position += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    private void renderBlock(int n) {
+        final double[] block = _block;
+        // the carrier at a fixed step
+        double re = _carrierRe, im = _carrierIm;
+        final double a = _carrierAmplitude;
+        for (int i = 0; i < n; i++) {
+            block[i] = a * im;
+            final double r = re * _carrierStepRe - im * _carrierStepIm;
+            im = re * _carrierStepIm + im * _carrierStepRe;
+            re = r;
+        }
+        _carrierRe = re;
+        _carrierIm = im;
+        renormalizeCarrier();
+
+        // reflections: speed, fading and step taken at the middle of the block
+        final double t = (_position + n / 2.0) / _sampleRate;
+        for (Reflector reflector : _reflectors) {
+            final double f = _velocity.receivedFrequency(_carrierHz, reflector.profile.speed(t));
+            final double stepRe = Math.cos(2 * Math.PI * f / _sampleRate);
+            final double stepIm = Math.sin(2 * Math.PI * f / _sampleRate);
+            final double gain = reflector.amplitude
+                    * (1 - reflector.fadeDepth * (0.5 - 0.5 * Math.cos(2 * Math.PI * reflector.fadeHz * t)));
+            re = reflector.re;
+            im = reflector.im;
+            for (int i = 0; i < n; i++) {
+                block[i] += gain * im;
+                final double r = re * stepRe - im * stepIm;
+                im = re * stepIm + im * stepRe;
+                re = r;
+            }
+            // pull the phasor back to unit length, rounding errors would make it drift
+            final double g = (3 - (re * re + im * im)) / 2;
+            reflector.re = re * g;
+            reflector.im = im * g;
+        }
+
+        if (_noiseAmplitude > 0) {
+            // a random window of the Gaussian table per block, xorshift64 picks the start
+            _noiseState ^= _noiseState << 13;
+            _noiseState ^= _noiseState >>> 7;
+            _noiseState ^= _noiseState << 17;
+            final int start = (int) (_noiseState >>> 40) & (NOISE_TABLE_SIZE - 1);
+            for (int i = 0; i < n; i++) {
+                block[i] += _noiseAmplitude * _noise[(start + i) & (NOISE_TABLE_SIZE - 1)];
+            }
+        }
+    }
+
+    private void renormalizeCarrier() {
+        final double g = (3 - (_carrierRe * _carrierRe + _carrierIm * _carrierIm)) / 2;
+        _carrierRe *= g;
+        _carrierIm *= g;
+    }
+
+    static final class Builder {
+        private final int _sampleRate;
+        private final double _carrierHz;
+        private double _carrierAmplitude = 8000;
+        private double _soundSpeed = 343;
+        private boolean _isReflectedSound = true;
+        private double _noiseAmplitude = 0;
+        private long _seed = 1;
+        private final List<Reflector> _reflectors = new ArrayList<>();
+
+        /**
+         * @param carrierHz what PlayAudioThread emits, {@link AudioParameters#getCarrierFreq()}
+         */
+        Builder(int sampleRate, double carrierHz) {
+            if (sampleRate < 1 || carrierHz <= 0 || carrierHz >= sampleRate / 2.0) {
+                throw new IllegalArgumentException("Carrier must be between 0 and the Nyquist frequency");
+            }
+            _sampleRate = sampleRate;
+            _carrierHz = carrierHz;
+        }
+
+        /**
+         * @param amplitude of the direct path, in 16-bit sample units
+         */
+        Builder setCarrierAmplitude(double amplitude) {
+            _carrierAmplitude = amplitude;
+            return this;
+        }
+
+        /**
+         * Same meaning as in {@link DopplerVelocity}.
+         */
+        Builder setSoundSpeed(double soundSpeed, boolean isReflectedSound) {
+            _soundSpeed = soundSpeed;
+            _isReflectedSound = isReflectedSound;
+            return this;
+        }
+
+        /**
+         * @param amplitude standard deviation of the white Gaussian noise, in sample units
+         * @param seed      the same seed gives the same signal
+         */
+        Builder setNoise(double amplitude, long seed) {
+            _noiseAmplitude = amplitude;
+            _seed = seed;
+            return this;
+        }
+
+        Builder addReflector(double amplitude, VelocityProfile profile) {
+            return addReflector(amplitude, profile, 0, 0);
+        }
+
+        /**
+         * @param fadeDepth 0 for a steady echo, up to 1 for one fading out completely
+         * @param fadeHz    how many times a second it fades
+         */
+        Builder addReflector(double amplitude, VelocityProfile profile, double fadeDepth, double fadeHz) {
+            if (fadeDepth < 0 || fadeDepth > 1) {
+                throw new IllegalArgumentException("Fade depth must be in 0..1");
+            }
+            _reflectors.add(new Reflector(amplitude, profile, fadeDepth, fadeHz));
+            return this;
+        }
+
+        DopplerSimulator build() {
+            return new DopplerSimulator(this);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package agalilov.doppler;
+
+/**
+ * Speed from the Doppler shift between the emitted carrier and a received frequency.
+ */
+public final class DopplerVelocity {
+    private final double _soundSpeed;
+    private final boolean _isReflectedSound;
+
+    /**
+     * @param soundSpeed       in m/s
+     * @param isReflectedSound true if the phone hears its own carrier bounced off a moving
+     *                         reflector, false if it hears a moving source directly
+     */
+    public DopplerVelocity(double soundSpeed, boolean isReflectedSound) {
+        _soundSpeed = soundSpeed;
+        _isReflectedSound = isReflectedSound;
+    }
+
+    public double getSoundSpeed() {
+        return _soundSpeed;
+    }
+
+    public boolean isReflectedSound() {
+        return _isReflectedSound;
+    }
+
+    /**
+     * @return speed in m/s, positive when approaching
+     */
+    public double speed(double carrierHz, double receivedHz) {
+        if (_isReflectedSound) {
+            // f' = f * (c + v_отражателя) / (c - v_отражателя)
+            // f' * (c - v_отражателя) = f * (c + v_отражателя)
+            // f' * c - f' * v_отражателя = f * c + f * v_отражателя
+            // f' * c - f * c  = f * v_отражателя + f' * v_отражателя
+            // f' * c - f * c  = v_отражателя * (f + f')
+            // c * (f' - f) / (f + f') = v_отражателя
+            return _soundSpeed * (receivedHz - carrierHz) / (receivedHz + carrierHz);
+        } else {
+            // f' = f * (c + v_наблюдателя) / c
+            // c * f' = f * (c + v_наблюдателя)
+            // c * f' / f = c + v_наблюдателя
+            // c * f' / f - c = v_наблюдателя
+            return _soundSpeed * receivedHz / carrierHz - _soundSpeed;
+        }
+    }
+
+    /**
+     * Inverse of {@link #speed(double, double)}: the frequency a reflector or source at
+     * {@code speed} m/s produces.
+     */
+    public double receivedFrequency(double carrierHz, double speed) {
+        if (_isReflectedSound) {
+            return carrierHz * (_soundSpeed + speed) / (_soundSpeed - speed);
+        } else {
+            return carrierHz * (_soundSpeed + speed) / _soundSpeed;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package agalilov.doppler;
+
+import java.util.Arrays;
+
+/**
+ * Streaming front end that moves the carrier to 0 Hz and lowers the sample rate:
+ * the real PCM is multiplied by a complex NCO e^{-j 2 pi f0 n / fs}, low-pass filtered and
+ * decimated by D with a polyphase FIR, giving complex baseband at fs / D.
+ * <p>
+ * The prototype low-pass of D * tapsPerBranch taps is split into D branch filters
+ * e_r[p] = h[p * D + r]. The commutator feeds input n to branch (-n mod D), and one output is
+ * produced per D inputs, so only the samples that survive decimation are ever filtered.
+ */
+final class Downconverter {
+    // |nco| drifts by rounding, bring it back to 1 this often
+    private static final int NCO_RENORM_INTERVAL = 1024;
+    private final int _decimation, _tapsPerBranch;
+    private final double[] _taps; // the prototype low-pass
+    private final double[][] _branchTaps;
+    // per-branch delay lines, written twice (at pos and pos + P) so the dot product never wraps
+    private final double[][] _branchRe, _branchIm;
+    private final double _stepRe, _stepIm;
+    private double _ncoRe, _ncoIm;
+    private int _sinceRenorm;
+    private int _phase; // branch that receives the next input
+    private int _pos;   // write position shared by all branches
+
+    /**
+     * @param carrierHz     frequency that ends up at 0 Hz
+     * @param decimation    D, the output rate is sampleRate / D
+     * @param tapsPerBranch filter length per branch; more taps give a sharper anti-alias filter
+     */
+    Downconverter(int sampleRate, double carrierHz, int decimation, int tapsPerBranch) {
+        if (decimation < 1 || tapsPerBranch < 1) {
+            throw new IllegalArgumentException("Decimation and taps must be positive");
+        }
+        _decimation = decimation;
+        _tapsPerBranch = tapsPerBranch;
+        final double w = 2 * Math.PI * carrierHz / sampleRate;
+        _stepRe = Math.cos(w);
+        _stepIm = -Math.sin(w);
+
+        final double[] h = lowPass(decimation * tapsPerBranch, 0.4 / decimation);
+        _taps = h;
+        _branchTaps = new double[decimation][tapsPerBranch];
+        for (int r = 0; r < decimation; r++) {
+            for (int p = 0; p < tapsPerBranch; p++) {
+                _branchTaps[r][p] = h[p * decimation + r];
+            }
+        }
+        _branchRe = new double[decimation][2 * tapsPerBranch];
+        _branchIm = new double[decimation][2 * tapsPerBranch];
+        reset();
+    }
+
+    /**
+     * Clears the filter history and restarts the NCO, e.g. after a gap in the input.
+     */
+    void reset() {
+        _ncoRe = 1;
+        _ncoIm = 0;
+        _sinceRenorm = 0;
+        _phase = _decimation - 1;
+        _pos = 0;
+        for (int r = 0; r < _decimation; r++) {
+            Arrays.fill(_branchRe[r], 0);
+            Arrays.fill(_branchIm[r], 0);
+        }
+    }
+
+    /**
+     * @param out receives the complex baseband samples as interleaved re/im,
+     *            at least 2 * {@link #maxOutput(int, int)} doubles
+     * @return number of complex samples written
+     */
+    int process(short[] in, int length, double[] out) {
+        final int p = _tapsPerBranch;
+        int nOut = 0;
+        for (int i = 0; i < length; i++) {
+            final double x = in[i];
+            final int w = _pos;
+            final double[] lineRe = _branchRe[_phase], lineIm = _branchIm[_phase];
+            lineRe[w] = lineRe[w + p] = x * _ncoRe;
+            lineIm[w] = lineIm[w + p] = x * _ncoIm;
+
+            final double re = _ncoRe * _stepRe - _ncoIm * _stepIm;
+            _ncoIm = _ncoRe * _stepIm + _ncoIm * _stepRe;
+            _ncoRe = re;
+            if (++_sinceRenorm == NCO_RENORM_INTERVAL) {
+                final double g = (3 - (_ncoRe * _ncoRe + _ncoIm * _ncoIm)) / 2;
+                _ncoRe *= g;
+                _ncoIm *= g;
+                _sinceRenorm = 0;
+            }
+
+            if (_phase > 0) {
+                _phase--;
+                continue;
+            }
+            double accRe = 0, accIm = 0;
+            final int base = w + p;
+            for (int r = 0; r < _decimation; r++) {
+                final double[] taps = _branchTaps[r];
+                final double[] bRe = _branchRe[r], bIm = _branchIm[r];
+                for (int k = 0; k < p; k++) {
+                    accRe += taps[k] * bRe[base - k];
+                    accIm += taps[k] * bIm[base - k];
+                }
+            }
+            out[2 * nOut] = accRe;
+            out[2 * nOut + 1] = accIm;
+            nOut++;
+            _phase = _decimation - 1;
+            _pos = (w + 1) % p;
+        }
+        return nOut;
+    }
+
+    /**
+     * @param frequency offset from the carrier, as a fraction of the input sample rate
+     * @return gain of the anti-alias filter there, its linear phase left out
+     */
+    double gain(double frequency) {
+        final double mid = (_taps.length - 1) / 2.0;
+        double gain = 0;
+        for (int k = 0; k < _taps.length; k++) {
+            gain += _taps[k] * Math.cos(2 * Math.PI * frequency * (k - mid));
+        }
+        return gain;
+    }
+
+    /**
+     * @return input samples between the last one an output has seen and the one it is centred
+     * on, the group delay of the filter
+     */
+    double delay() {
+        return (_taps.length - 1) / 2.0;
+    }
+
+    static int maxOutput(int length, int decimation) {
+        return length / decimation + 1;
+    }
+
+    /**
+     * Blackman-windowed sinc with unit DC gain.
+     *
+     * @param cutoff cutoff frequency as a fraction of the input sample rate
+     */
+    private static double[] lowPass(int taps, double cutoff) {
+        if (taps == 1) {
+            // no room for a taper, (taps - 1) would divide it by 0
+            return new double[]{1};
+        }
+        final double[] h = new double[taps];
+        final double mid = (taps - 1) / 2.0;
+        double sum = 0;
+        for (int k = 0; k < taps; k++) {
+            final double t = k - mid;
+            final double sinc = t == 0 ? 2 * cutoff : Math.sin(2 * Math.PI * cutoff * t) / (Math.PI * t);
+            final double a = 2 * Math.PI * k / (taps - 1);
+            h[k] = sinc * (0.42 - 0.5 * Math.cos(a) + 0.08 * Math.cos(2 * a));
+            sum += h[k];
+        }
+        for (int k = 0; k < taps; k++) {
+            h[k] /= sum;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,262 @@
+package agalilov.doppler;
+
+/**
+ * Follows echoes from frame to frame with an alpha-beta filter on their frequency.
+ * <p>
+ * A live track takes the {@link CfarDetector} detection nearest its predicted frequency within a
+ * gate of a few FFT bins. Between scans the detector runs over those gates only; the band around
+ * the carrier is scanned every {@link #SCAN_INTERVAL} frames, or every frame while there is no
+ * track, and the detections no track takes start new ones.
+ */
+public final class EchoTracker {
+    public static final int MAX_TRACKS = 8;
+    // frames between full scans of the band
+    static final int SCAN_INTERVAL = 8;
+    // detections before a track is confirmed, misses before a confirmed one is dropped
+    static final int CONFIRM_HITS = 3;
+    static final int MAX_MISSES = 3;
+    // gate half width, in FFT bins
+    private static final int GATE_FFT_BINS = 2;
+    private static final double ALPHA = 0.5, BETA = 0.1;
+
+    public static final class Track {
+        private int _id;
+        private double _frequency, _rate; // Hz and Hz per frame
+        private double _snr;
+        private int _hits, _misses;
+        private double _speed;
+
+        public int getId() {
+            return _id;
+        }
+
+        /**
+         * @return filtered frequency in Hz
+         */
+        public double getFrequency() {
+            return _frequency;
+        }
+
+        /**
+         * @return speed of the filtered frequency in m/s, positive when approaching
+         */
+        public double getSpeed() {
+            return _speed;
+        }
+
+        /**
+         * @return power of the last detection over the noise floor
+         */
+        public double getSnr() {
+            return _snr;
+        }
+
+        public boolean isConfirmed() {
+            return _hits >= CONFIRM_HITS;
+        }
+
+        /**
+         * @return true if the track was detected in the last frame rather than coasting
+         */
+        public boolean isDetected() {
+            return _misses == 0;
+        }
+    }
+
+    private final SpectrumLayout _layout;
+    private final CfarDetector _cfar;
+    private final PeakEstimator _estimator;
+    private final DopplerVelocity _velocity;
+    private final double _carrierHz;
+    private final int _gateBins;
+    private final Track[] _tracks = new Track[MAX_TRACKS];
+    private int _nTracks = 0;
+    private int _nextId = 1;
+    private long _frame = 0;
+    private int _binsSearched = 0;
+    // detections taken by a track this frame
+    private final boolean[] _isTaken = new boolean[CfarDetector.MAX_DETECTIONS];
+    // gates of the tracks, sorted and merged
+    private final int[] _gateFrom = new int[MAX_TRACKS], _gateTo = new int[MAX_TRACKS];
+
+    /**
+     * @param cfar detects over the band searched for echoes
+     */
+    EchoTracker(SpectrumLayout layout, CfarDetector cfar, PeakEstimator estimator, DopplerVelocity velocity,
+                double fftBinHz) {
+        _layout = layout;
+        _cfar = cfar;
+        _estimator = estimator;
+        _velocity = velocity;
+        _carrierHz = layout.frequency(layout.getCentralBin());
+        _gateBins = Math.max(1, (int) Math.round(GATE_FFT_BINS * fftBinHz / layout.getBinHz()));
+        for (int i = 0; i < MAX_TRACKS; i++) {
+            _tracks[i] = new Track();
+        }
+    }
+
+    /**
+     * Takes the next frame; every frame of the stream has to go through here in order.
+     */
+    void update(double[] data) {
+        final boolean isScan = _nTracks == 0 || _frame % SCAN_INTERVAL == 0;
+        _frame++;
+        _cfar.clear();
+        _binsSearched = isScan ? _cfar.detect(data, 0, data.length / 2) : detectInGates(data);
+        final CfarDetector.Detections detections = _cfar.getDetections();
+        for (int i = 0; i < detections.getCount(); i++) {
+            _isTaken[i] = false;
+        }
+        for (int i = 0; i < _nTracks; ) {
+            if (follow(data, detections, _tracks[i])) {
+                i++;
+            } else {
+                // the last live track takes the dropped one's place
+                final Track dropped = _tracks[i];
+                _tracks[i] = _tracks[--_nTracks];
+                _tracks[_nTracks] = dropped;
+            }
+        }
+        if (isScan) {
+            start(data, detections);
+        }
+        _estimator.endFrame(data);
+    }
+
+    /**
+     * @return bins read by the detector
+     */
+    private int detectInGates(double[] data) {
+        int nGates = 0;
+        for (int i = 0; i < _nTracks; i++) {
+            final int predictedBin = (int) Math.round((predicted(_tracks[i]) - _layout.getFirstBinHz())
+                    / _layout.getBinHz());
+            // insertion by start, there are only a few tracks
+            int j = nGates++;
+            while (j > 0 && _gateFrom[j - 1] > predictedBin - _gateBins) {
+                _gateFrom[j] = _gateFrom[j - 1];
+                _gateTo[j] = _gateTo[j - 1];
+                j--;
+            }
+            _gateFrom[j] = predictedBin - _gateBins;
+            _gateTo[j] = predictedBin + _gateBins + 1;
+        }
+        int nRead = 0;
+        for (int i = 0; i < nGates; ) {
+            // overlapping gates are detected over as one range
+            int to = _gateTo[i];
+            int j = i + 1;
+            while (j < nGates && _gateFrom[j] < to) {
+                to = Math.max(to, _gateTo[j++]);
+            }
+            nRead += _cfar.detect(data, _gateFrom[i], to);
+            i = j;
+        }
+        return nRead;
+    }
+
+    private static double predicted(Track track) {
+        return track._frequency + track._rate;
+    }
+
+    /**
+     * @return false if the track has to be dropped
+     */
+    private boolean follow(double[] data, CfarDetector.Detections detections, Track track) {
+        final double predicted = predicted(track);
+        final double predictedBin = (predicted - _layout.getFirstBinHz()) / _layout.getBinHz();
+        int nearest = -1;
+        for (int i = 0; i < detections.getCount(); i++) {
+            final double distance = Math.abs(detections.getBin(i) - predictedBin);
+            if (!_isTaken[i] && distance <= _gateBins
+                    && (nearest < 0 || distance < Math.abs(detections.getBin(nearest) - predictedBin))) {
+                nearest = i;
+            }
+        }
+        if (nearest >= 0) {
+            _isTaken[nearest] = true;
+            final double residual = _estimator.frequency(data, detections.getBin(nearest)) - predicted;
+            track._frequency = predicted + ALPHA * residual;
+            track._rate += BETA * residual;
+            track._snr = detections.getSnr(nearest);
+            track._hits++;
+            track._misses = 0;
+        } else {
+            track._frequency = predicted;
+            // a tentative track that misses once was most likely noise
+            if (++track._misses > (track.isConfirmed() ? MAX_MISSES : 0)) {
+                return false;
+            }
+        }
+        track._speed = _velocity.speed(_carrierHz, track._frequency);
+        return true;
+    }
+
+    /**
+     * Starts tracks on the strongest detections of a scan no track has taken.
+     */
+    private void start(double[] data, CfarDetector.Detections detections) {
+        while (_nTracks < MAX_TRACKS) {
+            int strongest = -1;
+            for (int i = 0; i < detections.getCount(); i++) {
+                if (!_isTaken[i] && (strongest < 0 || detections.getSnr(i) > detections.getSnr(strongest))) {
+                    strongest = i;
+                }
+            }
+            if (strongest < 0) {
+                return;
+            }
+            _isTaken[strongest] = true;
+            final Track track = _tracks[_nTracks++];
+            track._id = _nextId++;
+            track._frequency = _estimator.frequency(data, detections.getBin(strongest));
+            track._rate = 0;
+            track._snr = detections.getSnr(strongest);
+            track._hits = 1;
+            track._misses = 0;
+            track._speed = _velocity.speed(_carrierHz, track._frequency);
+        }
+    }
+
+    /**
+     * Drops every track, e.g. after a gap in the input.
+     */
+    void reset() {
+        _nTracks = 0;
+        _frame = 0;
+        _estimator.reset();
+    }
+
+    public int getTrackCount() {
+        return _nTracks;
+    }
+
+    /**
+     * @param i 0 .. {@link #getTrackCount()} - 1; the order changes as tracks come and go
+     */
+    public Track getTrack(int i) {
+        return _tracks[i];
+    }
+
+    /**
+     * @return the strongest track detected in the last frame, null if there is none
+     */
+    public Track strongestDetected() {
+        Track strongest = null;
+        for (int i = 0; i < _nTracks; i++) {
+            final Track track = _tracks[i];
+            if (track.isDetected() && (strongest == null || track._snr > strongest._snr)) {
+                strongest = track;
+            }
+        }
+        return strongest;
+    }
+
+    /**
+     * @return bins read by the detector in the last {@link #update(double[])}, tested and
+     * training
+     */
+    int getBinsSearched() {
+        return _binsSearched;
+    }
+}
@@ -0,0 +1,274 @@
+package agalilov.doppler;
+
+/**
+ * Pure Java FFT of interleaved re/im doubles, in place, same conventions as the KISS build:
+ * forward uses e^{-j 2 pi k n / N}, the inverse is scaled by 1/N.
+ * <p>
+ * Powers of two run an iterative radix-4 (plus one radix-2 stage for odd log2 N) over
+ * bit-reversed input, with the permutation and the twiddles tabulated once per size.
+ * Other sizes go through Bluestein's algorithm on a power of two. An instance owns scratch
+ * memory, so it is used by one thread at a time.
+ */
+final class FFT {
+    private final int _n;
+    // power of two only
+    private final int[] _bitReverse;
+    private final double[] _cos, _sin; // e^{-j 2 pi k / n}, k < n
+    // other sizes only
+    private final FFT _bluestein;
+    private final double[] _chirp;         // e^{-j pi k^2 / n}, k < n
+    private final double[] _chirpSpectre;  // forward FFT of the conjugate chirp filter
+    private final double[] _work;
+
+    FFT(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("FFT length must be positive");
+        }
+        _n = n;
+        if (isPowerOfTwo(n)) {
+            final int bits = Integer.numberOfTrailingZeros(n);
+            _bitReverse = new int[n];
+            for (int i = 0; i < n; i++) {
+                _bitReverse[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+            }
+            _cos = new double[n];
+            _sin = new double[n];
+            for (int k = 0; k < n; k++) {
+                _cos[k] = Math.cos(2 * Math.PI * k / n);
+                _sin[k] = -Math.sin(2 * Math.PI * k / n);
+            }
+            _bluestein = null;
+            _chirp = _chirpSpectre = _work = null;
+        } else {
+            _bitReverse = null;
+            _cos = _sin = null;
+            final int m = nextPowerOfTwo(2 * n - 1);
+            _bluestein = new FFT(m);
+            _chirp = new double[2 * n];
+            for (int k = 0; k < n; k++) {
+                // k^2 mod 2n keeps the phase argument small and exact
+                final double phase = Math.PI * (((long) k * k) % (2L * n)) / n;
+                _chirp[2 * k] = Math.cos(phase);
+                _chirp[2 * k + 1] = -Math.sin(phase);
+            }
+            _chirpSpectre = new double[2 * m];
+            _chirpSpectre[0] = 1;
+            for (int k = 1; k < n; k++) {
+                _chirpSpectre[2 * k] = _chirpSpectre[2 * (m - k)] = _chirp[2 * k];
+                _chirpSpectre[2 * k + 1] = _chirpSpectre[2 * (m - k) + 1] = -_chirp[2 * k + 1];
+            }
+            _bluestein.transform(_chirpSpectre, false);
+            _work = new double[2 * m];
+        }
+    }
+
+    int size() {
+        return _n;
+    }
+
+    /**
+     * @param ri n complex points as 2n interleaved doubles, replaced by their transform
+     */
+    void transform(double[] ri, boolean inverse) {
+        if (_bitReverse != null) {
+            radix4(ri, inverse);
+        } else {
+            bluestein(ri, inverse);
+        }
+        if (inverse) {
+            final double scale = 1.0 / _n;
+            for (int i = 0; i < 2 * _n; i++) {
+                ri[i] *= scale;
+            }
+        }
+    }
+
+    private void radix4(double[] ri, boolean inverse) {
+        final int n = _n;
+        for (int i = 0; i < n; i++) {
+            final int j = _bitReverse[i];
+            if (i < j) {
+                double t = ri[2 * i];
+                ri[2 * i] = ri[2 * j];
+                ri[2 * j] = t;
+                t = ri[2 * i + 1];
+                ri[2 * i + 1] = ri[2 * j + 1];
+                ri[2 * j + 1] = t;
+            }
+        }
+        // the conjugate twiddles give the inverse
+        final double sign = inverse ? -1 : 1;
+        int size = 1;
+        if ((Integer.numberOfTrailingZeros(n) & 1) != 0) {
+            // odd log2 n: one radix-2 stage of trivial butterflies first
+            for (int k = 0; k < 2 * n; k += 4) {
+                final double ar = ri[k], ai = ri[k + 1];
+                final double br = ri[k + 2], bi = ri[k + 3];
+                ri[k] = ar + br;
+                ri[k + 1] = ai + bi;
+                ri[k + 2] = ar - br;
+                ri[k + 3] = ai - bi;
+            }
+            size = 2;
+        }
+        // each pass merges four sub-transforms of length q into one of length 4q
+        for (int q = size; q < n; q *= 4) {
+            final int length = 4 * q;
+            final int step = n / length;
+            for (int start = 0; start < n; start += length) {
+                for (int j = 0; j < q; j++) {
+                    final int a = 2 * (start + j), b = a + 2 * q, c = b + 2 * q, d = c + 2 * q;
+                    final int t1 = j * step, t2 = 2 * t1, t3 = 3 * t1;
+                    final double w1r = _cos[t1], w1i = sign * _sin[t1];
+                    final double w2r = _cos[t2], w2i = sign * _sin[t2];
+                    final double w3r = _cos[t3], w3i = sign * _sin[t3];
+                    // a + W^2j b, sub-transforms are stored in bit-reversed order a, c, b, d
+                    final double ar = ri[a], ai = ri[a + 1];
+                    final double br = ri[b] * w2r - ri[b + 1] * w2i, bi = ri[b] * w2i + ri[b + 1] * w2r;
+                    final double cr = ri[c] * w1r - ri[c + 1] * w1i, ci = ri[c] * w1i + ri[c + 1] * w1r;
+                    final double dr = ri[d] * w3r - ri[d + 1] * w3i, di = ri[d] * w3i + ri[d + 1] * w3r;
+                    final double sr = ar + br, si = ai + bi;   // a + B
+                    final double tr = ar - br, ti = ai - bi;   // a - B
+                    final double ur = cr + dr, ui = ci + di;   // C + D
+                    // -j (C - D) forward, +j (C - D) inverse
+                    final double vr = sign * (ci - di), vi = sign * (dr - cr);
+                    ri[a] = sr + ur;
+                    ri[a + 1] = si + ui;
+                    ri[b] = tr + vr;
+                    ri[b + 1] = ti + vi;
+                    ri[c] = sr - ur;
+                    ri[c + 1] = si - ui;
+                    ri[d] = tr - vr;
+                    ri[d + 1] = ti - vi;
+                }
+            }
+        }
+    }
+
+    private void bluestein(double[] ri, boolean inverse) {
+        // the inverse is the forward transform of the conjugate, conjugated
+        final double sign = inverse ? -1 : 1;
+        final int n = _n;
+        final double[] w = _work;
+        for (int k = 0; k < n; k++) {
+            final double xr = ri[2 * k], xi = sign * ri[2 * k + 1];
+            final double cr = _chirp[2 * k], ci = _chirp[2 * k + 1];
+            w[2 * k] = xr * cr - xi * ci;
+            w[2 * k + 1] = xr * ci + xi * cr;
+        }
+        java.util.Arrays.fill(w, 2 * n, w.length, 0);
+        _bluestein.transform(w, false);
+        for (int i = 0; i < w.length; i += 2) {
+            final double xr = w[i], xi = w[i + 1];
+            final double hr = _chirpSpectre[i], hi = _chirpSpectre[i + 1];
+            w[i] = xr * hr - xi * hi;
+            w[i + 1] = xr * hi + xi * hr;
+        }
+        _bluestein.transform(w, true);
+        for (int k = 0; k < n; k++) {
+            final double yr = w[2 * k], yi = w[2 * k + 1];
+            final double cr = _chirp[2 * k], ci = _chirp[2 * k + 1];
+            ri[2 * k] = yr * cr - yi * ci;
+            ri[2 * k + 1] = sign * (yr * ci + yi * cr);
+        }
+    }
+
+    static boolean isPowerOfTwo(int n) {
+        return n > 0 && (n & (n - 1)) == 0;
+    }
+
+    static int nextPowerOfTwo(int n) {
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    /**
+     * Forward transform of n real samples through a complex FFT of n/2 points: even samples go
+     * to the real parts, odd ones to the imaginary parts, and the two interleaved spectra are
+     * separated afterwards. Output is the n/2+1 points of the KISS real transform.
+     */
+    static final class Real {
+        private final int _n;
+        private final FFT _half;
+        private final double[] _cos, _sin; // e^{-j 2 pi k / n}, k <= n/4
+
+        Real(int n) {
+            if (n < 2 || n % 2 != 0) {
+                throw new IllegalArgumentException("Real FFT length must be even and > 0");
+            }
+            _n = n;
+            _half = new FFT(n / 2);
+            _cos = new double[n / 4 + 1];
+            _sin = new double[n / 4 + 1];
+            for (int k = 0; k <= n / 4; k++) {
+                _cos[k] = Math.cos(2 * Math.PI * k / n);
+                _sin[k] = -Math.sin(2 * Math.PI * k / n);
+            }
+        }
+
+        int size() {
+            return _n;
+        }
+
+        /**
+         * @param data the n samples in data[0..n-1], replaced by n/2+1 interleaved re/im points;
+         *             at least n + 2 long
+         */
+        void forward(double[] data) {
+            final int m = _n / 2;
+            _half.transform(data, false);
+            final double z0r = data[0], z0i = data[1];
+            data[0] = z0r + z0i;
+            data[1] = 0;
+            data[2 * m] = z0r - z0i;
+            data[2 * m + 1] = 0;
+            for (int k = 1; 2 * k <= m; k++) {
+                final int p = 2 * k, q = 2 * (m - k);
+                final double zkr = data[p], zki = data[p + 1];
+                final double znr = data[q], zni = data[q + 1];
+                // E = (Z[k] + conj Z[m-k]) / 2, O = -j (Z[k] - conj Z[m-k]) / 2
+                final double er = 0.5 * (zkr + znr), ei = 0.5 * (zki - zni);
+                final double or = 0.5 * (zki + zni), oi = -0.5 * (zkr - znr);
+                final double wr = _cos[k], wi = _sin[k];
+                final double tr = or * wr - oi * wi, ti = or * wi + oi * wr;
+                // X[k] = E + W^k O, X[m-k] = conj(E - W^k O)
+                data[p] = er + tr;
+                data[p + 1] = ei + ti;
+                if (p != q) {
+                    data[q] = er - tr;
+                    data[q + 1] = ti - ei;
+                }
+            }
+        }
+
+        /**
+         * Inverse of {@link #forward(double[])}, scaled by 1/n.
+         *
+         * @param data n/2+1 interleaved re/im points, replaced by the n samples in data[0..n-1]
+         */
+        void inverse(double[] data) {
+            final int m = _n / 2;
+            // Z[k] = E[k] + j O[k] packs the spectra of the even and odd samples back together
+            final double x0 = data[0], xm = data[2 * m];
+            data[0] = 0.5 * (x0 + xm);
+            data[1] = 0.5 * (x0 - xm);
+            for (int k = 1; 2 * k <= m; k++) {
+                final int p = 2 * k, q = 2 * (m - k);
+                final double xkr = data[p], xki = data[p + 1];
+                final double xnr = data[q], xni = data[q + 1];
+                // E = (X[k] + conj X[m-k]) / 2, O = (X[k] - conj X[m-k]) conj(W^k) / 2
+                final double er = 0.5 * (xkr + xnr), ei = 0.5 * (xki - xni);
+                final double dr = 0.5 * (xkr - xnr), di = 0.5 * (xki + xni);
+                final double wr = _cos[k], wi = -_sin[k];
+                final double or = dr * wr - di * wi, oi = dr * wi + di * wr;
+                // Z[k] = E + j O, Z[m-k] = conj E + j conj O
+                data[p] = er - oi;
+                data[p + 1] = ei + or;
+                if (p != q) {
+                    data[q] = er + oi;
+                    data[q + 1] = or - ei;
+                }
+            }
+            _half.transform(data, true);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package agalilov.doppler;
+
+import uk.me.berndporr.kiss_fft.KISSFastFourierTransformer;
+
+/**
+ * The transforms the processing pipeline needs, independent of where they run.
+ * <p>
+ * All data is interleaved re/im doubles with the KISS conventions: the real transform of n samples
+ * gives n/2+1 points, the complex inverse is scaled by 1/n. An engine keeps per-size tables and
+ * scratch memory and is used by one thread at a time.
+ */
+public interface FftEngine extends AutoCloseable {
+    enum Kind {
+        /** Native KISS FFT, double precision. */
+        KISS_DOUBLE,
+        /** Native KISS FFT, single precision real transform. */
+        KISS_FLOAT,
+        /** Native KISS FFT, Q15 fixed point real transform of the raw PCM. */
+        KISS_INT16,
+        /** Pure Java, no native library needed. */
+        JAVA
+    }
+
+    static FftEngine create(Kind kind) {
+        switch (kind) {
+            case KISS_FLOAT:
+                return new KissFloatFftEngine();
+            case KISS_INT16:
+                return new KissInt16FftEngine();
+            case JAVA:
+                return new JavaFftEngine();
+            default:
+                return new KissFftEngine();
+        }
+    }
+
+    /**
+     * @param in  n real samples, n even
+     * @param out at least n + 2 doubles
+     */
+    void transformReal(double[] in, double[] out);
+
+    /**
+     * Inverse of {@link #transformReal(double[], double[])}, scaled by 1/n like the complex inverse.
+     *
+     * @param in  n/2+1 points, at least n + 2 doubles
+     * @param out n real samples, n even
+     */
+    void inverseReal(double[] in, double[] out);
+
+    /**
+     * Real transform of a circular 16-bit PCM history, unrolled from {@code start} and windowed.
+     *
+     * @param out at least pcm.length + 2 doubles
+     */
+    void transformReal(short[] pcm, int start, KISSFastFourierTransformer.Window window,
+                       double kaiserBeta, double[] out);
+
+    /**
+     * @param in  n complex points
+     * @param out at least 2n doubles, must not be {@code in}
+     */
+    void transformComplex(double[] in, double[] out, boolean inverse);
+
+    /**
+     * Unrolls the circular PCM history from {@code start} and applies the window.
+     */
+    void window(short[] pcm, int start, KISSFastFourierTransformer.Window window, double kaiserBeta,
+                double[] out);
+
+    /**
+     * Fills {@code out} with the window table of size {@code out.length}.
+     */
+    void getWindow(KISSFastFourierTransformer.Window window, double kaiserBeta, double[] out);
+
+    /**
+     * @return the smallest size >= n this engine transforms efficiently
+     */
+    int nextFastSize(int n);
+
+    @Override
+    void close();
+}
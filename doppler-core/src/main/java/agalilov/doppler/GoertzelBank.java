@@ -0,0 +1,46 @@
+package agalilov.doppler;
+
+/**
+ * Generalised Goertzel filters, one per bin, for arbitrary (non-integer) bin frequencies.
+ * Cheaper than any FFT when only a handful of bins is needed.
+ */
+final class GoertzelBank extends BandAnalyzer {
+    private final double[] _coeff;     // 2 cos(w)
+    private final double[] _cos, _sin; // e^{-jw}
+    private final double[] _rotCos, _rotSin; // e^{-jw(N-1)}, aligns the phase with the DFT
+
+    GoertzelBank(int windowSize, int nBins, double w0, double dw) {
+        super(windowSize, nBins);
+        _coeff = new double[nBins];
+        _cos = new double[nBins];
+        _sin = new double[nBins];
+        _rotCos = new double[nBins];
+        _rotSin = new double[nBins];
+        for (int k = 0; k < nBins; k++) {
+            final double w = w0 + k * dw;
+            _coeff[k] = 2 * Math.cos(w);
+            _cos[k] = Math.cos(w);
+            _sin[k] = -Math.sin(w);
+            _rotCos[k] = Math.cos(w * (windowSize - 1));
+            _rotSin[k] = -Math.sin(w * (windowSize - 1));
+        }
+    }
+
+    @Override
+    void analyze(double[] timeData, double[] out) {
+        for (int k = 0; k < _nBins; k++) {
+            final double c = _coeff[k];
+            double s1 = 0, s2 = 0;
+            for (int n = 0; n < _windowSize; n++) {
+                final double s0 = timeData[n] + c * s1 - s2;
+                s2 = s1;
+                s1 = s0;
+            }
+            // y = s[N-1] - e^{-jw} s[N-2], X(w) = e^{-jw(N-1)} y
+            final double yr = s1 - _cos[k] * s2;
+            final double yi = -_sin[k] * s2;
+            out[2 * k] = yr * _rotCos[k] - yi * _rotSin[k];
+            out[2 * k + 1] = yr * _rotSin[k] + yi * _rotCos[k];
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package agalilov.doppler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import uk.me.berndporr.kiss_fft.KISSFastFourierTransformer;
+
+/**
+ * {@link FftEngine} on the pure Java {@link FFT}, runs on any JVM without the native library.
+ */
+final class JavaFftEngine implements FftEngine {
+    private final Map<Integer, FFT> _complex = new HashMap<>();
+    private final Map<Integer, FFT.Real> _real = new HashMap<>();
+    private final WindowTable _windowTable = new WindowTable();
+    private double[] _work = new double[0];
+
+    @Override
+    public void transformReal(double[] in, double[] out) {
+        final int n = in.length;
+        checkRealOut(n, out);
+        System.arraycopy(in, 0, out, 0, n);
+        real(n).forward(out);
+    }
+
+    @Override
+    public void transformReal(short[] pcm, int start, KISSFastFourierTransformer.Window window,
+                              double kaiserBeta, double[] out) {
+        checkRealOut(pcm.length, out);
+        this.window(pcm, start, window, kaiserBeta, out);
+        real(pcm.length).forward(out);
+    }
+
+    @Override
+    public void inverseReal(double[] in, double[] out) {
+        final int n = out.length;
+        checkRealOut(n, in);
+        final double[] work = work(n + 2);
+        System.arraycopy(in, 0, work, 0, n + 2);
+        real(n).inverse(work);
+        System.arraycopy(work, 0, out, 0, n);
+    }
+
+    @Override
+    public void transformComplex(double[] in, double[] out, boolean inverse) {
+        if (in == out) {
+            throw new IllegalArgumentException("In-place transform is not supported");
+        }
+        if (out.length < in.length) {
+            throw new IllegalArgumentException("Output array is too short");
+        }
+        final int n = in.length / 2;
+        System.arraycopy(in, 0, out, 0, 2 * n);
+        FFT fft = _complex.get(n);
+        if (fft == null) {
+            fft = new FFT(n);
+            _complex.put(n, fft);
+        }
+        fft.transform(out, inverse);
+    }
+
+    @Override
+    public void window(short[] pcm, int start, KISSFastFourierTransformer.Window window,
+                       double kaiserBeta, double[] out) {
+        final int n = pcm.length;
+        if (start < 0 || start >= n) {
+            throw new IllegalArgumentException("start is out of range");
+        }
+        final double[] w = _windowTable.get(window, kaiserBeta, n);
+        int j = 0;
+        for (int i = start; i < n; i++, j++) {
+            out[j] = pcm[i] * w[j];
+        }
+        for (int i = 0; i < start; i++, j++) {
+            out[j] = pcm[i] * w[j];
+        }
+    }
+
+    @Override
+    public void getWindow(KISSFastFourierTransformer.Window window, double kaiserBeta, double[] out) {
+        WindowTable.fill(window, kaiserBeta, out);
+    }
+
+    /**
+     * Powers of two take the radix-4 path, anything else the slower Bluestein one.
+     */
+    @Override
+    public int nextFastSize(int n) {
+        return FFT.nextPowerOfTwo(n);
+    }
+
+    @Override
+    public void close() {
+        _complex.clear();
+        _real.clear();
+    }
+
+    private double[] work(int size) {
+        if (_work.length < size) {
+            _work = new double[size];
+        }
+        return _work;
+    }
+
+    private FFT.Real real(int n) {
+        FFT.Real fft = _real.get(n);
+        if (fft == null) {
+            fft = new FFT.Real(n);
+            _real.put(n, fft);
+        }
+        return fft;
+    }
+
+    // no KISSFastFourierTransformer.spectreLength here, it would load the native library
+    private static void checkRealOut(int n, double[] out) {
+        if (out.length < n + 2) {
+            throw new IllegalArgumentException("Output array is too short");
+        }
+    }
+}
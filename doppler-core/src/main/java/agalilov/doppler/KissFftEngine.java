@@ -0,0 +1,66 @@
+package agalilov.doppler;
+
+import org.apache.commons.math3.transform.TransformType;
+
+import uk.me.berndporr.kiss_fft.KISSFastFourierTransformer;
+
+/**
+ * {@link FftEngine} on the native double precision KISS FFT.
+ */
+class KissFftEngine implements FftEngine {
+    protected final KISSFastFourierTransformer _fft = new KISSFastFourierTransformer();
+
+    @Override
+    public void transformReal(double[] in, double[] out) {
+        _fft.transformRealOptimisedForward(in, out);
+    }
+
+    @Override
+    public void transformReal(short[] pcm, int start, KISSFastFourierTransformer.Window window,
+                              double kaiserBeta, double[] out) {
+        // unrolled, converted and windowed natively
+        _fft.transformRealOptimisedForward(pcm, start, window, kaiserBeta, out);
+    }
+
+    @Override
+    public void inverseReal(double[] in, double[] out) {
+        _fft.transformRealOptimisedInverse(in, out);
+    }
+
+    @Override
+    public void transformComplex(double[] in, double[] out, boolean inverse) {
+        _fft.transform(in, out, inverse ? TransformType.INVERSE : TransformType.FORWARD);
+    }
+
+    @Override
+    public void window(short[] pcm, int start, KISSFastFourierTransformer.Window window,
+                       double kaiserBeta, double[] out) {
+        _fft.window(pcm, start, window, kaiserBeta, out);
+    }
+
+    @Override
+    public void getWindow(KISSFastFourierTransformer.Window window, double kaiserBeta, double[] out) {
+        _fft.getWindow(window, kaiserBeta, out);
+    }
+
+    /**
+     * Only the factors 2, 3 and 5, the radices KISS FFT handles fastest.
+     */
+    @Override
+    public int nextFastSize(int n) {
+        for (; ; n++) {
+            int m = n;
+            while (m % 2 == 0) m /= 2;
+            while (m % 3 == 0) m /= 3;
+            while (m % 5 == 0) m /= 5;
+            if (m == 1) {
+                return n;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        _fft.close();
+    }
+}
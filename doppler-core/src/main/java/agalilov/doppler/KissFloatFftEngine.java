@@ -0,0 +1,62 @@
+package agalilov.doppler;
+
+import uk.me.berndporr.kiss_fft.KISSFastFourierTransformer;
+import uk.me.berndporr.kiss_fft.KISSFastFourierTransformerFloat;
+
+/**
+ * Real transforms on the single precision KISS build, the rest on the double one.
+ */
+final class KissFloatFftEngine extends KissFftEngine {
+    private final KISSFastFourierTransformerFloat _fftFloat = new KISSFastFourierTransformerFloat();
+    private final WindowTable _windowTable = new WindowTable();
+    private float[] _timeData = new float[0], _spectre = new float[0];
+
+    @Override
+    public void transformReal(double[] in, double[] out) {
+        final int n = in.length;
+        ensureSize(n);
+        for (int i = 0; i < n; i++) {
+            _timeData[i] = (float) in[i];
+        }
+        transform(out);
+    }
+
+    @Override
+    public void transformReal(short[] pcm, int start, KISSFastFourierTransformer.Window window,
+                              double kaiserBeta, double[] out) {
+        final int n = pcm.length;
+        if (start < 0 || start >= n) {
+            throw new IllegalArgumentException("start is out of range");
+        }
+        ensureSize(n);
+        final double[] w = _windowTable.get(window, kaiserBeta, n);
+        int j = 0;
+        for (int i = start; i < n; i++, j++) {
+            _timeData[j] = (float) (pcm[i] * w[j]);
+        }
+        for (int i = 0; i < start; i++, j++) {
+            _timeData[j] = (float) (pcm[i] * w[j]);
+        }
+        transform(out);
+    }
+
+    private void ensureSize(int n) {
+        if (_timeData.length != n) {
+            _timeData = new float[n];
+            _spectre = new float[KISSFastFourierTransformer.spectreLength(n)];
+        }
+    }
+
+    private void transform(double[] out) {
+        _fftFloat.transformRealOptimisedForward(_timeData, _spectre);
+        for (int i = 0; i < _spectre.length; i++) {
+            out[i] = _spectre[i];
+        }
+    }
+
+    @Override
+    public void close() {
+        _fftFloat.close();
+        super.close();
+    }
+}
@@ -0,0 +1,68 @@
+package agalilov.doppler;
+
+import uk.me.berndporr.kiss_fft.KISSFastFourierTransformer;
+import uk.me.berndporr.kiss_fft.KISSFastFourierTransformerInt16;
+
+/**
+ * Real transforms on the Q15 fixed point KISS build, the rest on the double one.
+ * The fixed point output is scaled back by n, so all engines give the same magnitudes.
+ */
+final class KissInt16FftEngine extends KissFftEngine {
+    private final KISSFastFourierTransformerInt16 _fftInt16 = new KISSFastFourierTransformerInt16();
+    private final WindowTable _windowTable = new WindowTable();
+    private short[] _timeData = new short[0], _spectre = new short[0];
+
+    @Override
+    public void transformReal(double[] in, double[] out) {
+        final int n = in.length;
+        ensureSize(n);
+        for (int i = 0; i < n; i++) {
+            _timeData[i] = toShort(in[i]);
+        }
+        transform(n, out);
+    }
+
+    @Override
+    public void transformReal(short[] pcm, int start, KISSFastFourierTransformer.Window window,
+                              double kaiserBeta, double[] out) {
+        final int n = pcm.length;
+        if (start < 0 || start >= n) {
+            throw new IllegalArgumentException("start is out of range");
+        }
+        ensureSize(n);
+        final double[] w = _windowTable.get(window, kaiserBeta, n);
+        int j = 0;
+        for (int i = start; i < n; i++, j++) {
+            _timeData[j] = (short) Math.round(pcm[i] * w[j]);
+        }
+        for (int i = 0; i < start; i++, j++) {
+            _timeData[j] = (short) Math.round(pcm[i] * w[j]);
+        }
+        transform(n, out);
+    }
+
+    private static short toShort(double v) {
+        return (short) Math.round(Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, v)));
+    }
+
+    private void ensureSize(int n) {
+        if (_timeData.length != n) {
+            _timeData = new short[n];
+            _spectre = new short[KISSFastFourierTransformer.spectreLength(n)];
+        }
+    }
+
+    private void transform(int n, double[] out) {
+        _fftInt16.transformRealOptimisedForward(_timeData, _spectre);
+        // undo the 1/n scaling of the fixed point stages
+        for (int i = 0; i < _spectre.length; i++) {
+            out[i] = (double) _spectre[i] * n;
+        }
+    }
+
+    @Override
+    public void close() {
+        _fftInt16.close();
+        super.close();
+    }
+}
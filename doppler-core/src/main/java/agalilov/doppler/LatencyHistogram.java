@@ -0,0 +1,110 @@
+package agalilov.doppler;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations: 1 us buckets up to 8 us, then 8 buckets per octave, so
+ * every reported value is within 12.5% of the recorded one. Any thread records, any thread
+ * reads; a reader racing a writer may see a sample in the count but not yet in the buckets.
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // up to 2^40 us, 12 days
+    private static final int BUCKETS = SUB_BUCKETS * (40 - SUB_BUCKET_BITS + 1);
+
+    private final AtomicLongArray _buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong _count = new AtomicLong();
+    private final AtomicLong _totalNanos = new AtomicLong();
+    private final AtomicLong _maxNanos = new AtomicLong();
+
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        _buckets.incrementAndGet(bucket(nanos / 1000));
+        _count.incrementAndGet();
+        _totalNanos.addAndGet(nanos);
+        long max = _maxNanos.get();
+        while (nanos > max && !_maxNanos.compareAndSet(max, nanos)) {
+            max = _maxNanos.get();
+        }
+    }
+
+    long getCount() {
+        return _count.get();
+    }
+
+    double getMeanMicros() {
+        final long count = _count.get();
+        return count > 0 ? _totalNanos.get() / 1000.0 / count : 0;
+    }
+
+    double getMaxMicros() {
+        return _maxNanos.get() / 1000.0;
+    }
+
+    /**
+     * @param quantile 0..1, e.g. 0.99
+     * @return upper bound of the bucket holding the quantile, 0 when empty
+     */
+    long getPercentileMicros(double quantile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += _buckets.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += _buckets.get(i);
+            if (seen >= rank) {
+                return lowerBound(i + 1);
+            }
+        }
+        return lowerBound(BUCKETS);
+    }
+
+    /**
+     * @return number of samples in the bucket, for export
+     */
+    long getBucketCount(int bucket) {
+        return _buckets.get(bucket);
+    }
+
+    static int bucketCount() {
+        return BUCKETS;
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            _buckets.set(i, 0);
+        }
+        _count.set(0);
+        _totalNanos.set(0);
+        _maxNanos.set(0);
+    }
+
+    static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        final int sub = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKETS - 1, (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub);
+    }
+
+    /**
+     * @return smallest value in microseconds that falls into {@code bucket}
+     */
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+    }
+}
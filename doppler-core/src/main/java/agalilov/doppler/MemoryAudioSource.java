@@ -0,0 +1,71 @@
+package agalilov.doppler;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Samples already in memory, e.g. a synthesized signal or a decoded recording.
+ */
+public final class MemoryAudioSource implements AudioSource {
+    // about a microphone read at 44.1 kHz
+    static final int BLOCK_SAMPLES = 4096;
+    private final ShortBuffer _samples;
+    private final int _sampleRate;
+    private final RealTimePacer _pacer; // null when unthrottled
+    private long _delivered = 0;
+
+    public MemoryAudioSource(short[] samples, int sampleRate, boolean isRealTime) {
+        this(ShortBuffer.wrap(samples), sampleRate, isRealTime);
+    }
+
+    /**
+     * @param samples read from its position to its limit; it is not copied
+     */
+    public MemoryAudioSource(ShortBuffer samples, int sampleRate, boolean isRealTime) {
+        _samples = samples.duplicate();
+        _sampleRate = sampleRate;
+        _pacer = isRealTime ? new RealTimePacer(sampleRate) : null;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return _sampleRate;
+    }
+
+    @Override
+    public boolean isRealTime() {
+        return _pacer != null;
+    }
+
+    @Override
+    public void start() {
+        if (_pacer != null) {
+            _pacer.start();
+        }
+    }
+
+    @Override
+    public int read(Sink sink) throws InterruptedException {
+        final int n = Math.min(BLOCK_SAMPLES, _samples.remaining());
+        if (n == 0) {
+            return -1;
+        }
+        if (_pacer != null) {
+            _pacer.await(_delivered + n);
+        }
+        final int limit = _samples.limit();
+        final int end = _samples.position() + n;
+        _samples.limit(end);
+        try {
+            sink.write(_samples);
+        } finally {
+            _samples.limit(limit);
+            _samples.position(end);
+        }
+        _delivered += n;
+        return n;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,286 @@
+package agalilov.doppler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MULTI_CARRIER: a ZOOM band around each carrier of {@link AudioParameters}, the bands analysed
+ * concurrently on a small pool, and one speed fused from the echoes of all carriers.
+ * <p>
+ * A carrier that falls into a speaker null or a room mode either has no echo above the noise
+ * or a spurious one; the fused speed is the SNR-weighted median of the carriers that detected
+ * anything, so one bad band cannot drag it away.
+ */
+public final class MultiCarrierAnalyzer implements AutoCloseable {
+    /**
+     * One frame's speeds, overwritten by the next frame.
+     */
+    public static final class Reading {
+        private final double[] _speeds, _snrs;
+        private double _speed = Double.NaN;
+        private int _nDetected = 0;
+
+        private Reading(int nCarriers) {
+            _speeds = new double[nCarriers];
+            _snrs = new double[nCarriers];
+        }
+
+        /**
+         * @return fused speed in m/s, positive when approaching; NaN if no carrier detected an echo
+         */
+        public double getSpeed() {
+            return _speed;
+        }
+
+        public int getDetectedCarriers() {
+            return _nDetected;
+        }
+
+        public int getCarrierCount() {
+            return _speeds.length;
+        }
+
+        /**
+         * @return speed seen by one carrier, NaN if it detected nothing
+         */
+        public double getCarrierSpeed(int carrier) {
+            return _speeds[carrier];
+        }
+
+        /**
+         * @return power of the carrier's echo over its noise floor, 0 if it detected nothing
+         */
+        public double getCarrierSnr(int carrier) {
+            return _snrs[carrier];
+        }
+    }
+
+    private final class Band implements Callable<Void> {
+        final int carrier;
+        final SpectrumLayout layout;
+        final FftEngine fft; // engines are not thread safe, one per band
+        final ZoomFft zoom; // null where it cannot beat the BandAnalyzer
+        final BandAnalyzer analyzer; // null with a zoom
+        final PeakEstimator estimator;
+        final CfarDetector cfar;
+        final double[] spectre;
+        final double carrierHz;
+
+        Band(int carrier, AudioParameters audio, AnalysisParameters analysis) {
+            this.carrier = carrier;
+            layout = SpectrumLayout.band(audio, analysis, carrier);
+            fft = FftEngine.create(analysis.getFftEngine());
+            zoom = ZoomFft.create(audio, analysis, layout, carrier, fft);
+            analyzer = zoom == null
+                    ? BandAnalyzer.create(layout, audio.getNFftChunkSamples(), audio.getSampleRate(), fft)
+                    : null;
+            estimator = new PeakEstimator(audio, analysis, layout);
+            spectre = new double[2 * layout.getNBins()];
+            // the whole band is searched
+            cfar = new CfarDetector(audio, analysis, layout, layout.getNBins());
+            carrierHz = audio.getCarrierFreq(carrier);
+        }
+
+        @Override
+        public Void call() {
+            if (zoom != null) {
+                zoom.append(_hop, _hopLength);
+            }
+            if (_timeData == null) {
+                return null;
+            }
+            if (zoom != null) {
+                zoom.analyze(spectre);
+            } else {
+                analyzer.analyze(_timeData, spectre);
+            }
+            final CfarDetector.Detections detections = cfar.detect(spectre);
+            final int strongest = detections.strongest();
+            _reading._snrs[carrier] = strongest >= 0 ? detections.getSnr(strongest) : 0;
+            _reading._speeds[carrier] = strongest >= 0
+                    ? _velocity.speed(carrierHz, estimator.frequency(spectre, detections.getBin(strongest)))
+                    : Double.NaN;
+            estimator.endFrame(spectre);
+            return null;
+        }
+    }
+
+    private final Band[] _bands;
+    private final List<Band> _tasks = new ArrayList<>();
+    private final ExecutorService _executor; // null when everything runs on the caller's thread
+    private final DopplerVelocity _velocity;
+    private final Reading _reading;
+    private final int[] _order; // detected carriers sorted by speed, for the median
+    private short[] _hop;
+    private int _hopLength;
+    private double[] _timeData;
+
+    MultiCarrierAnalyzer(AudioParameters audio, AnalysisParameters analysis) {
+        final int nCarriers = audio.getCarrierCount();
+        _velocity = analysis.getVelocity();
+        _bands = new Band[nCarriers];
+        for (int i = 0; i < nCarriers; i++) {
+            _bands[i] = new Band(i, audio, analysis);
+        }
+        _reading = new Reading(nCarriers);
+        _order = new int[nCarriers];
+        // the calling thread takes the first band itself
+        final int nThreads = Math.min(nCarriers, Runtime.getRuntime().availableProcessors()) - 1;
+        if (nThreads > 0) {
+            _executor = Executors.newFixedThreadPool(nThreads, r -> {
+                final Thread thread = new Thread(r, "MultiCarrierAnalyzer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (int i = 1; i < nCarriers; i++) {
+                _tasks.add(_bands[i]);
+            }
+        } else {
+            _executor = null;
+        }
+    }
+
+    /**
+     * @return true if some band reads the windowed samples, false if they all zoom on the hops
+     */
+    boolean isWindowRead() {
+        for (Band band : _bands) {
+            if (band.analyzer != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param hop      the samples following the previous hop, fed to the bands that zoom
+     * @param timeData the windowed last nFftChunkSamples samples, read by the other bands; null
+     *                 until there are that many, which the zooms reach on the same hop
+     * @param out      receives the spectrum of the first carrier's band
+     * @return the fused reading, or null before the first whole window or if the calling thread
+     * was interrupted while waiting for the bands
+     */
+    Reading analyze(short[] hop, int length, double[] timeData, double[] out) {
+        _hop = hop;
+        _hopLength = length;
+        _timeData = timeData;
+        if (_executor == null) {
+            for (Band band : _bands) {
+                band.call();
+            }
+        } else {
+            final List<Future<Void>> futures = new ArrayList<>(_tasks.size());
+            for (Band band : _tasks) {
+                futures.add(_executor.submit(band));
+            }
+            _bands[0].call();
+            // the bands do not check for interrupts and may be inside a native transform, so an
+            // interrupt is only noted: they are all waited for before their engines can be closed
+            boolean isInterrupted = false;
+            for (Future<Void> future : futures) {
+                while (true) {
+                    try {
+                        future.get();
+                        break;
+                    } catch (InterruptedException e) {
+                        isInterrupted = true;
+                    } catch (ExecutionException e) {
+                        throw new IllegalStateException(e.getCause());
+                    }
+                }
+            }
+            if (isInterrupted) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        if (timeData == null) {
+            return null;
+        }
+        System.arraycopy(_bands[0].spectre, 0, out, 0, _bands[0].spectre.length);
+        fuse();
+        return _reading;
+    }
+
+    /**
+     * SNR-weighted median of the detected carriers' speeds.
+     */
+    private void fuse() {
+        int n = 0;
+        double totalWeight = 0;
+        for (int i = 0; i < _bands.length; i++) {
+            if (!Double.isNaN(_reading._speeds[i])) {
+                // insertion sort, there are only a handful of carriers
+                int j = n++;
+                while (j > 0 && _reading._speeds[_order[j - 1]] > _reading._speeds[i]) {
+                    _order[j] = _order[j - 1];
+                    j--;
+                }
+                _order[j] = i;
+                totalWeight += _reading._snrs[i];
+            }
+        }
+        _reading._nDetected = n;
+        _reading._speed = Double.NaN;
+        double weight = 0;
+        for (int j = 0; j < n; j++) {
+            weight += _reading._snrs[_order[j]];
+            if (2 * weight >= totalWeight) {
+                _reading._speed = _reading._speeds[_order[j]];
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return the detections in the first carrier's band of the last frame
+     */
+    CfarDetector.Detections getDetections() {
+        return _bands[0].cfar.getDetections();
+    }
+
+    /**
+     * Forgets the zooms' samples and the previous frame the PHASE estimator compares against.
+     */
+    void reset() {
+        for (Band band : _bands) {
+            band.estimator.reset();
+            if (band.zoom != null) {
+                band.zoom.reset();
+            }
+        }
+    }
+
+    /**
+     * Waits for the pool to finish whatever band it still runs, uninterruptibly, before the
+     * bands' engines are closed under it.
+     */
+    @Override
+    public void close() {
+        if (_executor != null) {
+            _executor.shutdown();
+            boolean isInterrupted = false;
+            while (true) {
+                try {
+                    if (_executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                        break;
+                    }
+                } catch (InterruptedException e) {
+                    isInterrupted = true;
+                }
+            }
+            if (isInterrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Band band : _bands) {
+            band.fft.close();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package agalilov.doppler;
+
+/**
+ * Block of captured samples travelling from the recording thread to the processing thread.
+ * The sequence number lets the consumer see exactly where blocks were lost.
+ */
+final class PcmChunk {
+    final short[] samples;
+    long sequence;
+    long captureNanos; // System.nanoTime() when the last sample arrived
+
+    PcmChunk(int size) {
+        samples = new short[size];
+    }
+}
@@ -0,0 +1,193 @@
+package agalilov.doppler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 16-bit mono PCM recording, a WAV file or headerless samples, replayed from a memory mapping.
+ * The samples are never copied before {@link ProcessingThread} moves them into its chunks.
+ * Unthrottled, a recording is analysed as fast as the FFT goes and every frame is computed,
+ * so two runs give the same result.
+ */
+public final class PcmFileSource implements AudioSource {
+    // mappings are limited to 2 GB, longer recordings are mapped piece by piece
+    private static final long SEGMENT_BYTES = 1L << 30;
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+    private final FileChannel _channel;
+    private final long _dataOffset, _dataBytes;
+    private final ByteOrder _order;
+    private final int _sampleRate;
+    private final RealTimePacer _pacer; // null when unthrottled
+    private ShortBuffer _segment = null;
+    private long _segmentStart = 0; // byte offset of _segment within the data
+    private long _delivered = 0;
+
+    private PcmFileSource(FileChannel channel, long dataOffset, long dataBytes, ByteOrder order,
+                          int sampleRate, boolean isRealTime) {
+        _channel = channel;
+        _dataOffset = dataOffset;
+        _dataBytes = dataBytes & ~1L;
+        _order = order;
+        _sampleRate = sampleRate;
+        _pacer = isRealTime ? new RealTimePacer(sampleRate) : null;
+    }
+
+    /**
+     * A RIFF/WAVE file with 16-bit mono PCM, plain or WAVE_FORMAT_EXTENSIBLE.
+     */
+    public static PcmFileSource wav(File file, boolean isRealTime) throws IOException {
+        final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            final ByteBuffer header = ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN);
+            read(channel, header, 0, 12);
+            if (!"RIFF".equals(fourCc(header, 0)) || !"WAVE".equals(fourCc(header, 8))) {
+                throw new IOException(file + " is not a RIFF/WAVE file");
+            }
+            int sampleRate = 0;
+            long position = 12;
+            while (position + 8 <= channel.size()) {
+                read(channel, header, position, 8);
+                final String id = fourCc(header, 0);
+                final long size = header.getInt(4) & 0xFFFFFFFFL;
+                final long body = position + 8;
+                if ("fmt ".equals(id)) {
+                    read(channel, header, body, (int) Math.min(size, header.capacity()));
+                    int format = header.getShort(0) & 0xFFFF;
+                    if (format == WAVE_FORMAT_EXTENSIBLE && size >= 26) {
+                        // the first two bytes of the sub-format GUID are the actual format tag
+                        format = header.getShort(24) & 0xFFFF;
+                    }
+                    final int channels = header.getShort(2);
+                    final int bits = header.getShort(14);
+                    if (format != WAVE_FORMAT_PCM || channels != 1 || bits != 16) {
+                        throw new IOException(file + ": only 16-bit mono PCM is supported, found format "
+                                + format + ", " + channels + " channel(s), " + bits + " bits");
+                    }
+                    sampleRate = header.getInt(4);
+                } else if ("data".equals(id)) {
+                    if (sampleRate == 0) {
+                        throw new IOException(file + ": data chunk before fmt chunk");
+                    }
+                    // streaming writers leave the size at 0 or 0xFFFFFFFF
+                    final long available = channel.size() - body;
+                    final long bytes = size == 0 || size > available ? available : size;
+                    return new PcmFileSource(channel, body, bytes, ByteOrder.LITTLE_ENDIAN,
+                            sampleRate, isRealTime);
+                }
+                // chunks are padded to an even size
+                position = body + size + (size & 1);
+            }
+            throw new IOException(file + " has no data chunk");
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Headerless 16-bit mono samples.
+     */
+    public static PcmFileSource raw(File file, int sampleRate, ByteOrder order, boolean isRealTime)
+            throws IOException {
+        final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        return new PcmFileSource(channel, 0, channel.size(), order, sampleRate, isRealTime);
+    }
+
+    private static void read(FileChannel channel, ByteBuffer dst, long position, int length)
+            throws IOException {
+        dst.clear().limit(length);
+        while (dst.hasRemaining()) {
+            if (channel.read(dst, position + dst.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+
+    private static String fourCc(ByteBuffer b, int offset) {
+        final byte[] id = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            id[i] = b.get(offset + i);
+        }
+        return new String(id, StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public int getSampleRate() {
+        return _sampleRate;
+    }
+
+    @Override
+    public boolean isRealTime() {
+        return _pacer != null;
+    }
+
+    /**
+     * @return length of the recording in samples
+     */
+    public long getSampleCount() {
+        return _dataBytes / 2;
+    }
+
+    @Override
+    public void start() {
+        if (_pacer != null) {
+            _pacer.start();
+        }
+    }
+
+    @Override
+    public int read(Sink sink) throws InterruptedException {
+        if (_segment == null || !_segment.hasRemaining()) {
+            if (!mapNextSegment()) {
+                return -1;
+            }
+        }
+        final int n = Math.min(MemoryAudioSource.BLOCK_SAMPLES, _segment.remaining());
+        if (_pacer != null) {
+            _pacer.await(_delivered + n);
+        }
+        final int end = _segment.position() + n;
+        _segment.limit(end);
+        try {
+            sink.write(_segment);
+        } finally {
+            _segment.limit(_segment.capacity());
+            _segment.position(end);
+        }
+        _delivered += n;
+        return n;
+    }
+
+    private boolean mapNextSegment() {
+        if (_segment != null) {
+            _segmentStart += 2L * _segment.capacity();
+        }
+        final long length = Math.min(SEGMENT_BYTES, _dataBytes - _segmentStart);
+        if (length <= 0) {
+            return false;
+        }
+        try {
+            _segment = _channel.map(FileChannel.MapMode.READ_ONLY, _dataOffset + _segmentStart, length)
+                    .order(_order)
+                    .asShortBuffer();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot map the recording", e);
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        try {
+            _channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
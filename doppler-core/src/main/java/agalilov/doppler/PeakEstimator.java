@@ -0,0 +1,180 @@
+package agalilov.doppler;
+
+import uk.me.berndporr.kiss_fft.KISSFastFourierTransformer;
+
+/**
+ * Frequency of a spectral peak between the bins of a {@link SpectrumLayout}, so the speed
+ * resolution is not tied to the window length.
+ * <p>
+ * The magnitude methods look at the peak bin and its neighbours one FFT bin
+ * (sampleRate / nFftChunkSamples) away, which in a ZOOM band are several layout bins apart.
+ * PHASE compares the bin with the same bin of the previous frame one hop earlier, so it needs
+ * every frame of the stream in order; it resolves offsets up to sampleRate / (2 * hopSamples)
+ * from the bin centre.
+ */
+public final class PeakEstimator {
+    public enum Method {
+        /** Centre of the bin, no interpolation. */
+        BIN,
+        /** Parabola through the log powers of the bin and its neighbours. */
+        PARABOLIC,
+        /** Jacobsen's complex three point estimator, its gain calibrated for the analysis window. */
+        JACOBSEN,
+        /** Quinn's second estimator; exact for the rectangular window only, others use JACOBSEN. */
+        QUINN,
+        /** Phase advance of the bin over one hop; the first frame after a reset uses JACOBSEN. */
+        PHASE
+    }
+
+    // offset, in FFT bins, the Jacobsen gain is calibrated at
+    private static final double CALIBRATION_OFFSET = 0.25;
+
+    private final Method _method;
+    private final SpectrumLayout _layout;
+    private final double _fftBinHz;
+    private final int _step; // layout bins per FFT bin
+    private final double _jacobsenGain;
+    private final double _mixHz; // BASEBAND shifts the carrier to 0 Hz before the transform
+    private final double _radiansPerHz; // phase advance over one hop
+    private final double[] _previous; // PHASE only
+    private boolean _hasPrevious = false;
+
+    PeakEstimator(AudioParameters audio, AnalysisParameters analysis, SpectrumLayout layout) {
+        final Method method = analysis.getPeakEstimator();
+        final boolean isTapered = analysis.getWindow() != KISSFastFourierTransformer.Window.RECTANGULAR;
+        _method = method == Method.QUINN && isTapered ? Method.JACOBSEN : method;
+        _layout = layout;
+        _fftBinHz = (double) audio.getSampleRate() / audio.getNFftChunkSamples();
+        _step = Math.max(1, (int) Math.round(_fftBinHz / layout.getBinHz()));
+        final boolean isBaseband = analysis.getSpectrumMode() == AnalysisParameters.SpectrumMode.BASEBAND;
+        final double[] window = new double[isBaseband
+                ? SpectrumLayout.basebandSize(audio, analysis)
+                : audio.getNFftChunkSamples()];
+        WindowTable.fill(analysis.getWindow(), analysis.getKaiserBeta(), window);
+        _jacobsenGain = CALIBRATION_OFFSET / jacobsenRatio(window, CALIBRATION_OFFSET);
+        _mixHz = isBaseband ? audio.getCarrierFreq() : 0;
+        _radiansPerHz = 2 * Math.PI * audio.getHopSamples() / audio.getSampleRate();
+        _previous = _method == Method.PHASE ? new double[2 * layout.getNBins()] : null;
+    }
+
+    /**
+     * Raw Jacobsen ratio for a tone {@code offset} FFT bins above a bin, straight from the window's
+     * transform; it is proportional to the offset for the usual windows.
+     */
+    private static double jacobsenRatio(double[] window, double offset) {
+        final int n = window.length;
+        final double[] x = new double[6]; // re/im at -1, 0 and +1 FFT bins from the tone's bin
+        for (int k = -1; k <= 1; k++) {
+            double re = 0, im = 0;
+            for (int i = 0; i < n; i++) {
+                final double phase = -2 * Math.PI * (k - offset) * i / n;
+                re += window[i] * Math.cos(phase);
+                im += window[i] * Math.sin(phase);
+            }
+            x[2 * (k + 1)] = re;
+            x[2 * (k + 1) + 1] = im;
+        }
+        return ratio(x[0], x[1], x[2], x[3], x[4], x[5]);
+    }
+
+    /**
+     * @return Re[(X-1 - X+1) / (2 X0 - X-1 - X+1)]
+     */
+    private static double ratio(double reM, double imM, double re0, double im0, double reP, double imP) {
+        final double nr = reM - reP, ni = imM - imP;
+        final double dr = 2 * re0 - reM - reP, di = 2 * im0 - imM - imP;
+        final double d = dr * dr + di * di;
+        return d > 0 ? (nr * dr + ni * di) / d : 0;
+    }
+
+    /**
+     * @param data interleaved re/im spectrum of the current frame
+     * @param bin  a peak of it, usually the strongest bin of an echo
+     * @return estimated frequency of the peak in Hz
+     */
+    double frequency(double[] data, int bin) {
+        final double binHz = _layout.frequency(bin);
+        final int below = bin - _step, above = bin + _step;
+        final boolean hasNeighbours = below >= 0 && above < data.length / 2;
+        switch (_method) {
+            case PARABOLIC:
+                return hasNeighbours ? binHz + _fftBinHz * parabolic(data, below, bin, above) : binHz;
+            case JACOBSEN:
+                return hasNeighbours ? binHz + _fftBinHz * jacobsen(data, below, bin, above) : binHz;
+            case QUINN:
+                return hasNeighbours ? binHz + _fftBinHz * quinn(data, below, bin, above) : binHz;
+            case PHASE:
+                if (_hasPrevious) {
+                    return binHz + phaseDeviation(data, bin) / _radiansPerHz;
+                }
+                return hasNeighbours ? binHz + _fftBinHz * jacobsen(data, below, bin, above) : binHz;
+            default:
+                return binHz;
+        }
+    }
+
+    /**
+     * Remembers the frame for PHASE; call once per frame after the last {@link #frequency}.
+     */
+    void endFrame(double[] data) {
+        if (_previous != null) {
+            System.arraycopy(data, 0, _previous, 0, _previous.length);
+            _hasPrevious = true;
+        }
+    }
+
+    /**
+     * Forgets the previous frame, e.g. after a gap in the input.
+     */
+    void reset() {
+        _hasPrevious = false;
+    }
+
+    private static double parabolic(double[] data, int below, int bin, int above) {
+        final double pm = PeakFinder.power(data, below);
+        final double p0 = PeakFinder.power(data, bin);
+        final double pp = PeakFinder.power(data, above);
+        if (pm <= 0 || p0 <= 0 || pp <= 0) {
+            return 0;
+        }
+        // a windowed peak is close to a Gaussian, i.e. a parabola in the log domain
+        final double lm = Math.log(pm), l0 = Math.log(p0), lp = Math.log(pp);
+        final double curvature = lm - 2 * l0 + lp;
+        return curvature < 0 ? 0.5 * (lm - lp) / curvature : 0;
+    }
+
+    private double jacobsen(double[] data, int below, int bin, int above) {
+        return _jacobsenGain * ratio(data[2 * below], data[2 * below + 1], data[2 * bin], data[2 * bin + 1],
+                data[2 * above], data[2 * above + 1]);
+    }
+
+    private static double quinn(double[] data, int below, int bin, int above) {
+        final double re0 = data[2 * bin], im0 = data[2 * bin + 1];
+        final double p0 = re0 * re0 + im0 * im0;
+        if (p0 <= 0) {
+            return 0;
+        }
+        final double a1 = (data[2 * below] * re0 + data[2 * below + 1] * im0) / p0;
+        final double a2 = (data[2 * above] * re0 + data[2 * above + 1] * im0) / p0;
+        final double d1 = a1 / (1 - a1), d2 = -a2 / (1 - a2);
+        return (d1 + d2) / 2 + tau(d1 * d1) - tau(d2 * d2);
+    }
+
+    private static double tau(double x) {
+        final double r = Math.sqrt(2.0 / 3);
+        return 0.25 * Math.log(3 * x * x + 6 * x + 1)
+                - Math.sqrt(6) / 24 * Math.log((x + 1 - r) / (x + 1 + r));
+    }
+
+    /**
+     * @return phase advance of the bin over the last hop beyond that of its centre frequency,
+     * wrapped to -pi..pi
+     */
+    private double phaseDeviation(double[] data, int bin) {
+        final double re = data[2 * bin], im = data[2 * bin + 1];
+        final double rePrev = _previous[2 * bin], imPrev = _previous[2 * bin + 1];
+        final double advance = Math.atan2(im * rePrev - re * imPrev, re * rePrev + im * imPrev);
+        final double expected = _radiansPerHz * (_layout.frequency(bin) - _mixHz);
+        return Math.IEEEremainder(advance - expected, 2 * Math.PI);
+    }
+}
@@ -0,0 +1,38 @@
+package agalilov.doppler;
+
+/**
+ * Peak search over interleaved re/im spectra, on squared magnitudes.
+ */
+public final class PeakFinder {
+    private PeakFinder() {
+    }
+
+    public static double power(double[] data, int bin) {
+        final double re = data[2 * bin];
+        final double im = data[2 * bin + 1];
+        return re * re + im * im;
+    }
+
+    /**
+     * @param from    first bin searched, clipped to 0
+     * @param to      bin after the last one searched, clipped to the spectrum length
+     * @param exclude bin left out of the search, e.g. the carrier; -1 for none
+     * @return the strongest bin or -1 if none of the searched bins has any energy
+     */
+    public static int strongestBin(double[] data, int from, int to, int exclude) {
+        final int end = Math.min(to, data.length / 2);
+        double max = 0;
+        int maxBin = -1;
+        for (int i = Math.max(0, from); i < end; i++) {
+            if (i == exclude) {
+                continue;
+            }
+            final double m = power(data, i);
+            if (m > max) {
+                max = m;
+                maxBin = i;
+            }
+        }
+        return maxBin;
+    }
+}
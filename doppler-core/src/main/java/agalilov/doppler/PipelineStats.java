@@ -0,0 +1,146 @@
+package agalilov.doppler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Where the time goes between the microphone and the screen. Every stage owns a
+ * {@link LatencyHistogram}, the counters are plain atomics: recording is a couple of
+ * System.nanoTime() calls and atomic increments per hop, nothing allocates or locks.
+ */
+public final class PipelineStats {
+    public enum Stage {
+        /** Blocked in AudioSource.read() until samples arrived. */
+        READ,
+        /** From the capture of a hop's last sample until the processing thread took it. */
+        QUEUE,
+        /** SpectrumProcessor.process() of a hop that completed a frame, the FFT included. */
+        TRANSFORM,
+        /** The IOnSpectreReady callbacks of a frame. */
+        DELIVERY,
+        /** Drawing a frame, lockCanvas() to unlockCanvasAndPost(). */
+        RENDER,
+        /** From the capture of a frame's newest sample until it was posted to the screen. */
+        END_TO_END
+    }
+
+    public enum Counter {
+        FRAMES,
+        /**
+         * Frames not computed because their samples were lost or the window was refilling after
+         * the gap, see ProcessingThread.
+         */
+        DROPPED_FRAMES,
+        /** Chunks overwritten in the ring before the processing thread got to them. */
+        DROPPED_CHUNKS,
+        /** Times the recording thread found no free chunk to record into. */
+        POOL_EXHAUSTED,
+        LOST_SAMPLES,
+        /** Frames replaced in the draw queue by a fresher one before being drawn. */
+        COALESCED_FRAMES,
+        DRAWN_FRAMES
+    }
+
+    private final LatencyHistogram[] _stages = new LatencyHistogram[Stage.values().length];
+    private final AtomicLongArray _counters = new AtomicLongArray(Counter.values().length);
+    // capture time of the frame being delivered, read by the callbacks on the processing thread
+    private long _frameCaptureNanos = 0;
+
+    PipelineStats() {
+        for (int i = 0; i < _stages.length; i++) {
+            _stages[i] = new LatencyHistogram();
+        }
+    }
+
+    public void record(Stage stage, long nanos) {
+        _stages[stage.ordinal()].record(nanos);
+    }
+
+    LatencyHistogram get(Stage stage) {
+        return _stages[stage.ordinal()];
+    }
+
+    public void add(Counter counter, long n) {
+        _counters.addAndGet(counter.ordinal(), n);
+    }
+
+    /**
+     * For counts kept elsewhere, e.g. by {@link SpscRing}.
+     */
+    void set(Counter counter, long value) {
+        _counters.set(counter.ordinal(), value);
+    }
+
+    public long get(Counter counter) {
+        return _counters.get(counter.ordinal());
+    }
+
+    /**
+     * @return System.nanoTime() at the capture of the newest sample of the frame passed to the
+     * IOnSpectreReady callback that is running; valid inside the callback only
+     */
+    public long getFrameCaptureNanos() {
+        return _frameCaptureNanos;
+    }
+
+    void setFrameCaptureNanos(long nanos) {
+        _frameCaptureNanos = nanos;
+    }
+
+    void reset() {
+        for (LatencyHistogram stage : _stages) {
+            stage.reset();
+        }
+        for (int i = 0; i < _counters.length(); i++) {
+            _counters.set(i, 0);
+        }
+    }
+
+    /**
+     * @return one line per stage and one with the counters, for an overlay
+     */
+    public String summary() {
+        final StringBuilder sb = new StringBuilder();
+        for (Stage stage : Stage.values()) {
+            final LatencyHistogram h = get(stage);
+            sb.append(String.format(Locale.ROOT, "%-10s p50 %6d p99 %6d max %8.0f us (%d)%n",
+                    stage, h.getPercentileMicros(0.5), h.getPercentileMicros(0.99), h.getMaxMicros(),
+                    h.getCount()));
+        }
+        for (Counter counter : Counter.values()) {
+            sb.append(counter).append(' ').append(get(counter)).append("  ");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * CSV for offline comparison: a summary row per stage, a row per counter and every non-empty
+     * histogram bucket as {@code bucket,stage,lower bound us,count}.
+     */
+    public void writeCsv(Writer out) throws IOException {
+        out.write("stage,count,mean_us,p50_us,p90_us,p99_us,max_us\n");
+        for (Stage stage : Stage.values()) {
+            final LatencyHistogram h = get(stage);
+            out.write(String.format(Locale.ROOT, "%s,%d,%.1f,%d,%d,%d,%.1f%n", stage, h.getCount(),
+                    h.getMeanMicros(), h.getPercentileMicros(0.5), h.getPercentileMicros(0.9),
+                    h.getPercentileMicros(0.99), h.getMaxMicros()));
+        }
+        out.write("counter,value\n");
+        for (Counter counter : Counter.values()) {
+            out.write(counter + "," + get(counter) + "\n");
+        }
+        out.write("bucket,stage,lower_us,count\n");
+        for (Stage stage : Stage.values()) {
+            final LatencyHistogram h = get(stage);
+            for (int i = 0; i < LatencyHistogram.bucketCount(); i++) {
+                final long count = h.getBucketCount(i);
+                if (count > 0) {
+                    out.write("bucket," + stage + "," + LatencyHistogram.lowerBound(i) + "," + count + "\n");
+                }
+            }
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,290 @@
+package agalilov.doppler;
+
+import java.nio.ShortBuffer;
+import java.util.logging.Logger;
+
+public class ProcessingThread extends Thread {
+    public interface IOnSpectreReady {
+        /**
+         * @param data interleaved re/im pairs of the n/2+1 spectrum points. The array is reused
+         *             for the next frame, so copy it if it has to outlive the call.
+         */
+        void onSpectreReady(double[] data);
+
+        /**
+         * Every mode but RANGE, right before {@link #onSpectreReady(double[])} for the same
+         * frame, so that the spectrum can be handed on together with them.
+         *
+         * @param detections reused for the next frame as well
+         */
+        default void onDetectionsReady(CfarDetector.Detections detections) {
+        }
+
+        /**
+         * With averaging on only, right before {@link #onSpectreReady(double[])} for the same
+         * frame.
+         *
+         * @param data the average of the power spectra up to the frame, interleaved like the
+         *             raw spectrum with the magnitudes in re and 0 in im; reused for the next frame
+         */
+        default void onAveragedSpectreReady(double[] data) {
+        }
+
+        /**
+         * MULTI_CARRIER only, right after {@link #onSpectreReady(double[])} for the same frame.
+         *
+         * @param reading reused for the next frame as well
+         */
+        default void onSpeedReady(MultiCarrierAnalyzer.Reading reading) {
+        }
+
+        /**
+         * RANGE only, right after {@link #onSpectreReady(double[])} for the same frame.
+         *
+         * @param profile reused for the next frame as well
+         */
+        default void onRangeReady(RangeProcessor.Profile profile) {
+        }
+
+        /**
+         * FULL_FFT, ZOOM and BASEBAND only, right after {@link #onSpectreReady(double[])} for the
+         * same frame.
+         *
+         * @param frequency strongest echo beside the carrier, between bins; NaN if there is none
+         * @param speed     its speed in m/s, NaN if there is none
+         */
+        default void onEchoReady(double frequency, double speed) {
+        }
+
+        /**
+         * FULL_FFT, ZOOM and BASEBAND only, right after {@link #onEchoReady(double, double)}.
+         *
+         * @param tracker the echoes followed so far, updated in place by the next frame
+         */
+        default void onTracksReady(EchoTracker tracker) {
+        }
+    }
+
+    static final String TAG = "ProcessingThread";
+    // java.util.logging ends up in logcat on Android and on stderr elsewhere
+    private static final Logger LOG = Logger.getLogger(TAG);
+    // a few hops of slack, older ones are overwritten by fresher data
+    private static final int CHUNK_QUEUE_CAPACITY = 4;
+    // queued chunks + the one being filled + the one being appended to the history
+    private static final int CHUNK_BUFFERS = CHUNK_QUEUE_CAPACITY + 2;
+    private static final long DROP_REPORT_INTERVAL_MS = 1000;
+    // marks the end of a finite source, see endOfStream()
+    private static final PcmChunk END_OF_STREAM = new PcmChunk(0);
+    private final int _hopSamples;
+    private final boolean _isLossless;
+    //final int FFT_CHUNK_SIZE_POW2 = FFT_CHUNK_SIZE * FFT_CHUNK_SIZE;
+    private PcmChunk _chunk = null; // owned by the recording thread while it is being filled
+    private int _index = 0;
+    private long _nextSequence = 0;
+    private final BufferPool<PcmChunk> _chunkPool;
+    private final SpscRing<PcmChunk> _chunks;
+    private long _lostSamples = 0;
+    private final SpectrumProcessor _processor;
+    private final IOnSpectreReady _onSpectreReady;
+    private final PipelineStats _stats = new PipelineStats();
+    private volatile long _droppedFrames = 0;
+    private long _reportedDroppedFrames = 0;
+    private long _lastDropReportMs = System.nanoTime() / 1000000 - DROP_REPORT_INTERVAL_MS;
+
+    public ProcessingThread(IOnSpectreReady onSpectreReady, AudioParameters audio, AnalysisParameters analysis) {
+        this(onSpectreReady, audio, analysis, false);
+    }
+
+    /**
+     * @param isLossless false for a live source: the recording thread never waits and old chunks
+     *                   are dropped when processing falls behind. true for a source that is not
+     *                   real time: {@link #enqueue} waits for processing instead, every hop gets
+     *                   its frame.
+     */
+    public ProcessingThread(IOnSpectreReady onSpectreReady, AudioParameters audio, AnalysisParameters analysis,
+                            boolean isLossless) {
+        _onSpectreReady = onSpectreReady;
+        _hopSamples = audio.getHopSamples();
+        _isLossless = isLossless;
+        // lossless: room for every buffer plus the end marker, so offer() never evicts
+        _chunks = new SpscRing<>(isLossless ? CHUNK_BUFFERS + 1 : CHUNK_QUEUE_CAPACITY,
+                SpscRing.OverflowPolicy.OVERWRITE_OLDEST);
+        _chunkPool = new BufferPool<>(CHUNK_BUFFERS, () -> new PcmChunk(audio.getHopSamples()));
+        _processor = new SpectrumProcessor(audio, analysis);
+    }
+
+    /**
+     * Called from the recording thread. {@code rawData} is copied, the caller keeps ownership of it.
+     */
+    void enqueue(short[] rawData, int nRead) throws InterruptedException {
+        enqueue(ShortBuffer.wrap(rawData, 0, nRead));
+    }
+
+    /**
+     * Called from the recording thread. The remaining samples are copied straight into the
+     * chunks and the buffer's position is advanced to its limit.
+     */
+    void enqueue(ShortBuffer samples) throws InterruptedException {
+        enqueue(samples, System.nanoTime());
+    }
+
+    /**
+     * @param captureNanos System.nanoTime() when the samples arrived, for {@link PipelineStats}
+     */
+    void enqueue(ShortBuffer samples, long captureNanos) throws InterruptedException {
+        while (samples.hasRemaining()) {
+            if (_chunk == null) {
+                _chunk = acquireChunk();
+                if (_chunk == null) {
+                    // every buffer is owned by the FFT side, nothing to record into;
+                    // skipping a sequence number makes the processing side see the gap
+                    final int rest = samples.remaining();
+                    _lostSamples += rest;
+                    _stats.add(PipelineStats.Counter.LOST_SAMPLES, rest);
+                    _nextSequence += (rest + _hopSamples - 1) / _hopSamples;
+                    samples.position(samples.limit());
+                    return;
+                }
+            }
+            final int n = Math.min(_hopSamples - _index, samples.remaining());
+            samples.get(_chunk.samples, _index, n);
+            _index += n;
+
+            if (_index == _hopSamples) {
+                _chunk.sequence = _nextSequence++;
+                _chunk.captureNanos = captureNanos;
+                // the recording thread never waits here: a full ring evicts the oldest chunk,
+                // which is then refilled instead of acquiring another one from the pool
+                _chunk = _chunks.offer(_chunk);
+                _index = 0;
+            }
+        }
+    }
+
+    /**
+     * Called from the recording thread when a finite source is exhausted. Everything enqueued
+     * so far is processed, then the thread ends; a trailing partial hop is discarded.
+     */
+    void endOfStream() {
+        _chunks.offer(END_OF_STREAM);
+    }
+
+    private PcmChunk acquireChunk() throws InterruptedException {
+        if (_isLossless) {
+            return _chunkPool.take();
+        }
+        PcmChunk chunk = _chunkPool.acquire();
+        if (chunk == null) {
+            chunk = _chunks.evictOldest();
+        }
+        return chunk;
+    }
+
+    /**
+     * @return the timings and counters of this pipeline, shared with whoever records the later
+     * stages (e.g. the view drawing the frames)
+     */
+    public PipelineStats getStats() {
+        return _stats;
+    }
+
+    public long getDroppedChunks() {
+        return _chunks.getDropped();
+    }
+
+    public long getPoolExhaustedCount() {
+        return _chunkPool.getExhaustedCount();
+    }
+
+    /**
+     * @return number of hops whose FFT frame was not computed because their samples were lost,
+     * or because the window was still refilling after such a gap
+     */
+    public long getDroppedFrames() {
+        return _droppedFrames;
+    }
+
+    @Override
+    public void run() {
+        long expectedSequence = 0;
+        boolean isRefilling = false;
+        try {
+            while (!interrupted()) {
+                final PcmChunk chunk = _chunks.take();
+                if (chunk == END_OF_STREAM) {
+                    break;
+                }
+                final long takenNanos = System.nanoTime();
+                _stats.record(PipelineStats.Stage.QUEUE, takenNanos - chunk.captureNanos);
+                _stats.set(PipelineStats.Counter.DROPPED_CHUNKS, getDroppedChunks());
+                _stats.set(PipelineStats.Counter.POOL_EXHAUSTED, getPoolExhaustedCount());
+                if (chunk.sequence != expectedSequence) {
+                    // samples are missing: the history would splice two unrelated pieces of signal
+                    _droppedFrames += chunk.sequence - expectedSequence;
+                    _stats.add(PipelineStats.Counter.DROPPED_FRAMES, chunk.sequence - expectedSequence);
+                    _processor.reset();
+                    isRefilling = true;
+                    reportDroppedFrames();
+                }
+                expectedSequence = chunk.sequence + 1;
+                final long captureNanos = chunk.captureNanos;
+                final boolean isFrameReady = _processor.process(chunk.samples);
+                _chunkPool.release(chunk);
+                if (isRefilling && !isFrameReady) {
+                    // the window is not whole again yet, this hop's frame is lost to the gap too
+                    _droppedFrames++;
+                    _stats.add(PipelineStats.Counter.DROPPED_FRAMES, 1);
+                } else {
+                    isRefilling = false;
+                }
+
+                if (isFrameReady) {
+                    final long processedNanos = System.nanoTime();
+                    _stats.record(PipelineStats.Stage.TRANSFORM, processedNanos - takenNanos);
+                    _stats.add(PipelineStats.Counter.FRAMES, 1);
+                    _stats.setFrameCaptureNanos(captureNanos);
+                    if (_processor.getDetections() != null) {
+                        _onSpectreReady.onDetectionsReady(_processor.getDetections());
+                    }
+                    if (_processor.isAveraged()) {
+                        _onSpectreReady.onAveragedSpectreReady(_processor.getAveragedSpectre());
+                    }
+                    _onSpectreReady.onSpectreReady(_processor.getSpectre());
+                    if (_processor.getReading() != null) {
+                        _onSpectreReady.onSpeedReady(_processor.getReading());
+                    }
+                    if (_processor.getRangeProfile() != null) {
+                        _onSpectreReady.onRangeReady(_processor.getRangeProfile());
+                    }
+                    if (_processor.isEchoEstimated()) {
+                        _onSpectreReady.onEchoReady(_processor.getEchoFrequency(), _processor.getEchoSpeed());
+                        _onSpectreReady.onTracksReady(_processor.getTracker());
+                    }
+                    _stats.record(PipelineStats.Stage.DELIVERY, System.nanoTime() - processedNanos);
+                }
+            }
+        } catch (InterruptedException e) {
+            LOG.fine("Interrupted");
+        } finally {
+            LOG.fine("Dropped frames: " + _droppedFrames
+                    + ", dropped chunks: " + getDroppedChunks()
+                    + ", pool exhausted: " + getPoolExhaustedCount()
+                    + ", lost samples: " + _lostSamples);
+            try {
+                _processor.close();
+            } catch (Exception e) {
+                LOG.severe(e.toString());
+            }
+        }
+    }
+
+    private void reportDroppedFrames() {
+        final long now = System.nanoTime() / 1000000;
+        if (now - _lastDropReportMs >= DROP_REPORT_INTERVAL_MS) {
+            LOG.warning("Dropped " + (_droppedFrames - _reportedDroppedFrames)
+                    + " frame(s), " + _droppedFrames + " in total");
+            _reportedDroppedFrames = _droppedFrames;
+            _lastDropReportMs = now;
+        }
+    }
+}
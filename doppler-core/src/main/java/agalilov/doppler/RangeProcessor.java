@@ -0,0 +1,136 @@
+package agalilov.doppler;
+
+import uk.me.berndporr.kiss_fft.KISSFastFourierTransformer;
+
+/**
+ * RANGE: matched filter of the last nFftChunkSamples samples against the chirp PlayAudioThread
+ * emits, as a circular cross-correlation through the real FFT, x * r = IFFT(X conj(R)).
+ * <p>
+ * The chirp repeats exactly once per window, so any window of the received signal is a circular
+ * shift of one period and the circular correlation is the true one. The spectrum of the reference
+ * is computed once; a frame costs one forward and one inverse real FFT.
+ * <p>
+ * Playback and recording are not synchronised, so delays are measured from the direct path,
+ * the strongest peak: the speaker is a few centimetres from the microphone.
+ */
+public final class RangeProcessor {
+    /**
+     * One frame's range profile, overwritten by the next frame.
+     */
+    public static final class Profile {
+        private final double[] _magnitudes;
+        private final double _metresPerLag;
+        private final int _minEchoLag;
+
+        private Profile(int n, double metresPerLag, int minEchoLag) {
+            _magnitudes = new double[n];
+            _metresPerLag = metresPerLag;
+            _minEchoLag = minEchoLag;
+        }
+
+        /**
+         * @return correlation magnitude per lag behind the direct path, which is at lag 0
+         */
+        public double[] getMagnitudes() {
+            return _magnitudes;
+        }
+
+        /**
+         * @return distance to the reflector (or from the source) for a lag
+         */
+        public double range(int lag) {
+            return lag * _metresPerLag;
+        }
+
+        /**
+         * @return lag of the strongest echo outside the main lobe of the direct path and below half
+         * the period, beyond which lags alias; -1 if there is none
+         */
+        public int strongestEcho() {
+            double max = 0;
+            int maxLag = -1;
+            for (int i = _minEchoLag; i < _magnitudes.length / 2; i++) {
+                if (_magnitudes[i] > max) {
+                    max = _magnitudes[i];
+                    maxLag = i;
+                }
+            }
+            return maxLag;
+        }
+    }
+
+    private final FftEngine _fft;
+    private final double[] _reference; // conj(R), the n/2+1 points of the chirp's spectrum
+    private final double[] _timeData, _product, _correlation;
+    private final Profile _profile;
+
+    /**
+     * @param fft used by the calling thread only
+     */
+    RangeProcessor(AudioParameters audio, AnalysisParameters analysis, FftEngine fft) {
+        final int n = audio.getNFftChunkSamples();
+        _fft = fft;
+        _timeData = new double[n];
+        _product = new double[n + 2];
+        _correlation = new double[n];
+        _reference = new double[n + 2];
+
+        // exactly the samples PlayAudioThread sends
+        final short[] chirp = new short[n];
+        chirp(audio, analysis).build().fill(chirp, 0, n);
+        for (int i = 0; i < n; i++) {
+            _timeData[i] = chirp[i];
+        }
+        _fft.transformReal(_timeData, _reference);
+        for (int k = 1; k < _reference.length; k += 2) {
+            _reference[k] = -_reference[k];
+        }
+
+        final DopplerVelocity velocity = analysis.getVelocity();
+        final double metresPerLag = velocity.getSoundSpeed() / audio.getSampleRate()
+                / (velocity.isReflectedSound() ? 2 : 1);
+        // twice the width of the autocorrelation's main lobe, fs / bandwidth samples
+        final int minEchoLag = (int) Math.ceil(2.0 * audio.getSampleRate() / analysis.getChirpBandwidth());
+        _profile = new Profile(n, metresPerLag, minEchoLag);
+    }
+
+    /**
+     * @return the periodic chirp for RANGE mode, one period per FFT window at full scale
+     */
+    public static ToneGenerator.Builder chirp(AudioParameters audio, AnalysisParameters analysis) {
+        final double endHz = audio.getCarrierFreq();
+        return new ToneGenerator.Builder(audio.getSampleRate())
+                .addPeriodicChirp(endHz - analysis.getChirpBandwidth(), endHz,
+                        audio.getNFftChunkSamples(), 1);
+    }
+
+    /**
+     * @param pcm     circular history of nFftChunkSamples samples
+     * @param start   index of its oldest sample
+     * @param spectre receives the unwindowed real spectrum of the history
+     */
+    Profile process(short[] pcm, int start, double[] spectre) {
+        _fft.window(pcm, start, KISSFastFourierTransformer.Window.RECTANGULAR, 0, _timeData);
+        _fft.transformReal(_timeData, spectre);
+        for (int k = 0; k < _product.length; k += 2) {
+            final double xr = spectre[k], xi = spectre[k + 1];
+            final double rr = _reference[k], ri = _reference[k + 1];
+            _product[k] = xr * rr - xi * ri;
+            _product[k + 1] = xr * ri + xi * rr;
+        }
+        _fft.inverseReal(_product, _correlation);
+
+        final int n = _correlation.length;
+        int direct = 0;
+        for (int i = 1; i < n; i++) {
+            if (Math.abs(_correlation[i]) > Math.abs(_correlation[direct])) {
+                direct = i;
+            }
+        }
+        final double[] magnitudes = _profile._magnitudes;
+        for (int i = 0; i < n; i++) {
+            magnitudes[i] = Math.abs(_correlation[(direct + i) % n]);
+        }
+        return _profile;
+    }
+}
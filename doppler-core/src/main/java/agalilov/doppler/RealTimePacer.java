@@ -0,0 +1,27 @@
+package agalilov.doppler;
+
+/**
+ * Holds a replayed source back to the wall clock, so it behaves like a live one.
+ */
+final class RealTimePacer {
+    private final int _sampleRate;
+    private long _startNanos;
+
+    RealTimePacer(int sampleRate) {
+        _sampleRate = sampleRate;
+    }
+
+    void start() {
+        _startNanos = System.nanoTime();
+    }
+
+    /**
+     * Sleeps until {@code samples} samples after {@link #start()} are due.
+     */
+    void await(long samples) throws InterruptedException {
+        final long due = _startNanos + samples * 1000000000L / _sampleRate;
+        for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+            Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+        }
+    }
+}
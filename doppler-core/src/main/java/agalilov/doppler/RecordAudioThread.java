@@ -0,0 +1,73 @@
+package agalilov.doppler;
+
+import java.nio.ShortBuffer;
+import java.util.logging.Logger;
+
+/**
+ * Pulls samples from an {@link AudioSource} into a {@link ProcessingThread} it owns.
+ * A live source runs until the thread is interrupted, a finite one until it is exhausted
+ * and every frame of it has been processed.
+ */
+public class RecordAudioThread extends Thread {
+    static final String TAG = "RecordAudioThread";
+    private static final Logger LOG = Logger.getLogger(TAG);
+    private final AudioSource _source;
+    private final ProcessingThread _processingThread;
+    private final PipelineStats _stats;
+    private final AudioSource.Sink _sink = this::write;
+    private long _readStartNanos;
+
+    public RecordAudioThread(AudioSource source, AudioParameters params, AnalysisParameters analysis,
+                             ProcessingThread.IOnSpectreReady onSpectreReady) {
+        if (source.getSampleRate() != params.getSampleRate()) {
+            throw new IllegalArgumentException("Source sample rate " + source.getSampleRate()
+                    + " does not match " + params.getSampleRate());
+        }
+        _source = source;
+        _processingThread = new ProcessingThread(onSpectreReady, params, analysis, !source.isRealTime());
+        _stats = _processingThread.getStats();
+    }
+
+    public ProcessingThread getProcessingThread() {
+        return _processingThread;
+    }
+
+    @Override
+    public void run() {
+        boolean isExhausted = false;
+        try {
+            _source.start();
+            _processingThread.start();
+            // ProcessingThread.enqueue() copies the samples, the source may reuse its buffer
+            while (!interrupted()) {
+                _readStartNanos = System.nanoTime();
+                if (_source.read(_sink) < 0) {
+                    isExhausted = true;
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            LOG.fine("Interrupted");
+        } finally {
+            if (isExhausted) {
+                _processingThread.endOfStream();
+            } else {
+                _processingThread.interrupt();
+            }
+            try {
+                _processingThread.join();
+            } catch (InterruptedException e) {
+                LOG.severe("Unexpected exception");
+            }
+            _source.close();
+        }
+    }
+
+    private void write(ShortBuffer samples) throws InterruptedException {
+        final long now = System.nanoTime();
+        _stats.record(PipelineStats.Stage.READ, now - _readStartNanos);
+        _processingThread.enqueue(samples, now);
+        // a source may write several times per read
+        _readStartNanos = System.nanoTime();
+    }
+}
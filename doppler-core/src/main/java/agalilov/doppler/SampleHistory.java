@@ -0,0 +1,81 @@
+package agalilov.doppler;
+
+/**
+ * Circular history of the last {@code size} samples, the analysis window of the sliding STFT.
+ */
+final class SampleHistory {
+    private final short[] _samples;
+    private int _pos = 0;  // where the next sample goes, i.e. the oldest sample once full
+    private int _fill = 0; // samples appended since the last reset, saturates at size
+
+    SampleHistory(int size) {
+        _samples = new short[size];
+    }
+
+    void append(short[] src, int offset, int length) {
+        while (length > 0) {
+            final int n = Math.min(length, _samples.length - _pos);
+            System.arraycopy(src, offset, _samples, _pos, n);
+            offset += n;
+            length -= n;
+            _pos = (_pos + n) % _samples.length;
+            _fill = Math.min(_samples.length, _fill + n);
+        }
+    }
+
+    /**
+     * Forgets the collected samples, e.g. after a gap in the input.
+     */
+    void reset() {
+        _pos = 0;
+        _fill = 0;
+    }
+
+    boolean isFull() {
+        return _fill == _samples.length;
+    }
+
+    int size() {
+        return _samples.length;
+    }
+
+    /**
+     * The circular buffer itself, for consumers that unroll it on their own, starting at
+     * {@link #getOldest()}. Only meaningful while {@link #isFull()}.
+     */
+    short[] getSamples() {
+        return _samples;
+    }
+
+    int getOldest() {
+        return _pos;
+    }
+
+    /**
+     * Unrolls the window into {@code dst}, oldest sample first.
+     */
+    void copyTo(double[] dst) {
+        int j = 0;
+        for (int i = _pos; i < _samples.length; i++) {
+            dst[j++] = _samples[i];
+        }
+        for (int i = 0; i < _pos; i++) {
+            dst[j++] = _samples[i];
+        }
+    }
+
+    void copyTo(float[] dst) {
+        int j = 0;
+        for (int i = _pos; i < _samples.length; i++) {
+            dst[j++] = _samples[i];
+        }
+        for (int i = 0; i < _pos; i++) {
+            dst[j++] = _samples[i];
+        }
+    }
+
+    void copyTo(short[] dst) {
+        System.arraycopy(_samples, _pos, dst, 0, _samples.length - _pos);
+        System.arraycopy(_samples, 0, dst, _samples.length - _pos, _pos);
+    }
+}
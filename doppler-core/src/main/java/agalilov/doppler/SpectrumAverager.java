@@ -0,0 +1,116 @@
+package agalilov.doppler;
+
+/**
+ * Averages the power spectra of consecutive frames, so that the noise of a single periodogram
+ * settles into a steady floor; the frames overlap by nFftChunkSamples - hopSamples, which makes
+ * the average a Welch estimate.
+ * <p>
+ * The output is interleaved like the spectra it averages, with the square root of the averaged
+ * power in re and 0 in im, so that anything reading powers (bars, waterfall, peaks) takes either.
+ * Phases do not average, estimators that need them stay on the raw spectrum.
+ */
+public final class SpectrumAverager {
+    public enum Kind {
+        /** No averaging, the raw spectrum is used as is. */
+        NONE,
+        /** Exponential moving average: O(1) per bin and no history. */
+        EXPONENTIAL,
+        /**
+         * Plain mean of the last N frames, N = 2 * time constant / hop, the same noise reduction
+         * as EXPONENTIAL; keeps the N frames' powers and their running sum.
+         */
+        WELCH
+    }
+
+    private final Kind _kind;
+    private final double _alpha; // EXPONENTIAL
+    private final double[] _powers; // the running average, or the running sum for WELCH
+    private final double[] _history; // WELCH: N frames of powers, oldest at _next
+    private final int _nFrames;
+    private final double[] _out;
+    private int _next = 0, _count = 0;
+
+    /**
+     * @param nBins bins of the averaged spectra
+     */
+    SpectrumAverager(AudioParameters audio, AnalysisParameters analysis, int nBins) {
+        _kind = analysis.getAveraging();
+        final double hopSeconds = (double) audio.getHopSamples() / audio.getSampleRate();
+        final double timeConstant = analysis.getAveragingTimeConstant();
+        _alpha = 1 - Math.exp(-hopSeconds / timeConstant);
+        _nFrames = _kind == Kind.WELCH ? Math.max(1, (int) Math.round(2 * timeConstant / hopSeconds)) : 1;
+        _powers = new double[nBins];
+        _history = _kind == Kind.WELCH ? new double[_nFrames * nBins] : null;
+        _out = new double[2 * nBins];
+    }
+
+    /**
+     * @param data interleaved re/im spectrum of the next frame
+     * @return the average up to data, see {@link #getSpectre()}
+     */
+    double[] add(double[] data) {
+        final int nBins = _powers.length;
+        if (_kind == Kind.WELCH) {
+            final int offset = _next * nBins;
+            if (_count == _nFrames && _next == 0) {
+                // once per pass over the history the sum is redone, the running one drifts by rounding
+                for (int i = 0; i < nBins; i++) {
+                    _powers[i] = 0;
+                }
+                for (int frame = 1; frame < _nFrames; frame++) {
+                    for (int i = 0, j = frame * nBins; i < nBins; i++, j++) {
+                        _powers[i] += _history[j];
+                    }
+                }
+            } else if (_count == _nFrames) {
+                for (int i = 0; i < nBins; i++) {
+                    _powers[i] -= _history[offset + i];
+                }
+            } else {
+                _count++;
+            }
+            final double scale = 1.0 / _count;
+            for (int i = 0; i < nBins; i++) {
+                final double power = PeakFinder.power(data, i);
+                _history[offset + i] = power;
+                _powers[i] += power;
+                _out[2 * i] = Math.sqrt(Math.max(0, _powers[i] * scale));
+            }
+            _next = (_next + 1) % _nFrames;
+        } else {
+            // the first frame starts the average, otherwise it would rise from 0
+            final double alpha = _count == 0 ? 1 : _alpha;
+            _count = 1;
+            for (int i = 0; i < nBins; i++) {
+                _powers[i] += alpha * (PeakFinder.power(data, i) - _powers[i]);
+                _out[2 * i] = Math.sqrt(_powers[i]);
+            }
+        }
+        return _out;
+    }
+
+    /**
+     * @return interleaved like the added spectra, overwritten by the next frame
+     */
+    double[] getSpectre() {
+        return _out;
+    }
+
+    /**
+     * @return the number of frames the next average spans at most, 1 for EXPONENTIAL
+     */
+    int getFrames() {
+        return _nFrames;
+    }
+
+    /**
+     * Forgets the averaged frames, e.g. after a gap in the input.
+     */
+    void reset() {
+        _next = 0;
+        _count = 0;
+        for (int i = 0; i < _powers.length; i++) {
+            _powers[i] = 0;
+        }
+    }
+}
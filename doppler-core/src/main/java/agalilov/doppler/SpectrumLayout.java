@@ -0,0 +1,87 @@
+package agalilov.doppler;
+
+/**
+ * Frequencies of the bins delivered to {@link ProcessingThread.IOnSpectreReady}:
+ * bin i is at {@code getFirstBinHz() + i * getBinHz()}.
+ */
+public final class SpectrumLayout {
+    private final double _firstBinHz, _binHz;
+    private final int _nBins, _centralBin;
+
+    public SpectrumLayout(double firstBinHz, double binHz, int nBins, int centralBin) {
+        _firstBinHz = firstBinHz;
+        _binHz = binHz;
+        _nBins = nBins;
+        _centralBin = centralBin;
+    }
+
+    public static SpectrumLayout of(AudioParameters audio, AnalysisParameters analysis) {
+        final double fftBinHz = (double) audio.getSampleRate() / audio.getNFftChunkSamples();
+        final double carrier = audio.getCarrierFreq();
+        switch (analysis.getSpectrumMode()) {
+            case ZOOM:
+            case MULTI_CARRIER:
+                return band(audio, analysis, 0);
+            case BASEBAND: {
+                // complex FFT after fftshift: -fs/2D .. +fs/2D around the carrier
+                final int nBins = basebandSize(audio, analysis);
+                return new SpectrumLayout(carrier - (nBins / 2) * fftBinHz, fftBinHz, nBins, nBins / 2);
+            }
+            default:
+                return new SpectrumLayout(0, fftBinHz, audio.getNFftChunkSamples() / 2 + 1, audio.getHarmonic());
+        }
+    }
+
+    /**
+     * @return the ZOOM band around carrier {@code carrier}, which sits exactly on the central bin
+     */
+    static SpectrumLayout band(AudioParameters audio, AnalysisParameters analysis, int carrier) {
+        final double binHz = (double) audio.getSampleRate() / audio.getNFftChunkSamples()
+                / analysis.getZoomFactor();
+        final double carrierHz = audio.getCarrierFreq(carrier);
+        final int nBins = analysis.getZoomBins();
+        final double firstBinHz = Math.max(0, carrierHz - (nBins / 2) * binHz);
+        return new SpectrumLayout(firstBinHz, binHz, nBins,
+                (int) Math.round((carrierHz - firstBinHz) / binHz));
+    }
+
+    /**
+     * @return number of complex baseband samples in one BASEBAND analysis window
+     */
+    static int basebandSize(AudioParameters audio, AnalysisParameters analysis) {
+        if (audio.getNFftChunkSamples() % analysis.getDecimation() != 0) {
+            throw new IllegalArgumentException("FFT window must be a multiple of the decimation");
+        }
+        return audio.getNFftChunkSamples() / analysis.getDecimation();
+    }
+
+    /**
+     * @return bins on either side of the central one covered by the carrier's main lobe, with
+     * half an FFT bin of margin
+     */
+    int carrierLobeBins(AudioParameters audio, AnalysisParameters analysis) {
+        final double fftBinHz = (double) audio.getSampleRate() / audio.getNFftChunkSamples();
+        return (int) Math.ceil((WindowTable.mainLobeHalfWidth(analysis.getWindow(),
+                analysis.getKaiserBeta()) + 0.5) * fftBinHz / _binHz);
+    }
+
+    public double getFirstBinHz() {
+        return _firstBinHz;
+    }
+
+    public double getBinHz() {
+        return _binHz;
+    }
+
+    public int getNBins() {
+        return _nBins;
+    }
+
+    public int getCentralBin() {
+        return _centralBin;
+    }
+
+    public double frequency(double bin) {
+        return _firstBinHz + bin * _binHz;
+    }
+}
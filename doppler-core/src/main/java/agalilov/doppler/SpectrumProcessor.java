@@ -0,0 +1,308 @@
+package agalilov.doppler;
+
+import uk.me.berndporr.kiss_fft.KISSFastFourierTransformer;
+
+/**
+ * Turns consecutive hops of PCM into spectra, synchronously on the caller's thread.
+ * {@link ProcessingThread} runs one behind its chunk queue; offline code can feed a recording
+ * straight through {@link #process(short[])} as fast as the FFT goes.
+ */
+public final class SpectrumProcessor implements AutoCloseable {
+    // echoes are looked for within the shift of this speed, in m/s, from the carrier
+    static final double MAX_ECHO_SPEED = 6;
+
+    private final int _nFftChunkSamples;
+    private final int _hopSamples;
+    private final FftEngine _fft;
+    private final SpectrumLayout _layout;
+    private final SampleHistory _history;
+    private final double[] _timeData;
+    private final double[] _spectre;
+    private final KISSFastFourierTransformer.Window _window;
+    private final double _kaiserBeta;
+    // ZOOM mode only, the decimating zoom where it is cheaper than a BandAnalyzer
+    private final ZoomFft _zoom;
+    private final BandAnalyzer _bandAnalyzer;
+    private final MultiCarrierAnalyzer _multiCarrier; // MULTI_CARRIER mode only
+    private MultiCarrierAnalyzer.Reading _reading = null;
+    private final RangeProcessor _range; // RANGE mode only
+    private RangeProcessor.Profile _rangeProfile = null;
+    // FULL_FFT, ZOOM and BASEBAND only
+    private final CfarDetector _cfar;
+    private final EchoTracker _tracker;
+    private final SpectrumAverager _averager; // null unless averaging
+    // BASEBAND mode only
+    private final Downconverter _downconverter;
+    private final ComplexHistory _basebandHistory;
+    private final double[] _basebandBlock, _basebandData, _basebandSpectre, _basebandWindow;
+
+    public SpectrumProcessor(AudioParameters audio, AnalysisParameters analysis) {
+        _nFftChunkSamples = audio.getNFftChunkSamples();
+        _hopSamples = audio.getHopSamples();
+        _history = new SampleHistory(_nFftChunkSamples);
+        _timeData = new double[_nFftChunkSamples];
+        _window = analysis.getWindow();
+        _kaiserBeta = analysis.getKaiserBeta();
+        _fft = FftEngine.create(analysis.getFftEngine());
+        _layout = SpectrumLayout.of(audio, analysis);
+        _zoom = analysis.getSpectrumMode() == AnalysisParameters.SpectrumMode.ZOOM
+                ? ZoomFft.create(audio, analysis, _layout, 0, _fft)
+                : null;
+        _bandAnalyzer = analysis.getSpectrumMode() == AnalysisParameters.SpectrumMode.ZOOM && _zoom == null
+                ? BandAnalyzer.create(_layout, _nFftChunkSamples, audio.getSampleRate(), _fft)
+                : null;
+        _multiCarrier = analysis.getSpectrumMode() == AnalysisParameters.SpectrumMode.MULTI_CARRIER
+                ? new MultiCarrierAnalyzer(audio, analysis)
+                : null;
+        _range = analysis.getSpectrumMode() == AnalysisParameters.SpectrumMode.RANGE
+                ? new RangeProcessor(audio, analysis, _fft)
+                : null;
+        _spectre = new double[2 * _layout.getNBins()];
+        _averager = analysis.getAveraging() != SpectrumAverager.Kind.NONE
+                ? new SpectrumAverager(audio, analysis, _layout.getNBins())
+                : null;
+        if (_range == null && _multiCarrier == null) {
+            final DopplerVelocity velocity = analysis.getVelocity();
+            final double carrierHz = _layout.frequency(_layout.getCentralBin());
+            final int echoBins = (int) Math.ceil((velocity.receivedFrequency(carrierHz, MAX_ECHO_SPEED)
+                    - carrierHz) / _layout.getBinHz());
+            _cfar = new CfarDetector(audio, analysis, _layout, echoBins);
+            _tracker = new EchoTracker(_layout, _cfar, new PeakEstimator(audio, analysis, _layout), velocity,
+                    (double) audio.getSampleRate() / _nFftChunkSamples);
+        } else {
+            _cfar = null;
+            _tracker = null;
+        }
+        if (analysis.getSpectrumMode() == AnalysisParameters.SpectrumMode.BASEBAND) {
+            final int size = SpectrumLayout.basebandSize(audio, analysis);
+            _downconverter = new Downconverter(audio.getSampleRate(), audio.getCarrierFreq(),
+                    analysis.getDecimation(), analysis.getTapsPerBranch());
+            _basebandHistory = new ComplexHistory(size);
+            _basebandBlock = new double[2 * Downconverter.maxOutput(_hopSamples, analysis.getDecimation())];
+            _basebandData = new double[2 * size];
+            _basebandSpectre = new double[2 * size];
+            _basebandWindow = new double[size];
+            _fft.getWindow(_window, _kaiserBeta, _basebandWindow);
+        } else {
+            _downconverter = null;
+            _basebandHistory = null;
+            _basebandBlock = _basebandData = _basebandSpectre = _basebandWindow = null;
+        }
+    }
+
+    /**
+     * @param hop the hopSamples samples following the previous hop, from index 0
+     * @return true if {@link #getSpectre()} holds a new frame
+     */
+    public boolean process(short[] hop) {
+        final boolean isFrameReady = _downconverter != null ? appendBaseband(hop)
+                : _zoom != null ? appendZoom(hop)
+                : _multiCarrier != null ? appendMultiCarrier(hop)
+                : appendSamples(hop);
+        if (isFrameReady && _tracker != null) {
+            _tracker.update(_spectre);
+        }
+        if (isFrameReady && _averager != null) {
+            _averager.add(_spectre);
+        }
+        return isFrameReady;
+    }
+
+    /**
+     * Forgets the collected samples, e.g. after a gap in the input; the history would
+     * otherwise splice two unrelated pieces of signal.
+     */
+    public void reset() {
+        _history.reset();
+        if (_tracker != null) {
+            _tracker.reset();
+        }
+        if (_averager != null) {
+            _averager.reset();
+        }
+        if (_multiCarrier != null) {
+            _multiCarrier.reset();
+        }
+        if (_zoom != null) {
+            _zoom.reset();
+        }
+        if (_downconverter != null) {
+            _downconverter.reset();
+            _basebandHistory.reset();
+        }
+    }
+
+    /**
+     * @return interleaved re/im pairs of the {@link SpectrumLayout} bins, overwritten by the
+     * next frame
+     */
+    public double[] getSpectre() {
+        return _spectre;
+    }
+
+    /**
+     * @return the average of the power spectra up to the frame in {@link #getSpectre()},
+     * interleaved like it with the magnitudes in re and 0 in im; the raw spectrum itself when
+     * averaging is off. Overwritten by the next frame.
+     */
+    public double[] getAveragedSpectre() {
+        return _averager != null ? _averager.getSpectre() : _spectre;
+    }
+
+    /**
+     * @return true if {@link #getAveragedSpectre()} differs from {@link #getSpectre()}
+     */
+    public boolean isAveraged() {
+        return _averager != null;
+    }
+
+    /**
+     * @return MULTI_CARRIER only: the fused speed of the frame in {@link #getSpectre()}, null
+     * in the other modes or before the first frame
+     */
+    public MultiCarrierAnalyzer.Reading getReading() {
+        return _reading;
+    }
+
+    /**
+     * @return RANGE only: the range profile of the frame in {@link #getSpectre()}, null in the
+     * other modes or before the first frame
+     */
+    public RangeProcessor.Profile getRangeProfile() {
+        return _rangeProfile;
+    }
+
+    /**
+     * @return true in the modes that look for a single echo, FULL_FFT, ZOOM and BASEBAND
+     */
+    public boolean isEchoEstimated() {
+        return _tracker != null;
+    }
+
+    /**
+     * @return the echoes standing out of the noise in the frame in {@link #getSpectre()}: beside
+     * the carrier in FULL_FFT, ZOOM and BASEBAND, within the gates of the tracks between the
+     * tracker's scans; in the first carrier's band in MULTI_CARRIER; null in RANGE
+     */
+    public CfarDetector.Detections getDetections() {
+        if (_cfar != null) {
+            return _cfar.getDetections();
+        }
+        return _multiCarrier != null ? _multiCarrier.getDetections() : null;
+    }
+
+    /**
+     * @return FULL_FFT, ZOOM and BASEBAND only: the echoes followed up to the frame in
+     * {@link #getSpectre()}; null in the other modes
+     */
+    public EchoTracker getTracker() {
+        return _tracker;
+    }
+
+    /**
+     * @return FULL_FFT, ZOOM and BASEBAND only: filtered frequency of the strongest echo beside
+     * the carrier in the frame in {@link #getSpectre()}; NaN if no echo stands out of the noise
+     * or in the other modes
+     */
+    public double getEchoFrequency() {
+        final EchoTracker.Track track = _tracker != null ? _tracker.strongestDetected() : null;
+        return track != null ? track.getFrequency() : Double.NaN;
+    }
+
+    /**
+     * @return speed of the {@link #getEchoFrequency()} echo in m/s, NaN if there is none
+     */
+    public double getEchoSpeed() {
+        final EchoTracker.Track track = _tracker != null ? _tracker.strongestDetected() : null;
+        return track != null ? track.getSpeed() : Double.NaN;
+    }
+
+    public SpectrumLayout getLayout() {
+        return _layout;
+    }
+
+    public int getHopSamples() {
+        return _hopSamples;
+    }
+
+    @Override
+    public void close() {
+        if (_multiCarrier != null) {
+            _multiCarrier.close();
+        }
+        _fft.close();
+    }
+
+    /**
+     * FULL_FFT, ZOOM without a decimating zoom, and RANGE: the window is the last
+     * nFftChunkSamples raw samples, tapered by the analysis window (RANGE correlates them
+     * untapered).
+     */
+    private boolean appendSamples(short[] hop) {
+        _history.append(hop, 0, _hopSamples);
+        if (!_history.isFull()) {
+            return false;
+        }
+        if (_range != null) {
+            _rangeProfile = _range.process(_history.getSamples(), _history.getOldest(), _spectre);
+        } else if (_bandAnalyzer != null) {
+            _fft.window(_history.getSamples(), _history.getOldest(), _window, _kaiserBeta, _timeData);
+            _bandAnalyzer.analyze(_timeData, _spectre);
+        } else {
+            // unrolled, converted and windowed by the engine, straight from the history
+            _fft.transformReal(_history.getSamples(), _history.getOldest(),
+                    _window, _kaiserBeta, _spectre);
+        }
+        return true;
+    }
+
+    /**
+     * ZOOM with a decimating zoom: the hop is mixed down and decimated as it arrives.
+     */
+    private boolean appendZoom(short[] hop) {
+        _zoom.append(hop, _hopSamples);
+        if (!_zoom.isFull()) {
+            return false;
+        }
+        _zoom.analyze(_spectre);
+        return true;
+    }
+
+    /**
+     * MULTI_CARRIER: every hop goes to the bands with a decimating zoom, the windowed raw
+     * samples to the others once there is a whole window.
+     */
+    private boolean appendMultiCarrier(short[] hop) {
+        _history.append(hop, 0, _hopSamples);
+        final boolean isFull = _history.isFull();
+        if (isFull && _multiCarrier.isWindowRead()) {
+            _fft.window(_history.getSamples(), _history.getOldest(), _window, _kaiserBeta, _timeData);
+        }
+        _reading = _multiCarrier.analyze(hop, _hopSamples, isFull ? _timeData : null, _spectre);
+        return _reading != null;
+    }
+
+    /**
+     * BASEBAND: the hop is mixed down and decimated as it arrives, the window is the last
+     * nFftChunkSamples / decimation complex samples.
+     */
+    private boolean appendBaseband(short[] hop) {
+        final int n = _downconverter.process(hop, _hopSamples, _basebandBlock);
+        _basebandHistory.append(_basebandBlock, n);
+        if (!_basebandHistory.isFull()) {
+            return false;
+        }
+        _basebandHistory.copyTo(_basebandData);
+        for (int i = 0; i < _basebandWindow.length; i++) {
+            _basebandData[2 * i] *= _basebandWindow[i];
+            _basebandData[2 * i + 1] *= _basebandWindow[i];
+        }
+        _fft.transformComplex(_basebandData, _basebandSpectre, false);
+        // fftshift: the n/2 negative frequencies (below the carrier) first
+        final int size = _basebandSpectre.length / 2;
+        final int negative = size / 2;
+        System.arraycopy(_basebandSpectre, 2 * (size - negative), _spectre, 0, 2 * negative);
+        System.arraycopy(_basebandSpectre, 0, _spectre, 2 * negative, 2 * (size - negative));
+        return true;
+    }
+}
@@ -0,0 +1,151 @@
+package agalilov.doppler;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded lock-free ring for one producer thread and one consumer thread.
+ * <p>
+ * The producer never waits: when the ring is full the {@link OverflowPolicy} decides which
+ * element is lost, and the lost element is handed back to the producer so it can be reused.
+ * The head index is only ever advanced by CAS, either by the consumer taking an element or by
+ * the producer evicting the oldest one, so every published element is owned by exactly one side.
+ */
+public final class SpscRing<T> {
+    public enum OverflowPolicy {
+        /** Evict the oldest queued element to make room for the new one. */
+        OVERWRITE_OLDEST,
+        /** Keep the queued elements and reject the new one. */
+        DROP_NEWEST
+    }
+
+    private final AtomicReferenceArray<T> _slots;
+    private final int _capacity;
+    private final OverflowPolicy _policy;
+    private final AtomicLong _head = new AtomicLong();
+    private final AtomicLong _tail = new AtomicLong();
+    private final AtomicLong _dropped = new AtomicLong();
+    private volatile Thread _waiter = null;
+
+    public SpscRing(int capacity, OverflowPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        _capacity = capacity;
+        _policy = policy;
+        _slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Producer side. Publishes {@code e} and wakes up the consumer if it is waiting in {@link #take()}.
+     *
+     * @return the element that did not fit (the evicted oldest one or {@code e} itself, depending on
+     * the policy), or {@code null} if nothing was lost
+     */
+    public T offer(T e) {
+        final long t = _tail.get();
+        T lost = null;
+        while (t - _head.get() >= _capacity) {
+            if (_policy == OverflowPolicy.DROP_NEWEST) {
+                _dropped.incrementAndGet();
+                return e;
+            }
+            lost = evictOldest();
+            if (lost != null) {
+                break;
+            }
+        }
+        _slots.lazySet(index(t), e);
+        _tail.set(t + 1);
+        final Thread waiter = _waiter;
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+        return lost;
+    }
+
+    /**
+     * Producer side. Removes the oldest queued element, it is counted as dropped.
+     *
+     * @return the evicted element or {@code null} if the consumer has already taken everything
+     */
+    public T evictOldest() {
+        for (; ; ) {
+            final long h = _head.get();
+            if (h == _tail.get()) {
+                return null;
+            }
+            final T e = _slots.get(index(h));
+            if (_head.compareAndSet(h, h + 1)) {
+                _dropped.incrementAndGet();
+                return e;
+            }
+        }
+    }
+
+    /**
+     * Consumer side. Takes the oldest element without waiting.
+     *
+     * @return the element or {@code null} if the ring is empty
+     */
+    public T poll() {
+        for (; ; ) {
+            final long h = _head.get();
+            if (h == _tail.get()) {
+                return null;
+            }
+            // read the slot before the CAS: once head moves on, the producer may reuse the slot
+            final T e = _slots.get(index(h));
+            if (_head.compareAndSet(h, h + 1)) {
+                return e;
+            }
+        }
+    }
+
+    /**
+     * Consumer side. Takes the oldest element, parking the thread while the ring is empty.
+     */
+    public T take() throws InterruptedException {
+        T e = poll();
+        if (e != null) {
+            return e;
+        }
+        // the waiter is published before the re-check, so a concurrent offer() either becomes
+        // visible to poll() or sees the waiter and unparks it: no lost wake-ups
+        _waiter = Thread.currentThread();
+        try {
+            for (; ; ) {
+                e = poll();
+                if (e != null) {
+                    return e;
+                }
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            _waiter = null;
+        }
+    }
+
+    public int size() {
+        return (int) Math.max(0, _tail.get() - _head.get());
+    }
+
+    public int capacity() {
+        return _capacity;
+    }
+
+    /**
+     * @return number of elements lost because the ring was full
+     */
+    public long getDropped() {
+        return _dropped.get();
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % _capacity);
+    }
+}
@@ -0,0 +1,194 @@
+package agalilov.doppler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sum of tones and chirps for the emitter. Each voice is a 32-bit integer phase accumulator
+ * that wraps around instead of growing, and reads a sine table with linear interpolation:
+ * a few integer and float operations per sample, phase continuous for any session length.
+ * <p>
+ * The table has 2^{@value #TABLE_BITS} points; interpolation keeps the spurs below -130 dB,
+ * well under anything the analysis could mistake for an echo.
+ */
+public final class ToneGenerator {
+    private static final int TABLE_BITS = 12;
+    private static final int FRACTION_BITS = 32 - TABLE_BITS;
+    private static final float FRACTION_SCALE = 1f / (1 << FRACTION_BITS);
+    private static final float[] SINE = new float[(1 << TABLE_BITS) + 1]; // +1 guard point
+
+    static {
+        for (int i = 0; i < SINE.length; i++) {
+            SINE[i] = (float) Math.sin(2 * Math.PI * i / (1 << TABLE_BITS));
+        }
+    }
+
+    /**
+     * A tone when start and end are the same, otherwise a chirp that restarts every period.
+     */
+    private static final class Voice {
+        final float amplitude;
+        final long startIncrement, endIncrement; // 32.32 fixed point turns per sample
+        final long slope; // added to the increment every sample of a linear chirp
+        final int periodSamples, steps, stepSamples;
+        final boolean isPeriodic; // the phase restarts with every period
+        int phase;
+        long increment;
+        int position; // sample within the period
+
+        Voice(int sampleRate, double startHz, double endHz, double periodSeconds, int steps, double amplitude,
+              boolean isPeriodic) {
+            this.amplitude = (float) (amplitude * Short.MAX_VALUE);
+            this.startIncrement = toIncrement(startHz, sampleRate);
+            this.endIncrement = toIncrement(endHz, sampleRate);
+            this.periodSamples = periodSeconds > 0 ? Math.max(1, (int) Math.round(periodSeconds * sampleRate)) : 0;
+            this.steps = steps;
+            this.stepSamples = steps > 0 ? periodSamples / steps : 0;
+            this.slope = periodSamples > 0 && steps == 0 ? (endIncrement - startIncrement) / periodSamples : 0;
+            this.increment = startIncrement;
+            this.isPeriodic = isPeriodic;
+        }
+
+        private static long toIncrement(double hz, int sampleRate) {
+            return Math.round(hz / sampleRate * 0x1p64);
+        }
+
+        private long stepIncrement(int step) {
+            return startIncrement + (endIncrement - startIncrement) / steps * step;
+        }
+
+        void render(float[] mix, int n) {
+            int phase = this.phase;
+            long increment = this.increment;
+            int position = this.position;
+            for (int i = 0; i < n; i++) {
+                final int index = phase >>> FRACTION_BITS;
+                final float fraction = (phase & ((1 << FRACTION_BITS) - 1)) * FRACTION_SCALE;
+                final float a = SINE[index];
+                mix[i] += amplitude * (a + (SINE[index + 1] - a) * fraction);
+                phase += (int) (increment >>> 32);
+                if (periodSamples > 0) {
+                    if (++position == periodSamples) {
+                        position = 0;
+                        increment = startIncrement;
+                        if (isPeriodic) {
+                            phase = 0;
+                        }
+                    } else if (steps > 0) {
+                        if (position % stepSamples == 0) {
+                            increment = stepIncrement(Math.min(steps - 1, position / stepSamples));
+                        }
+                    } else {
+                        increment += slope;
+                    }
+                }
+            }
+            this.phase = phase;
+            this.increment = increment;
+            this.position = position;
+        }
+    }
+
+    private final Voice[] _voices;
+    private float[] _mix = new float[0];
+
+    private ToneGenerator(Builder builder) {
+        _voices = new Voice[builder._voices.size()];
+        for (int i = 0; i < _voices.length; i++) {
+            _voices[i] = builder._voices.get(i).create(builder._sampleRate);
+        }
+    }
+
+    /**
+     * Continues the signal where the previous call stopped, clipping the sum to 16 bits.
+     */
+    public void fill(short[] out, int offset, int length) {
+        if (_mix.length < length) {
+            _mix = new float[length];
+        }
+        final float[] mix = _mix;
+        Arrays.fill(mix, 0, length, 0f);
+        for (Voice voice : _voices) {
+            voice.render(mix, length);
+        }
+        for (int i = 0; i < length; i++) {
+            out[offset + i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(mix[i])));
+        }
+    }
+
+    public static final class Builder {
+        private interface VoiceFactory {
+            Voice create(int sampleRate);
+        }
+
+        private final int _sampleRate;
+        private final List<VoiceFactory> _voices = new ArrayList<>();
+
+        public Builder(int sampleRate) {
+            _sampleRate = sampleRate;
+        }
+
+        /**
+         * @param amplitude fraction of the full scale; the sum of all voices is clipped, not normalized
+         */
+        public Builder addTone(double hz, double amplitude) {
+            checkFrequency(hz);
+            _voices.add(sampleRate -> new Voice(sampleRate, hz, hz, 0, 0, amplitude, false));
+            return this;
+        }
+
+        /**
+         * A sweep from {@code startHz} to {@code endHz} that starts over every {@code periodSeconds}.
+         *
+         * @param steps 0 for a linear sweep, otherwise the number of constant frequency steps
+         */
+        public Builder addChirp(double startHz, double endHz, double periodSeconds, int steps, double amplitude) {
+            checkFrequency(startHz);
+            checkFrequency(endHz);
+            if (periodSeconds <= 0 || steps < 0 || steps > periodSeconds * _sampleRate) {
+                throw new IllegalArgumentException("Bad chirp period or steps");
+            }
+            _voices.add(sampleRate -> new Voice(sampleRate, startHz, endHz, periodSeconds, steps, amplitude, false));
+            return this;
+        }
+
+        /**
+         * A linear chirp that repeats exactly every {@code periodSamples}, e.g. for a circular
+         * matched filter: {@code endHz} is moved by less than sampleRate / periodSamples so that a
+         * period holds a whole number of turns, and the phase restarts with every period.
+         */
+        public Builder addPeriodicChirp(double startHz, double endHz, int periodSamples, double amplitude) {
+            final double endHzExact = periodicChirpEnd(_sampleRate, startHz, endHz, periodSamples);
+            checkFrequency(startHz);
+            checkFrequency(endHzExact);
+            _voices.add(sampleRate -> new Voice(sampleRate, startHz, endHzExact,
+                    (double) periodSamples / sampleRate, 0, amplitude, true));
+            return this;
+        }
+
+        /**
+         * @return the end frequency nearest to {@code endHz} for which the samples of one period
+         * advance the phase by a whole number of turns
+         */
+        static double periodicChirpEnd(int sampleRate, double startHz, double endHz, int periodSamples) {
+            if (periodSamples < 2) {
+                throw new IllegalArgumentException("Period must be at least 2 samples");
+            }
+            // sample m advances by (startHz + (endHz - startHz) m / P) / fs, summed over m < P
+            final long turns = Math.round(((double) periodSamples * startHz
+                    + (endHz - startHz) * (periodSamples - 1) / 2) / sampleRate);
+            return startHz + 2 * (turns * sampleRate - (double) periodSamples * startHz) / (periodSamples - 1);
+        }
+
+        private void checkFrequency(double hz) {
+            if (hz < 0 || hz >= _sampleRate / 2.0) {
+                throw new IllegalArgumentException("Frequency must be between 0 and the Nyquist frequency");
+            }
+        }
+
+        public ToneGenerator build() {
+            return new ToneGenerator(this);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package agalilov.doppler;
+
+/**
+ * Spectrogram history for the waterfall view: a ring of columns, one per spectrum, each a strip
+ * of bins centred on the carrier and coloured through a lookup table. Adding a spectrum colours
+ * one column only, however long the history is; the view keeps the pixels and blits the ring
+ * starting at {@link #getOldestColumn()}.
+ */
+public final class Waterfall {
+    static final int LEVELS = 256;
+    // the reference level follows a fading echo down by about 1 dB per 20 columns
+    private static final double REFERENCE_DECAY = 0.989;
+    private static final int[] PALETTE_STOPS = {
+            0xFF000000, 0xFF0000A0, 0xFF00B0FF, 0xFFFFFF00, 0xFFFF2000, 0xFFFFFFFF};
+
+    private final int _nRows, _nColumns;
+    private final double _levelsPerDb;
+    private final int[] _palette;
+    private final int[] _column;
+    private int _newest;
+    private double _reference;
+
+    /**
+     * @param nRows          bins shown, the carrier in the middle row and higher frequencies above it
+     * @param nColumns       spectra kept
+     * @param dynamicRangeDb span from the reference level, the strongest echo seen lately, down to
+     *                       the darkest colour
+     */
+    public Waterfall(int nRows, int nColumns, double dynamicRangeDb) {
+        if (nRows <= 0 || nColumns <= 0 || dynamicRangeDb <= 0) {
+            throw new IllegalArgumentException("nRows, nColumns and dynamicRangeDb must be positive");
+        }
+        _nRows = nRows;
+        _nColumns = nColumns;
+        _levelsPerDb = (LEVELS - 1) / dynamicRangeDb;
+        _palette = palette(LEVELS);
+        _column = new int[nRows];
+        clear();
+    }
+
+    /**
+     * @return {@code levels} ARGB colours from black through blue, cyan, yellow and red to white
+     */
+    static int[] palette(int levels) {
+        final int[] palette = new int[levels];
+        final int nSegments = PALETTE_STOPS.length - 1;
+        for (int i = 0; i < levels; i++) {
+            final double position = (double) i * nSegments / (levels - 1);
+            final int segment = Math.min((int) position, nSegments - 1);
+            final double t = position - segment;
+            final int from = PALETTE_STOPS[segment], to = PALETTE_STOPS[segment + 1];
+            int argb = 0xFF000000;
+            for (int shift = 0; shift < 24; shift += 8) {
+                final int a = (from >> shift) & 0xFF, b = (to >> shift) & 0xFF;
+                argb |= (int) Math.round(a + t * (b - a)) << shift;
+            }
+            palette[i] = argb;
+        }
+        return palette;
+    }
+
+    /**
+     * Forgets the history; every column reads as the darkest colour.
+     */
+    public void clear() {
+        _newest = _nColumns - 1;
+        _reference = 0;
+    }
+
+    /**
+     * Colours the next column of the ring from a spectrum.
+     *
+     * @param data       interleaved re/im spectrum
+     * @param centralBin the carrier's bin, drawn in the middle row
+     * @return the column written; its colours are in {@link #getColumn()} until the next call
+     */
+    public int add(double[] data, int centralBin) {
+        final int nBins = data.length / 2;
+        final int top = centralBin + _nRows / 2;
+        // the carrier would pin the scale, so the reference is the strongest echo around it
+        final int peak = PeakFinder.strongestBin(data, top - _nRows + 1, top + 1, centralBin);
+        final double peakPower = peak >= 0 ? PeakFinder.power(data, peak) : 0;
+        _reference = Math.max(peakPower, _reference * REFERENCE_DECAY);
+
+        final double dbPerLog = 10 * _levelsPerDb;
+        for (int row = 0; row < _nRows; row++) {
+            final int bin = top - row;
+            int level = 0;
+            if (bin >= 0 && bin < nBins && _reference > 0) {
+                final double power = PeakFinder.power(data, bin);
+                if (power > 0) {
+                    level = (int) (LEVELS - 1 + dbPerLog * Math.log10(power / _reference));
+                    level = Math.max(0, Math.min(LEVELS - 1, level));
+                }
+            }
+            _column[row] = _palette[level];
+        }
+        _newest = (_newest + 1) % _nColumns;
+        return _newest;
+    }
+
+    /**
+     * @return ARGB colours of the last column added, the top row first
+     */
+    public int[] getColumn() {
+        return _column;
+    }
+
+    /**
+     * @return the column to draw leftmost, where the ring wraps
+     */
+    public int getOldestColumn() {
+        return (_newest + 1) % _nColumns;
+    }
+
+    public int getRows() {
+        return _nRows;
+    }
+
+    public int getColumns() {
+        return _nColumns;
+    }
+
+    /**
+     * @return background colour of the waterfall, the lowest level
+     */
+    public int getFloorColor() {
+        return _palette[0];
+    }
+}
@@ -0,0 +1,75 @@
+package agalilov.doppler;
+
+import uk.me.berndporr.kiss_fft.KISSFastFourierTransformer;
+
+/**
+ * The last window table asked for, recomputed only when the window, beta or size changes.
+ * Same periodic definitions as the native tables in kiss-fft-lib.cpp.
+ */
+final class WindowTable {
+    private KISSFastFourierTransformer.Window _window = null;
+    private double _kaiserBeta = Double.NaN;
+    private double[] _table = new double[0];
+
+    double[] get(KISSFastFourierTransformer.Window window, double kaiserBeta, int n) {
+        if (window != _window || kaiserBeta != _kaiserBeta || _table.length != n) {
+            _table = new double[n];
+            fill(window, kaiserBeta, _table);
+            _window = window;
+            _kaiserBeta = kaiserBeta;
+        }
+        return _table;
+    }
+
+    static void fill(KISSFastFourierTransformer.Window window, double kaiserBeta, double[] out) {
+        final int n = out.length;
+        final double step = 2 * Math.PI / n;
+        final double i0Beta = besselI0(kaiserBeta);
+        for (int i = 0; i < n; i++) {
+            switch (window) {
+                case HANN:
+                    out[i] = 0.5 - 0.5 * Math.cos(step * i);
+                    break;
+                case BLACKMAN_HARRIS:
+                    out[i] = 0.35875 - 0.48829 * Math.cos(step * i) + 0.14128 * Math.cos(2 * step * i)
+                            - 0.01168 * Math.cos(3 * step * i);
+                    break;
+                case KAISER: {
+                    final double r = 2.0 * i / n - 1;
+                    out[i] = besselI0(kaiserBeta * Math.sqrt(1 - r * r)) / i0Beta;
+                    break;
+                }
+                default:
+                    out[i] = 1;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @return half the width of the main lobe, in bins of the window length
+     */
+    static double mainLobeHalfWidth(KISSFastFourierTransformer.Window window, double kaiserBeta) {
+        switch (window) {
+            case HANN:
+                return 2;
+            case BLACKMAN_HARRIS:
+                return 4;
+            case KAISER:
+                return Math.sqrt(1 + (kaiserBeta / Math.PI) * (kaiserBeta / Math.PI));
+            default:
+                return 1;
+        }
+    }
+
+    // modified Bessel function of the first kind, order 0, by its power series
+    private static double besselI0(double x) {
+        double sum = 1, term = 1;
+        final double q = x * x / 4;
+        for (int k = 1; k < 200 && term > sum * 1e-17; k++) {
+            term *= q / ((double) k * k);
+            sum += term;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,149 @@
+package agalilov.doppler;
+
+/**
+ * A ZOOM band the decimating way: as the hops arrive, a {@link Downconverter} mixes the carrier
+ * down to 0 Hz and decimates by D; each frame windows the last nFftChunkSamples / D baseband
+ * samples and zero pads them zoomFactor times into one small complex FFT. The filter sees every
+ * sample once rather than once per overlapping window, so a frame costs a fraction of the full
+ * transform where a {@link BandAnalyzer} costs more than it.
+ * <p>
+ * D is picked so that the band spans at most half of the decimated rate; the filter's droop over
+ * the band is divided out and the phases are referred to the start of the window, so the bins
+ * match a BandAnalyzer's up to the filter's aliasing, for a window that ends the filter's group
+ * delay less D - 1 samples before the newest sample.
+ */
+final class ZoomFft {
+    private final Downconverter _downconverter;
+    private final ComplexHistory _history;
+    private final FftEngine _fft;
+    private final int _decimation, _size, _fftSize, _nBins, _centralBin;
+    // the carrier is harmonic / nFftChunkSamples cycles per sample
+    private final int _harmonic, _nFftChunkSamples;
+    private final double[] _block, _window, _work, _workSpectre;
+    private final double[] _gains; // D over the filter's gain, per bin
+    private long _nOutputs = 0;
+
+    /**
+     * @return a decimating zoom for the band around carrier {@code carrier}, null if it cannot
+     * produce the band's bins or a BandAnalyzer would be cheaper
+     */
+    static ZoomFft create(AudioParameters audio, AnalysisParameters analysis, SpectrumLayout layout,
+                          int carrier, FftEngine fft) {
+        final int decimation = decimation(audio, analysis, layout, fft);
+        if (decimation == 0 || cost(audio, analysis, layout, decimation) >= BandAnalyzer.cost(layout,
+                audio.getNFftChunkSamples(), fft)) {
+            return null;
+        }
+        return new ZoomFft(audio, analysis, layout, carrier, fft, decimation);
+    }
+
+    /**
+     * @return the largest D that divides the window and leaves the band within half the
+     * decimated rate, 0 if there is none above 1 or the band is cut at 0 Hz
+     */
+    static int decimation(AudioParameters audio, AnalysisParameters analysis, SpectrumLayout layout,
+                          FftEngine fft) {
+        final int nFft = audio.getNFftChunkSamples();
+        final int nBins = layout.getNBins();
+        if (layout.getCentralBin() != nBins / 2) {
+            return 0;
+        }
+        for (int d = (int) ((long) nFft * analysis.getZoomFactor() / (2 * nBins)); d > 1; d--) {
+            final int fftSize = nFft / d * analysis.getZoomFactor();
+            if (nFft % d == 0 && fftSize >= nBins && fft.nextFastSize(fftSize) == fftSize) {
+                return d;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Same units as {@link BandAnalyzer#cost(SpectrumLayout, int, FftEngine)}, per frame.
+     */
+    static double cost(AudioParameters audio, AnalysisParameters analysis, SpectrumLayout layout,
+                       int decimation) {
+        final int size = audio.getNFftChunkSamples() / decimation;
+        final int fftSize = size * analysis.getZoomFactor();
+        // the NCO and the mixing per input sample, D * taps per branch complex taps per output
+        return (8.0 + 4.0 * analysis.getTapsPerBranch()) * audio.getHopSamples()
+                + 4.0 * size + 5.0 * fftSize * (Math.log(fftSize) / Math.log(2))
+                + 12.0 * layout.getNBins();
+    }
+
+    private ZoomFft(AudioParameters audio, AnalysisParameters analysis, SpectrumLayout layout,
+                    int carrier, FftEngine fft, int decimation) {
+        _fft = fft;
+        _decimation = decimation;
+        _nFftChunkSamples = audio.getNFftChunkSamples();
+        _harmonic = audio.getHarmonic(carrier);
+        _size = _nFftChunkSamples / decimation;
+        _fftSize = _size * analysis.getZoomFactor();
+        _nBins = layout.getNBins();
+        _centralBin = layout.getCentralBin();
+        _downconverter = new Downconverter(audio.getSampleRate(), audio.getCarrierFreq(carrier),
+                decimation, analysis.getTapsPerBranch());
+        _history = new ComplexHistory(_size);
+        _block = new double[2 * Downconverter.maxOutput(audio.getHopSamples(), decimation)];
+        _window = new double[_size];
+        fft.getWindow(analysis.getWindow(), analysis.getKaiserBeta(), _window);
+        _work = new double[2 * _fftSize];
+        _workSpectre = new double[2 * _fftSize];
+        _gains = new double[_nBins];
+        for (int b = 0; b < _nBins; b++) {
+            final double offset = (double) (b - _centralBin) / _fftSize / decimation;
+            _gains[b] = decimation / _downconverter.gain(offset);
+        }
+    }
+
+    /**
+     * @param hop the samples following the previous hop, from index 0
+     */
+    void append(short[] hop, int length) {
+        final int n = _downconverter.process(hop, length, _block);
+        _history.append(_block, n);
+        _nOutputs += n;
+    }
+
+    /**
+     * @return true once a whole window has been appended
+     */
+    boolean isFull() {
+        return _history.isFull();
+    }
+
+    /**
+     * @param out at least 2 * nBins doubles, interleaved re/im like a BandAnalyzer's
+     */
+    void analyze(double[] out) {
+        _history.copyTo(_work);
+        for (int i = 0; i < _size; i++) {
+            _work[2 * i] *= _window[i];
+            _work[2 * i + 1] *= _window[i];
+        }
+        for (int i = 2 * _size; i < _work.length; i++) {
+            _work[i] = 0;
+        }
+        _fft.transformComplex(_work, _workSpectre, false);
+        // the oldest output in the window is centred on input sample start; the mixer took the
+        // carrier's phase there away, it goes back so the phases start at the window
+        final long last = (_nOutputs - _size + 1) * _decimation - 1;
+        final double start = (double) (last % _nFftChunkSamples) - _downconverter.delay();
+        final double phase = 2 * Math.PI * ((_harmonic * start) % _nFftChunkSamples) / _nFftChunkSamples;
+        final double rotRe = Math.cos(phase), rotIm = Math.sin(phase);
+        for (int b = 0; b < _nBins; b++) {
+            final int i = Math.floorMod(b - _centralBin, _fftSize);
+            final double re = _workSpectre[2 * i] * _gains[b], im = _workSpectre[2 * i + 1] * _gains[b];
+            out[2 * b] = re * rotRe - im * rotIm;
+            out[2 * b + 1] = re * rotIm + im * rotRe;
+        }
+    }
+
+    /**
+     * Forgets the collected samples, e.g. after a gap in the input.
+     */
+    void reset() {
+        _downconverter.reset();
+        _history.reset();
+        _nOutputs = 0;
+    }
+}
@@ -0,0 +1,325 @@
+package uk.me.berndporr.kiss_fft;
+
+import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.transform.TransformType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Created by Bernd Porr, mail@berndporr.me.uk on 31/12/17.
+ * 22/06/2025 agalilov: added FFT_CFG and related code to avoid the recon of FFT coefficients.
+ * <p>
+ * Fast Fourier JAVA class which calls the C KISS FFT for
+ * superfast native FFT.
+ */
+
+public class KISSFastFourierTransformer implements AutoCloseable {
+
+    static {
+        System.loadLibrary("kiss-fft-lib");
+    }
+
+    // per-object native work memory used by kiss-fft-lib.cpp,
+    // the FFT plans are shared by all objects through a process-wide cache
+    private long m_state;
+    private final NativeCleaner.Cleanable _cleanable;
+
+    public KISSFastFourierTransformer() {
+        final long state = createState();
+        m_state = state;
+        _cleanable = NativeCleaner.register(this, () -> freeState(state));
+    }
+
+    /**
+     * Analysis windows applied by the native side, tables are computed once per size.
+     * The order must match WindowType in kiss-fft-lib.cpp.
+     */
+    public enum Window {
+        RECTANGULAR,
+        /** -31 dB sidelobes, the general purpose choice. */
+        HANN,
+        /** 4-term, -92 dB sidelobes: keeps a strong carrier from masking weak nearby bins. */
+        BLACKMAN_HARRIS,
+        /** Sidelobe level against main lobe width is set by the beta parameter. */
+        KAISER
+    }
+
+    public Complex[] transform(Complex[] input, TransformType transformType) {
+        double[] ri = new double[input.length * 2];
+        int idx = 0;
+        for (Complex c : input) {
+            ri[idx++] = c.getReal();
+            ri[idx++] = c.getImaginary();
+        }
+        ri = dofft(ri, transformtype2Int(transformType));
+        Complex[] result = new Complex[input.length];
+        idx = 0;
+        for (int i = 0; i < input.length; i++) {
+            result[i] = new Complex(ri[idx++], ri[idx++]);
+        }
+        return result;
+    }
+
+    /**
+     * Allocation-free complex transform of interleaved re/im data. The inverse is scaled by 1/n.
+     *
+     * @param ri  input, n complex points as 2n doubles
+     * @param out output of at least 2n doubles, must not be {@code ri}
+     */
+    public void transform(double[] ri, double[] out, TransformType transformType) {
+        if (ri == out) {
+            throw new IllegalArgumentException("In-place transform is not supported");
+        }
+        if (out.length < ri.length) {
+            throw new IllegalArgumentException("Output array is too short");
+        }
+        if (!dofftinto(ri, out, transformtype2Int(transformType))) {
+            throw new IllegalStateException("dofftinto failed");
+        }
+    }
+
+    public Complex[] transform(double[] v) {
+        return dofftdouble(v, 0);
+    }
+
+    public Complex[] transform(Double[] v) {
+        int n = v.length;
+        double[] cv = new double[n];
+        for (int i = 0; i < n; i++) {
+            cv[i] = v[i];
+        }
+        return dofftdouble(cv, 0);
+    }
+
+    public Complex[] transformRealOptimisedForward(double[] v) {
+        return dofftr(v);
+    }
+
+    public double[] transformRealOptimisedInverse(Complex[] v) {
+        return dofftri(v);
+    }
+
+    /**
+     * Number of doubles needed to hold the spectrum of a real sequence of length n
+     * as interleaved re/im pairs (n/2+1 complex points).
+     */
+    public static int spectreLength(int n) {
+        return 2 * (n / 2 + 1);
+    }
+
+    /**
+     * Allocation-free version of {@link #transformRealOptimisedForward(double[])}.
+     *
+     * @param v   real input, even length
+     * @param out interleaved re/im output, at least {@link #spectreLength(int)} doubles;
+     *            the array is overwritten and may be reused for every frame
+     */
+    public void transformRealOptimisedForward(double[] v, double[] out) {
+        if (out.length < spectreLength(v.length)) {
+            throw new IllegalArgumentException("Output array is too short");
+        }
+        if (!dofftrinto(v, out)) {
+            throw new IllegalStateException("dofftrinto failed");
+        }
+    }
+
+    /**
+     * Allocation-free version of {@link #transformRealOptimisedInverse(Complex[])}.
+     *
+     * @param v   n/2+1 interleaved re/im points, at least {@link #spectreLength(int)} doubles
+     * @param out the n real samples, n even
+     */
+    public void transformRealOptimisedInverse(double[] v, double[] out) {
+        if (v.length < spectreLength(out.length)) {
+            throw new IllegalArgumentException("Input array is too short");
+        }
+        if (!dofftriinto(v, out)) {
+            throw new IllegalStateException("dofftriinto failed");
+        }
+    }
+
+    /**
+     * Real forward transform of 16-bit PCM. Conversion, windowing and the FFT are done natively
+     * in one pass, the window table is cached next to the FFT configuration.
+     *
+     * @param pcm        circular sample history, its length is the transform size (even)
+     * @param start      index of the oldest sample in {@code pcm}, 0 for a plain array
+     * @param window     analysis window
+     * @param kaiserBeta used by {@link Window#KAISER} only
+     * @param out        interleaved re/im output, at least {@link #spectreLength(int)} doubles
+     */
+    public void transformRealOptimisedForward(short[] pcm, int start, Window window, double kaiserBeta,
+                                              double[] out) {
+        if (start < 0 || start >= pcm.length) {
+            throw new IllegalArgumentException("start is out of range");
+        }
+        if (out.length < spectreLength(pcm.length)) {
+            throw new IllegalArgumentException("Output array is too short");
+        }
+        if (!dofftrpcm(pcm, start, window.ordinal(), kaiserBeta, out)) {
+            throw new IllegalStateException("dofftrpcm failed");
+        }
+    }
+
+    /**
+     * Batch of real forward transforms in a single native call, e.g. all overlapped hops of a
+     * recording: frame k is {@code data[offset + k * hop ... offset + k * hop + n - 1]} and its
+     * spectrum goes to {@code out[k * spectreLength(n) ...]}.
+     *
+     * @param out at least {@code frames * spectreLength(n)} doubles
+     */
+    public void transformRealOptimisedForward(double[] data, int offset, int n, int hop, int frames,
+                                              double[] out) {
+        checkBatch(data.length, offset, n, hop, frames, out);
+        if (!dofftrbatch(data, offset, n, hop, frames, out)) {
+            throw new IllegalStateException("dofftrbatch failed");
+        }
+    }
+
+    /**
+     * Batch version of {@link #transformRealOptimisedForward(short[], int, Window, double, double[])}
+     * over a linear PCM buffer, frames are laid out as in
+     * {@link #transformRealOptimisedForward(double[], int, int, int, int, double[])}.
+     */
+    public void transformRealOptimisedForward(short[] pcm, int offset, int n, int hop, int frames,
+                                              Window window, double kaiserBeta, double[] out) {
+        checkBatch(pcm.length, offset, n, hop, frames, out);
+        if (!dofftrpcmbatch(pcm, offset, n, hop, frames, window.ordinal(), kaiserBeta, out)) {
+            throw new IllegalStateException("dofftrpcmbatch failed");
+        }
+    }
+
+    /**
+     * @return how many frames of n samples, hop apart, fit into {@code length} samples
+     */
+    public static int batchFrames(int length, int n, int hop) {
+        return length < n ? 0 : (length - n) / hop + 1;
+    }
+
+    private static void checkBatch(int length, int offset, int n, int hop, int frames, double[] out) {
+        if (n < 2 || n % 2 != 0 || hop < 1 || frames < 1 || offset < 0) {
+            throw new IllegalArgumentException("Bad batch geometry");
+        }
+        if ((long) offset + (long) (frames - 1) * hop + n > length) {
+            throw new IllegalArgumentException("Batch runs past the end of the input");
+        }
+        if ((long) frames * spectreLength(n) > out.length) {
+            throw new IllegalArgumentException("Output array is too short");
+        }
+    }
+
+    /**
+     * The windowing half of {@link #transformRealOptimisedForward(short[], int, Window, double, double[])}:
+     * {@code out} receives the unrolled, windowed samples.
+     */
+    public void window(short[] pcm, int start, Window window, double kaiserBeta, double[] out) {
+        if (start < 0 || start >= pcm.length) {
+            throw new IllegalArgumentException("start is out of range");
+        }
+        if (out.length < pcm.length) {
+            throw new IllegalArgumentException("Output array is too short");
+        }
+        if (!dowindowpcm(pcm, start, window.ordinal(), kaiserBeta, out)) {
+            throw new IllegalStateException("dowindowpcm failed");
+        }
+    }
+
+    /**
+     * Fills {@code out} with the cached window table of size {@code out.length}.
+     */
+    public void getWindow(Window window, double kaiserBeta, double[] out) {
+        if (!getwindow(window.ordinal(), kaiserBeta, out)) {
+            throw new IllegalStateException("getwindow failed");
+        }
+    }
+
+    /**
+     * Same as {@link #transformRealOptimisedForward(double[], double[])} for direct buffers
+     * of native-ordered doubles. The whole capacity of {@code v} is transformed.
+     */
+    public void transformRealOptimisedForward(ByteBuffer v, ByteBuffer out) {
+        if (!v.isDirect() || !out.isDirect()) {
+            throw new IllegalArgumentException("Buffers must be direct");
+        }
+        if (v.order() != ByteOrder.nativeOrder() || out.order() != ByteOrder.nativeOrder()) {
+            throw new IllegalArgumentException("Buffers must use the native byte order");
+        }
+        final int n = v.capacity() / Double.BYTES;
+        if (out.capacity() < spectreLength(n) * Double.BYTES) {
+            throw new IllegalArgumentException("Output buffer is too small");
+        }
+        if (!dofftrdirect(v, out, n)) {
+            throw new IllegalStateException("dofftrdirect failed");
+        }
+    }
+
+
+    private native double[] dofft(double[] data, int is_inverse);
+
+    private native Complex[] dofftdouble(double[] data, int is_inverse);
+
+    private native Complex[] dofftr(double[] data);
+
+    private native double[] dofftri(Complex[] data);
+
+    private native boolean dofftinto(double[] data, double[] out, int is_inverse);
+
+    private native boolean dofftrinto(double[] data, double[] out);
+
+    private native boolean dofftriinto(double[] data, double[] out);
+
+    private native boolean dofftrdirect(ByteBuffer data, ByteBuffer out, int n);
+
+    private native boolean dofftrpcm(short[] pcm, int start, int window, double beta, double[] out);
+
+    private native boolean dowindowpcm(short[] pcm, int start, int window, double beta, double[] out);
+
+    private native boolean dofftrbatch(double[] data, int offset, int n, int hop, int frames,
+                                       double[] out);
+
+    private native boolean dofftrpcmbatch(short[] pcm, int offset, int n, int hop, int frames,
+                                          int window, double beta, double[] out);
+
+    private native boolean getwindow(int window, double beta, double[] out);
+
+    /**
+     * @deprecated the plans are shared now, this only releases the object; use {@link #close()}
+     */
+    @Deprecated
+    public void removeConfigs() {
+        close();
+    }
+
+    private static native long createState();
+
+    private static native void freeState(long state);
+
+    /**
+     * Caps the memory of the process-wide plan cache of the double precision build, the least
+     * recently used plans are evicted beyond it. Plans in use stay alive until they are done.
+     */
+    public static native void setPlanCacheLimit(long bytes);
+
+    public static native long getPlanCacheBytes();
+
+    public static native int getPlanCacheSize();
+
+    public static native void clearPlanCache();
+
+    private int transformtype2Int(TransformType transformType) {
+        int i = 0;
+        if (transformType == TransformType.INVERSE) i = 1;
+        return i;
+    }
+
+    /**
+     * Releases the native memory of this object, it must not be used afterwards. Objects that
+     * are never closed are released once they become unreachable.
+     */
+    @Override
+    public void close() {
+        m_state = 0;
+        _cleanable.clean();
+    }
+}
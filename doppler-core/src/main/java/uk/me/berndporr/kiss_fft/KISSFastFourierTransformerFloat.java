@@ -0,0 +1,65 @@
+package uk.me.berndporr.kiss_fft;
+
+/**
+ * 2025 agalilov: single precision build of the KISS FFT, see kiss-fft-precision-lib.cpp.
+ * Only the allocation-free real forward transform is exposed.
+ */
+public class KISSFastFourierTransformerFloat implements AutoCloseable {
+
+    static {
+        System.loadLibrary("kiss-fft-lib-float");
+    }
+
+    // per-object native work memory used by kiss-fft-precision-lib.cpp,
+    // the FFT plans are shared by all objects through a process-wide cache
+    private long m_state;
+    private final NativeCleaner.Cleanable _cleanable;
+
+    public KISSFastFourierTransformerFloat() {
+        final long state = createState();
+        m_state = state;
+        _cleanable = NativeCleaner.register(this, () -> freeState(state));
+    }
+
+    /**
+     * @param v   real input, even length
+     * @param out interleaved re/im output, at least
+     *            {@link KISSFastFourierTransformer#spectreLength(int)} floats
+     */
+    public void transformRealOptimisedForward(float[] v, float[] out) {
+        if (out.length < KISSFastFourierTransformer.spectreLength(v.length)) {
+            throw new IllegalArgumentException("Output array is too short");
+        }
+        if (!dofftrinto(v, out)) {
+            throw new IllegalStateException("dofftrinto failed");
+        }
+    }
+
+    private native boolean dofftrinto(float[] data, float[] out);
+
+    private static native long createState();
+
+    private static native void freeState(long state);
+
+    /**
+     * Caps the memory of the plan cache of the single precision build, which is separate from the
+     * other builds' caches; see {@link KISSFastFourierTransformer#setPlanCacheLimit(long)}.
+     */
+    public static native void setPlanCacheLimit(long bytes);
+
+    public static native long getPlanCacheBytes();
+
+    public static native int getPlanCacheSize();
+
+    public static native void clearPlanCache();
+
+    /**
+     * Releases the native memory of this object, it must not be used afterwards. Objects that
+     * are never closed are released once they become unreachable.
+     */
+    @Override
+    public void close() {
+        m_state = 0;
+        _cleanable.clean();
+    }
+}
@@ -0,0 +1,68 @@
+package uk.me.berndporr.kiss_fft;
+
+/**
+ * 2025 agalilov: Q15 fixed point build of the KISS FFT, see kiss-fft-precision-lib.cpp.
+ * <p>
+ * Every butterfly stage divides by its radix to stay in range, so the output is the spectrum
+ * scaled by 1/n: multiply by n to compare it with {@link KISSFastFourierTransformer}. Small
+ * components lose their low bits on the way, which is the price of the 16-bit arithmetic.
+ */
+public class KISSFastFourierTransformerInt16 implements AutoCloseable {
+
+    static {
+        System.loadLibrary("kiss-fft-lib-int16");
+    }
+
+    // per-object native work memory used by kiss-fft-precision-lib.cpp,
+    // the FFT plans are shared by all objects through a process-wide cache
+    private long m_state;
+    private final NativeCleaner.Cleanable _cleanable;
+
+    public KISSFastFourierTransformerInt16() {
+        final long state = createState();
+        m_state = state;
+        _cleanable = NativeCleaner.register(this, () -> freeState(state));
+    }
+
+    /**
+     * @param v   real input, even length, e.g. 16-bit PCM as is
+     * @param out interleaved re/im output scaled by 1/n, at least
+     *            {@link KISSFastFourierTransformer#spectreLength(int)} shorts
+     */
+    public void transformRealOptimisedForward(short[] v, short[] out) {
+        if (out.length < KISSFastFourierTransformer.spectreLength(v.length)) {
+            throw new IllegalArgumentException("Output array is too short");
+        }
+        if (!dofftrinto(v, out)) {
+            throw new IllegalStateException("dofftrinto failed");
+        }
+    }
+
+    private native boolean dofftrinto(short[] data, short[] out);
+
+    private static native long createState();
+
+    private static native void freeState(long state);
+
+    /**
+     * Caps the memory of the plan cache of the Q15 build, which is separate from the
+     * other builds' caches; see {@link KISSFastFourierTransformer#setPlanCacheLimit(long)}.
+     */
+    public static native void setPlanCacheLimit(long bytes);
+
+    public static native long getPlanCacheBytes();
+
+    public static native int getPlanCacheSize();
+
+    public static native void clearPlanCache();
+
+    /**
+     * Releases the native memory of this object, it must not be used afterwards. Objects that
+     * are never closed are released once they become unreachable.
+     */
+    @Override
+    public void close() {
+        m_state = 0;
+        _cleanable.clean();
+    }
+}
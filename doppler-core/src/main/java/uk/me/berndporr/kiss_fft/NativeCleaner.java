@@ -0,0 +1,73 @@
+package uk.me.berndporr.kiss_fft;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 2025 agalilov: minimal stand-in for {@code java.lang.ref.Cleaner}, which needs API 33.
+ * <p>
+ * The release action runs exactly once: from {@link Cleanable#clean()} (i.e. close()) or, if the
+ * owner was never closed, from a daemon thread after the owner became unreachable. The action
+ * must not reference the owner, otherwise the owner never becomes unreachable.
+ */
+final class NativeCleaner {
+    interface Cleanable {
+        void clean();
+    }
+
+    private static final ReferenceQueue<Object> QUEUE = new ReferenceQueue<>();
+    // keeps the phantom references themselves reachable until they are cleaned
+    private static final Set<Ref> PENDING = Collections.synchronizedSet(
+            Collections.newSetFromMap(new IdentityHashMap<>()));
+    private static Thread _thread = null;
+
+    private NativeCleaner() {
+    }
+
+    static Cleanable register(Object owner, Runnable action) {
+        final Ref ref = new Ref(owner, action);
+        PENDING.add(ref);
+        startThread();
+        return ref;
+    }
+
+    private static synchronized void startThread() {
+        if (_thread != null) {
+            return;
+        }
+        _thread = new Thread(() -> {
+            for (; ; ) {
+                try {
+                    ((Ref) QUEUE.remove()).clean();
+                } catch (InterruptedException ignored) {
+                    // a daemon, it lives as long as the process
+                }
+            }
+        }, "kiss-fft-cleaner");
+        _thread.setDaemon(true);
+        _thread.start();
+    }
+
+    private static final class Ref extends PhantomReference<Object> implements Cleanable {
+        private final Runnable _action;
+        private final AtomicBoolean _cleaned = new AtomicBoolean();
+
+        Ref(Object owner, Runnable action) {
+            super(owner, QUEUE);
+            _action = action;
+        }
+
+        @Override
+        public void clean() {
+            if (_cleaned.compareAndSet(false, true)) {
+                PENDING.remove(this);
+                clear();
+                _action.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package agalilov.doppler;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AudioSourceTest {
+    private static final int SAMPLE_RATE = 44100;
+    private File _file = null;
+
+    @After
+    public void deleteFile() {
+        if (_file != null && !_file.delete()) {
+            _file.deleteOnExit();
+        }
+    }
+
+    private static short[] tone(int length) {
+        final short[] samples = new short[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (short) (8000 * Math.sin(2 * Math.PI * 20000 * i / SAMPLE_RATE)
+                    + 2000 * Math.sin(2 * Math.PI * 20150 * i / SAMPLE_RATE));
+        }
+        return samples;
+    }
+
+    private File write(short[] samples, int channels, boolean isWav, ByteOrder order) throws IOException {
+        final ByteBuffer b = ByteBuffer.allocate((isWav ? 44 : 0) + 2 * samples.length).order(order);
+        if (isWav) {
+            b.order(ByteOrder.LITTLE_ENDIAN);
+            b.put("RIFF".getBytes()).putInt(36 + 2 * samples.length).put("WAVE".getBytes());
+            b.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) channels)
+                    .putInt(SAMPLE_RATE).putInt(2 * channels * SAMPLE_RATE)
+                    .putShort((short) (2 * channels)).putShort((short) 16);
+            b.put("data".getBytes()).putInt(2 * samples.length);
+        }
+        for (short s : samples) {
+            b.putShort(s);
+        }
+        _file = File.createTempFile("doppler", isWav ? ".wav" : ".pcm");
+        try (FileOutputStream out = new FileOutputStream(_file)) {
+            out.write(b.array());
+        }
+        return _file;
+    }
+
+    /**
+     * @return number of spectra computed from the source
+     */
+    private static int replay(AudioSource source, AudioParameters audio) throws InterruptedException {
+        final AnalysisParameters analysis = new AnalysisParameters.Builder()
+                .setFftEngine(FftEngine.Kind.JAVA)
+                .build();
+        final AtomicInteger frames = new AtomicInteger();
+        final RecordAudioThread thread = new RecordAudioThread(source, audio, analysis,
+                data -> frames.incrementAndGet());
+        thread.start();
+        thread.join(60000);
+        assertFalse(thread.isAlive());
+        assertEquals(0, thread.getProcessingThread().getDroppedFrames());
+        return frames.get();
+    }
+
+    @Test
+    public void unthrottledWavReplayKeepsEveryFrame() throws Exception {
+        final AudioParameters audio = new AudioParameters(SAMPLE_RATE, 4096, 512, 20000);
+        final int length = 30 * SAMPLE_RATE;
+        final PcmFileSource source = PcmFileSource.wav(write(tone(length), 1, true, ByteOrder.LITTLE_ENDIAN), false);
+        assertEquals(length, source.getSampleCount());
+        final long start = System.nanoTime();
+        final int frames = replay(source, audio);
+        // a frame per full hop once the first window is complete
+        assertEquals(length / 512 - 4096 / 512 + 1, frames);
+        // 30 s of audio, far quicker than real time even on a slow machine
+        assertTrue((System.nanoTime() - start) / 1e9 < 15);
+    }
+
+    @Test
+    public void rawBigEndianMatchesWav() throws Exception {
+        final short[] samples = tone(8192);
+        try (PcmFileSource raw = PcmFileSource.raw(write(samples, 1, false, ByteOrder.BIG_ENDIAN),
+                SAMPLE_RATE, ByteOrder.BIG_ENDIAN, false)) {
+            final short[] read = new short[samples.length];
+            final int[] pos = {0};
+            while (raw.read(b -> {
+                final int n = b.remaining();
+                b.get(read, pos[0], n);
+                pos[0] += n;
+            }) > 0) {
+            }
+            assertArrayEquals(samples, read);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsStereo() throws Exception {
+        PcmFileSource.wav(write(tone(100), 2, true, ByteOrder.LITTLE_ENDIAN), false);
+    }
+
+    @Test
+    public void realTimeSourceKeepsToTheClock() throws Exception {
+        final AudioParameters audio = new AudioParameters(SAMPLE_RATE, 1024, 1024, 20000);
+        final long start = System.nanoTime();
+        final int frames = replay(new MemoryAudioSource(tone(SAMPLE_RATE / 5), SAMPLE_RATE, true), audio);
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        assertEquals(SAMPLE_RATE / 5 / 1024, frames);
+        assertTrue("took " + seconds, seconds >= 0.18);
+    }
+}
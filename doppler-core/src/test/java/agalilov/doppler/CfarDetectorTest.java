@@ -0,0 +1,122 @@
+package agalilov.doppler;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CfarDetectorTest {
+    private static final AudioParameters AUDIO = new AudioParameters(44100, 4096, 1024, 20000);
+
+    private static CfarDetector detector(CfarDetector.Kind kind, double falseAlarmRate) {
+        final AnalysisParameters analysis = new AnalysisParameters.Builder()
+                .setCfar(kind, 16, falseAlarmRate)
+                .build();
+        final SpectrumLayout layout = SpectrumLayout.of(AUDIO, analysis);
+        return new CfarDetector(AUDIO, analysis, layout, layout.getNBins());
+    }
+
+    /**
+     * @return complex Gaussian noise, exponentially distributed powers of mean 1
+     */
+    private static double[] noise(Random random) {
+        final double[] data = new double[2 * (AUDIO.getNFftChunkSamples() / 2 + 1)];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = random.nextGaussian() * Math.sqrt(0.5);
+        }
+        return data;
+    }
+
+    private static void setPower(double[] data, int bin, double power) {
+        data[2 * bin] = Math.sqrt(power);
+        data[2 * bin + 1] = 0;
+    }
+
+    private static boolean isDetected(CfarDetector.Detections detections, int bin) {
+        for (int i = 0; i < detections.getCount(); i++) {
+            if (detections.getBin(i) == bin) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void singleCellFactors() {
+        assertEquals(99, CfarDetector.cellAveragingFactor(1, 0.01), 1e-9);
+        assertEquals(99, CfarDetector.orderedStatisticFactor(1, 0.01), 1e-6);
+    }
+
+    @Test
+    public void falseAlarmRateHolds() {
+        for (CfarDetector.Kind kind : CfarDetector.Kind.values()) {
+            final CfarDetector detector = detector(kind, 0.001);
+            final Random random = new Random(21);
+            int nDetections = 0, nBins = 0;
+            for (int frame = 0; frame < 200; frame++) {
+                final double[] data = noise(random);
+                nDetections += detector.detect(data).getCount();
+                nBins += data.length / 2;
+            }
+            assertEquals(kind.name(), 0.001, (double) nDetections / nBins, 0.0003);
+        }
+    }
+
+    @Test
+    public void carrierLobeIsNotDetected() {
+        final CfarDetector detector = detector(CfarDetector.Kind.CELL_AVERAGING, 1e-6);
+        final double[] data = noise(new Random(22));
+        final int central = AUDIO.getHarmonic();
+        for (int i = -3; i <= 3; i++) {
+            setPower(data, central + i, 1e12 / (1 + i * i));
+        }
+        setPower(data, central + 40, 1000);
+        final CfarDetector.Detections detections = detector.detect(data);
+        assertEquals(1, detections.getCount());
+        assertEquals(central + 40, detections.getBin(detections.strongest()));
+    }
+
+    @Test
+    public void orderedStatisticSeesAnEchoBesideAStrongerOne() {
+        final int central = AUDIO.getHarmonic();
+        final double[] data = noise(new Random(23));
+        setPower(data, central + 40, 1e5);
+        setPower(data, central + 50, 100);
+        // the strong echo is among the weak one's training cells and lifts their mean
+        final CfarDetector.Detections averaged =
+                detector(CfarDetector.Kind.CELL_AVERAGING, 1e-6).detect(data);
+        assertTrue(isDetected(averaged, central + 40));
+        assertFalse(isDetected(averaged, central + 50));
+        final CfarDetector.Detections ordered =
+                detector(CfarDetector.Kind.ORDERED_STATISTIC, 1e-6).detect(data);
+        assertTrue(isDetected(ordered, central + 40));
+        assertTrue(isDetected(ordered, central + 50));
+    }
+
+    @Test
+    public void rangesSeeWhatTheBandSees() {
+        final int central = AUDIO.getHarmonic();
+        final double[] data = noise(new Random(24));
+        setPower(data, central + 40, 1000);
+        setPower(data, central - 70, 1000);
+        for (CfarDetector.Kind kind : CfarDetector.Kind.values()) {
+            final CfarDetector detector = detector(kind, 1e-6);
+            final CfarDetector.Detections band = detector.detect(data);
+            assertEquals(2, band.getCount());
+            final int below = band.getBin(0), above = band.getBin(1);
+            final double belowSnr = band.getSnr(0), aboveSnr = band.getSnr(1);
+            detector.clear();
+            final int nRead = detector.detect(data, below - 2, below + 3)
+                    + detector.detect(data, above - 2, above + 3);
+            // the five tested bins, on either side 16 training cells sliding along four bins; twice
+            assertEquals(2 * (5 + 2 * (16 + 4)), nRead);
+            final CfarDetector.Detections gates = detector.getDetections();
+            assertEquals(2, gates.getCount());
+            assertEquals(below, gates.getBin(0));
+            assertEquals(above, gates.getBin(1));
+            assertEquals(belowSnr, gates.getSnr(0), 1e-9 * belowSnr);
+            assertEquals(aboveSnr, gates.getSnr(1), 1e-9 * aboveSnr);
+        }
+    }
+}
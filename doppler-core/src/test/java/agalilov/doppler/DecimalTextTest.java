@@ -0,0 +1,46 @@
+package agalilov.doppler;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class DecimalTextTest {
+    private static String format(double value, int decimals) {
+        final char[] buffer = new char[32];
+        return new String(buffer, 0, DecimalText.append(buffer, 0, value, decimals));
+    }
+
+    @Test
+    public void matchesStringFormat() {
+        final double[] values = {0, 1, -1, 0.5, 12.345, -12.345, 9.96, 18012.3456, 123456.789};
+        for (double value : values) {
+            for (int decimals = 0; decimals <= 3; decimals++) {
+                final String expected = String.format(Locale.ROOT, "%." + decimals + "f", value);
+                assertEquals(value + ", " + decimals, expected, format(value, decimals));
+            }
+        }
+    }
+
+    @Test
+    public void negativeZeroHasNoSign() {
+        assertEquals("0.0", format(-0.01, 1));
+    }
+
+    @Test
+    public void nonFiniteIsDashes() {
+        assertEquals("--", format(Double.NaN, 2));
+        assertEquals("--", format(Double.POSITIVE_INFINITY, 1));
+    }
+
+    @Test
+    public void appendsAfterPosition() {
+        final char[] buffer = new char[32];
+        int n = DecimalText.append(buffer, 0, "Echo at ");
+        n = DecimalText.append(buffer, n, 1.5, 2);
+        n = DecimalText.append(buffer, n, " m (");
+        n = DecimalText.append(buffer, n, -42L);
+        assertEquals("Echo at 1.50 m (-42", new String(buffer, 0, n));
+    }
+}
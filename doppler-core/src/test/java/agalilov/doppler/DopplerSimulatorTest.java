@@ -0,0 +1,128 @@
+package agalilov.doppler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Synthetic reflectors through the whole FFT path: the speed the display would show has to
+ * match the ground truth, and the pipeline has to stay well ahead of real time.
+ */
+public class DopplerSimulatorTest {
+    private static final int SAMPLE_RATE = 44100;
+    private static final AudioParameters AUDIO = new AudioParameters(SAMPLE_RATE, 4096, 1024, 20000);
+    private static final DopplerVelocity VELOCITY = new DopplerVelocity(343, true);
+
+    private static SpectrumProcessor newProcessor() {
+        return new SpectrumProcessor(AUDIO, new AnalysisParameters.Builder()
+                .setFftEngine(FftEngine.Kind.JAVA)
+                .build());
+    }
+
+    /**
+     * Runs {@code seconds} of the simulator and checks the speed of the strongest echo in every frame.
+     */
+    private static void assertTracks(DopplerSimulator simulator, double seconds) {
+        final double carrierHz = AUDIO.getCarrierFreq();
+        try (SpectrumProcessor processor = newProcessor()) {
+            final SpectrumLayout layout = processor.getLayout();
+            // half the main lobe of the carrier, Blackman-Harris is +-4 bins of the window length
+            final int lobe = (int) Math.ceil(4.5 * SAMPLE_RATE / AUDIO.getNFftChunkSamples() / layout.getBinHz());
+            final double tolerance = VELOCITY.speed(carrierHz, carrierHz + layout.getBinHz());
+            final short[] hop = new short[processor.getHopSamples()];
+            final int hops = (int) (seconds * SAMPLE_RATE / hop.length);
+            int frames = 0;
+            for (int h = 1; h <= hops; h++) {
+                simulator.generate(hop, 0, hop.length);
+                if (!processor.process(hop)) {
+                    continue;
+                }
+                frames++;
+                // the middle of the analysed window
+                final double t = ((double) h * hop.length - AUDIO.getNFftChunkSamples() / 2.0) / SAMPLE_RATE;
+                final double expected = simulator.speed(0, t);
+                final int from, to;
+                if (expected > 0) {
+                    from = layout.getCentralBin() + lobe;
+                    to = layout.getNBins();
+                } else {
+                    from = 0;
+                    to = layout.getCentralBin() - lobe + 1;
+                }
+                final int bin = PeakFinder.strongestBin(processor.getSpectre(), from, to, -1);
+                final double measured = VELOCITY.speed(carrierHz, layout.frequency(bin));
+                assertEquals("t = " + t, expected, measured, tolerance);
+            }
+            assertTrue(frames > 0);
+        }
+    }
+
+    @Test
+    public void constantSpeedBothWays() {
+        for (double speed : new double[]{1.0, -1.0, 2.5, -2.5}) {
+            assertTracks(new DopplerSimulator.Builder(SAMPLE_RATE, AUDIO.getCarrierFreq())
+                    .addReflector(2000, DopplerSimulator.VelocityProfile.constant(speed))
+                    .build(), 1);
+        }
+    }
+
+    @Test
+    public void rampWithNoiseAndFading() {
+        assertTracks(new DopplerSimulator.Builder(SAMPLE_RATE, AUDIO.getCarrierFreq())
+                .setNoise(300, 42)
+                .addReflector(2000, DopplerSimulator.VelocityProfile.ramp(0.8, 2, 3), 0.5, 2)
+                .build(), 3);
+    }
+
+    @Test
+    public void reflectorIsHeardAtTheDopplerFrequency() {
+        final DopplerSimulator simulator = new DopplerSimulator.Builder(SAMPLE_RATE, 20000)
+                .addReflector(1, DopplerSimulator.VelocityProfile.oscillating(1.5, 0.5))
+                .build();
+        for (double t = 0; t < 2; t += 0.1) {
+            assertEquals(simulator.speed(0, t), VELOCITY.speed(20000, simulator.frequency(0, t)), 1e-9);
+        }
+    }
+
+    @Test
+    public void sameSeedSameSignal() {
+        final DopplerSimulator.Builder builder = new DopplerSimulator.Builder(SAMPLE_RATE, 20000)
+                .setNoise(500, 7)
+                .addReflector(1000, DopplerSimulator.VelocityProfile.constant(1));
+        assertArrayEquals(builder.build().generate(10000), builder.build().generate(10000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void carrierAboveNyquist() {
+        new DopplerSimulator.Builder(SAMPLE_RATE, 23000);
+    }
+
+    /**
+     * A generous floor so that a slow CI machine passes; a regression of the per frame path
+     * by an order of magnitude does not.
+     */
+    @Test
+    public void throughput() {
+        final int seconds = 60;
+        final DopplerSimulator simulator = new DopplerSimulator.Builder(SAMPLE_RATE, AUDIO.getCarrierFreq())
+                .setNoise(300, 1)
+                .addReflector(2000, DopplerSimulator.VelocityProfile.oscillating(1.5, 0.5))
+                .addReflector(1000, DopplerSimulator.VelocityProfile.constant(-0.7), 0.8, 1)
+                .build();
+        long start = System.nanoTime();
+        final short[] signal = simulator.generate(seconds * SAMPLE_RATE);
+        final double generateSeconds = (System.nanoTime() - start) / 1e9;
+        assertTrue("generator: " + generateSeconds + " s", generateSeconds < seconds / 100.0);
+
+        try (SpectrumProcessor processor = newProcessor()) {
+            final short[] hop = new short[processor.getHopSamples()];
+            start = System.nanoTime();
+            for (int offset = 0; offset + hop.length <= signal.length; offset += hop.length) {
+                System.arraycopy(signal, offset, hop, 0, hop.length);
+                processor.process(hop);
+            }
+            final double processSeconds = (System.nanoTime() - start) / 1e9;
+            assertTrue("pipeline: " + processSeconds + " s", processSeconds < seconds / 10.0);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package agalilov.doppler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DopplerVelocityTest {
+    @Test
+    public void reflectedShiftIsAboutTwiceTheDirectOne() {
+        final DopplerVelocity reflected = new DopplerVelocity(343, true);
+        final DopplerVelocity direct = new DopplerVelocity(343, false);
+        // 1 m/s towards the phone at 20 kHz
+        assertEquals(1.0, reflected.speed(20000, 20000 * 344.0 / 342.0), 1e-9);
+        assertEquals(1.0, direct.speed(20000, 20000 * 344.0 / 343.0), 1e-9);
+        assertEquals(0.0, reflected.speed(20000, 20000), 0);
+        assertTrue(reflected.speed(20000, 19950) < 0);
+    }
+
+    @Test
+    public void receivedFrequencyInvertsSpeed() {
+        for (boolean isReflected : new boolean[]{false, true}) {
+            final DopplerVelocity v = new DopplerVelocity(343, isReflected);
+            for (double speed : new double[]{-2.5, -0.1, 0, 0.37, 3}) {
+                assertEquals(speed, v.speed(18000, v.receivedFrequency(18000, speed)), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void strongestBinSkipsTheCarrier() {
+        final double[] spectre = new double[2 * 8];
+        spectre[2 * 3] = 10;    // carrier
+        spectre[2 * 5 + 1] = 4;
+        spectre[2 * 1] = -3;
+        assertEquals(5, PeakFinder.strongestBin(spectre, 0, 8, 3));
+        assertEquals(3, PeakFinder.strongestBin(spectre, -4, 100, -1));
+        assertEquals(1, PeakFinder.strongestBin(spectre, 0, 3, -1));
+        assertEquals(-1, PeakFinder.strongestBin(spectre, 6, 8, -1));
+        assertEquals(16.0, PeakFinder.power(spectre, 5), 0);
+    }
+}
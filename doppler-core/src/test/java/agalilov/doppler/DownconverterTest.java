@@ -0,0 +1,51 @@
+package agalilov.doppler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DownconverterTest {
+    @Test
+    public void shiftsToneByCarrierAndDecimates() {
+        final int fs = 48000, decimation = 16;
+        final double carrier = 18000, offset = 150;
+        final Downconverter dc = new Downconverter(fs, carrier, decimation, 8);
+        final short[] in = new short[4800];
+        for (int n = 0; n < in.length; n++) {
+            in[n] = (short) (10000 * Math.cos(2 * Math.PI * (carrier + offset) * n / fs));
+        }
+        final double[] out = new double[2 * Downconverter.maxOutput(in.length, decimation)];
+        final int nOut = dc.process(in, in.length, out);
+        assertEquals(in.length / decimation, nOut);
+
+        // skip the filter transient, then the baseband is a phasor of amplitude A/2 at +offset
+        final double expectedStep = 2 * Math.PI * offset * decimation / fs;
+        for (int k = 20; k < nOut - 1; k++) {
+            assertEquals(5000, Math.hypot(out[2 * k], out[2 * k + 1]), 50);
+            final double step = Math.atan2(
+                    out[2 * k] * out[2 * k + 3] - out[2 * k + 1] * out[2 * k + 2],
+                    out[2 * k] * out[2 * k + 2] + out[2 * k + 1] * out[2 * k + 3]);
+            assertEquals(expectedStep, step, 1e-3);
+        }
+    }
+
+    @Test
+    public void singleTapOnlyMixes() {
+        final int fs = 44100;
+        final double carrier = 1000;
+        final Downconverter dc = new Downconverter(fs, carrier, 1, 1);
+        assertEquals(1, dc.gain(0.1), 1e-12);
+        assertEquals(0, dc.delay(), 0);
+        final short[] in = new short[256];
+        for (int n = 0; n < in.length; n++) {
+            in[n] = (short) (10000 * Math.cos(2 * Math.PI * 700 * n / fs));
+        }
+        final double[] out = new double[2 * Downconverter.maxOutput(in.length, 1)];
+        assertEquals(in.length, dc.process(in, in.length, out));
+        for (int n = 0; n < in.length; n++) {
+            final double phase = -2 * Math.PI * carrier * n / fs;
+            assertEquals(in[n] * Math.cos(phase), out[2 * n], 1e-6);
+            assertEquals(in[n] * Math.sin(phase), out[2 * n + 1], 1e-6);
+        }
+    }
+}
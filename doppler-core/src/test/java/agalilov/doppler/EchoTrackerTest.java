@@ -0,0 +1,109 @@
+package agalilov.doppler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EchoTrackerTest {
+    private static final int SAMPLE_RATE = 44100;
+    private static final AudioParameters AUDIO = new AudioParameters(SAMPLE_RATE, 4096, 1024, 20000);
+
+    private interface FrameCheck {
+        void check(int frame, EchoTracker tracker);
+    }
+
+    private static void run(DopplerSimulator simulator, double seconds, FrameCheck check) {
+        final AnalysisParameters analysis = new AnalysisParameters.Builder()
+                .setFftEngine(FftEngine.Kind.JAVA)
+                .build();
+        final short[] signal = simulator.generate((int) (seconds * SAMPLE_RATE));
+        try (SpectrumProcessor processor = new SpectrumProcessor(AUDIO, analysis)) {
+            final short[] hop = new short[processor.getHopSamples()];
+            int frame = 0;
+            for (int offset = 0; offset + hop.length <= signal.length; offset += hop.length) {
+                System.arraycopy(signal, offset, hop, 0, hop.length);
+                if (processor.process(hop)) {
+                    check.check(frame++, processor.getTracker());
+                }
+            }
+        }
+    }
+
+    private static EchoTracker.Track confirmedNear(EchoTracker tracker, double speed) {
+        for (int i = 0; i < tracker.getTrackCount(); i++) {
+            final EchoTracker.Track track = tracker.getTrack(i);
+            if (track.isConfirmed() && Math.abs(track.getSpeed() - speed) < 0.1) {
+                return track;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void twoTargetsKeepTheirIds() {
+        final DopplerSimulator simulator = new DopplerSimulator.Builder(SAMPLE_RATE, AUDIO.getCarrierFreq())
+                .setCarrierAmplitude(4000)
+                .setNoise(30, 11)
+                .addReflector(800, DopplerSimulator.VelocityProfile.constant(1.2))
+                .addReflector(500, DopplerSimulator.VelocityProfile.constant(-0.8))
+                .build();
+        final int[] ids = new int[2];
+        run(simulator, 2, (frame, tracker) -> {
+            if (frame < EchoTracker.CONFIRM_HITS + 2) {
+                return;
+            }
+            final EchoTracker.Track approaching = confirmedNear(tracker, 1.2);
+            final EchoTracker.Track receding = confirmedNear(tracker, -0.8);
+            assertNotNull("frame " + frame, approaching);
+            assertNotNull("frame " + frame, receding);
+            assertEquals(1.2, approaching.getSpeed(), 0.01);
+            assertEquals(-0.8, receding.getSpeed(), 0.01);
+            if (ids[0] == 0) {
+                ids[0] = approaching.getId();
+                ids[1] = receding.getId();
+            }
+            assertEquals(ids[0], approaching.getId());
+            assertEquals(ids[1], receding.getId());
+        });
+    }
+
+    @Test
+    public void followsAnAcceleratingTargetWithGatesOnly() {
+        final DopplerSimulator simulator = new DopplerSimulator.Builder(SAMPLE_RATE, AUDIO.getCarrierFreq())
+                .setCarrierAmplitude(4000)
+                .setNoise(30, 12)
+                .addReflector(800, DopplerSimulator.VelocityProfile.ramp(0.5, 2.0, 2))
+                .build();
+        final int bandBins = (AUDIO.getNFftChunkSamples() / 2 + 1);
+        final int[] id = {0};
+        run(simulator, 2, (frame, tracker) -> {
+            if (frame % EchoTracker.SCAN_INTERVAL != 0) {
+                // between scans only the gates around the predictions are searched
+                assertTrue("frame " + frame, tracker.getBinsSearched() < bandBins / 20);
+            }
+            if (frame < EchoTracker.CONFIRM_HITS) {
+                return;
+            }
+            assertEquals(1, tracker.getTrackCount());
+            final EchoTracker.Track track = tracker.getTrack(0);
+            assertTrue(track.isConfirmed());
+            if (id[0] == 0) {
+                id[0] = track.getId();
+            }
+            assertEquals(id[0], track.getId());
+        });
+    }
+
+    @Test
+    public void noiseStartsNoConfirmedTrack() {
+        final DopplerSimulator simulator = new DopplerSimulator.Builder(SAMPLE_RATE, AUDIO.getCarrierFreq())
+                .setCarrierAmplitude(4000)
+                .setNoise(100, 13)
+                .build();
+        run(simulator, 2, (frame, tracker) -> {
+            for (int i = 0; i < tracker.getTrackCount(); i++) {
+                assertFalse("frame " + frame, tracker.getTrack(i).isConfirmed());
+            }
+        });
+    }
+}
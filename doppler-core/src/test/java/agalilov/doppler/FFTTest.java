@@ -0,0 +1,110 @@
+package agalilov.doppler;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FFTTest {
+    private static double[] dft(double[] ri, boolean inverse) {
+        final int n = ri.length / 2;
+        final double sign = inverse ? 1 : -1;
+        final double[] out = new double[2 * n];
+        for (int k = 0; k < n; k++) {
+            for (int t = 0; t < n; t++) {
+                final double phase = sign * 2 * Math.PI * ((long) k * t % n) / n;
+                final double c = Math.cos(phase), s = Math.sin(phase);
+                out[2 * k] += ri[2 * t] * c - ri[2 * t + 1] * s;
+                out[2 * k + 1] += ri[2 * t] * s + ri[2 * t + 1] * c;
+            }
+            if (inverse) {
+                out[2 * k] /= n;
+                out[2 * k + 1] /= n;
+            }
+        }
+        return out;
+    }
+
+    private static double[] random(int length, long seed) {
+        final Random random = new Random(seed);
+        final double[] v = new double[length];
+        for (int i = 0; i < length; i++) {
+            v[i] = random.nextGaussian();
+        }
+        return v;
+    }
+
+    private static void assertClose(double[] expected, double[] actual, int length) {
+        for (int i = 0; i < length; i++) {
+            assertEquals("index " + i, expected[i], actual[i], 1e-9 * Math.max(1, Math.abs(expected[i])));
+        }
+    }
+
+    @Test
+    public void complexMatchesDft() {
+        for (int n : new int[]{1, 2, 4, 8, 32, 128, 3, 6, 12, 100, 441}) {
+            for (boolean inverse : new boolean[]{false, true}) {
+                final double[] data = random(2 * n, n);
+                final double[] expected = dft(data, inverse);
+                new FFT(n).transform(data, inverse);
+                assertClose(expected, data, 2 * n);
+            }
+        }
+    }
+
+    @Test
+    public void inverseRestoresInput() {
+        final double[] data = random(2 * 1024, 1);
+        final double[] original = data.clone();
+        final FFT fft = new FFT(1024);
+        fft.transform(data, false);
+        fft.transform(data, true);
+        assertClose(original, data, data.length);
+    }
+
+    @Test
+    public void realInverseRestoresInput() {
+        for (int n : new int[]{2, 4, 8, 16, 4096, 6, 10, 882}) {
+            final double[] samples = random(n, n);
+            final double[] spectre = new double[n + 2];
+            final double[] restored = new double[n];
+            try (FftEngine fft = FftEngine.create(FftEngine.Kind.JAVA)) {
+                fft.transformReal(samples, spectre);
+                fft.inverseReal(spectre, restored);
+            }
+            assertClose(samples, restored, n);
+        }
+    }
+
+    @Test
+    public void realMatchesDft() {
+        for (int n : new int[]{2, 4, 8, 16, 256, 6, 10, 882}) {
+            final double[] samples = random(n, n);
+            final double[] complex = new double[2 * n];
+            for (int i = 0; i < n; i++) {
+                complex[2 * i] = samples[i];
+            }
+            final double[] expected = dft(complex, false);
+            final double[] data = new double[n + 2];
+            System.arraycopy(samples, 0, data, 0, n);
+            new FFT.Real(n).forward(data);
+            assertClose(expected, data, n + 2);
+        }
+    }
+
+    @Test
+    public void nextPowerOfTwo() {
+        assertEquals(1, FFT.nextPowerOfTwo(1));
+        assertEquals(4, FFT.nextPowerOfTwo(3));
+        assertEquals(4, FFT.nextPowerOfTwo(4));
+        assertEquals(8192, FFT.nextPowerOfTwo(4097));
+        assertTrue(FFT.isPowerOfTwo(64));
+        assertFalse(FFT.isPowerOfTwo(96));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOddRealLength() {
+        new FFT.Real(7);
+    }
+}
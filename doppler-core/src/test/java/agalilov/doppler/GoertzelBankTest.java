@@ -0,0 +1,31 @@
+package agalilov.doppler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GoertzelBankTest {
+    @Test
+    public void matchesDirectDtftAtFractionalBins() {
+        final int n = 512;
+        final double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = Math.sin(0.9 * i) + 0.25 * Math.cos(0.31 * i + 1);
+        }
+        final double w0 = 0.85, dw = 0.0037;
+        final int nBins = 16;
+        final double[] out = new double[2 * nBins];
+        new GoertzelBank(n, nBins, w0, dw).analyze(x, out);
+
+        for (int k = 0; k < nBins; k++) {
+            final double w = w0 + k * dw;
+            double re = 0, im = 0;
+            for (int i = 0; i < n; i++) {
+                re += x[i] * Math.cos(w * i);
+                im -= x[i] * Math.sin(w * i);
+            }
+            assertEquals(re, out[2 * k], 1e-8);
+            assertEquals(im, out[2 * k + 1], 1e-8);
+        }
+    }
+}
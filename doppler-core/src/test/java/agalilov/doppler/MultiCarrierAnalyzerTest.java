@@ -0,0 +1,102 @@
+package agalilov.doppler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MultiCarrierAnalyzerTest {
+    private static final int SAMPLE_RATE = 44100;
+    private static final AudioParameters AUDIO = new AudioParameters(SAMPLE_RATE, 4096, 1024, 20000, 4, 1000);
+
+    /**
+     * @param echoes reflector amplitude per carrier, 0 for a carrier in a speaker null
+     */
+    private static short[] signal(double speed, double[] echoes, double noise) {
+        final short[] sum = new short[SAMPLE_RATE];
+        for (int i = 0; i < AUDIO.getCarrierCount(); i++) {
+            final DopplerSimulator.Builder builder = new DopplerSimulator.Builder(SAMPLE_RATE, AUDIO.getCarrierFreq(i))
+                    .setCarrierAmplitude(4000)
+                    .setNoise(i == 0 ? noise : 0, 3);
+            if (echoes[i] > 0) {
+                builder.addReflector(echoes[i], DopplerSimulator.VelocityProfile.constant(speed));
+            }
+            final short[] carrier = builder.build().generate(sum.length);
+            for (int t = 0; t < sum.length; t++) {
+                sum[t] += carrier[t];
+            }
+        }
+        return sum;
+    }
+
+    private static MultiCarrierAnalyzer.Reading lastReading(short[] signal) {
+        final AnalysisParameters analysis = new AnalysisParameters.Builder()
+                .setSpectrumMode(AnalysisParameters.SpectrumMode.MULTI_CARRIER)
+                .setFftEngine(FftEngine.Kind.JAVA)
+                .build();
+        try (SpectrumProcessor processor = new SpectrumProcessor(AUDIO, analysis)) {
+            final short[] hop = new short[processor.getHopSamples()];
+            MultiCarrierAnalyzer.Reading reading = null;
+            for (int offset = 0; offset + hop.length <= signal.length; offset += hop.length) {
+                System.arraycopy(signal, offset, hop, 0, hop.length);
+                if (processor.process(hop)) {
+                    reading = processor.getReading();
+                }
+            }
+            return reading;
+        }
+    }
+
+    @Test
+    public void everyCarrierSeesTheSameSpeed() {
+        final MultiCarrierAnalyzer.Reading reading = lastReading(signal(-1.2, new double[]{1500, 1500, 1500, 1500}, 0));
+        assertNotNull(reading);
+        assertEquals(4, reading.getDetectedCarriers());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(-1.2, reading.getCarrierSpeed(i), 0.03);
+        }
+        assertEquals(-1.2, reading.getSpeed(), 0.03);
+    }
+
+    @Test
+    public void fadedCarrierIsOutvoted() {
+        final double[] echoes = {1500, 1500, 0, 1500};
+        final short[] signal = signal(1.0, echoes, 50);
+        // a stray tone where carrier 2 should have had its echo
+        final double strayHz = AUDIO.getCarrierFreq(2) - 200;
+        for (int t = 0; t < signal.length; t++) {
+            signal[t] += (short) (1500 * Math.sin(2 * Math.PI * strayHz * t / SAMPLE_RATE));
+        }
+        final MultiCarrierAnalyzer.Reading reading = lastReading(signal);
+        assertTrue(reading.getCarrierSpeed(2) < 0);
+        assertEquals(1.0, reading.getSpeed(), 0.03);
+    }
+
+    @Test
+    public void nothingToDetect() {
+        final MultiCarrierAnalyzer.Reading reading = lastReading(signal(0, new double[4], 300));
+        assertEquals(0, reading.getDetectedCarriers());
+        assertTrue(Double.isNaN(reading.getSpeed()));
+    }
+
+    @Test
+    public void interruptIsKeptThroughAnalysisAndClose() {
+        final AnalysisParameters analysis = new AnalysisParameters.Builder()
+                .setSpectrumMode(AnalysisParameters.SpectrumMode.MULTI_CARRIER)
+                .setFftEngine(FftEngine.Kind.JAVA)
+                .build();
+        final MultiCarrierAnalyzer analyzer = new MultiCarrierAnalyzer(AUDIO, analysis);
+        final short[] hop = new short[AUDIO.getHopSamples()];
+        final double[] timeData = new double[AUDIO.getNFftChunkSamples()];
+        final double[] out = new double[2 * SpectrumLayout.of(AUDIO, analysis).getNBins()];
+        try {
+            Thread.currentThread().interrupt();
+            final MultiCarrierAnalyzer.Reading reading = analyzer.analyze(hop, hop.length, timeData, out);
+            // the bands ran to the end either way, on the pool or on this thread alone
+            assertTrue(reading == null || reading.getDetectedCarriers() == 0);
+            analyzer.close();
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
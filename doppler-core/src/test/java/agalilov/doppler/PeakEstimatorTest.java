@@ -0,0 +1,91 @@
+package agalilov.doppler;
+
+import org.junit.Test;
+
+import uk.me.berndporr.kiss_fft.KISSFastFourierTransformer;
+
+import static org.junit.Assert.*;
+
+public class PeakEstimatorTest {
+    private static final int SAMPLE_RATE = 44100;
+    // 175 Hz of shift, clear of the carrier's main lobe even in a 2048 point window
+    private static final double SPEED = 1.5;
+
+    /**
+     * @return largest error, in Hz, of the echo frequency over the frames of one second of echo
+     */
+    private static double worstError(AudioParameters audio, AnalysisParameters analysis) {
+        final double carrierHz = audio.getCarrierFreq();
+        final short[] signal = new DopplerSimulator.Builder(SAMPLE_RATE, carrierHz)
+                .setCarrierAmplitude(4000)
+                .setNoise(20, 5)
+                .addReflector(1000, DopplerSimulator.VelocityProfile.constant(SPEED))
+                .build()
+                .generate(SAMPLE_RATE);
+        final double expectedHz = analysis.getVelocity().receivedFrequency(carrierHz, SPEED);
+        double worst = 0;
+        int nFrames = 0;
+        try (SpectrumProcessor processor = new SpectrumProcessor(audio, analysis)) {
+            final short[] hop = new short[processor.getHopSamples()];
+            for (int offset = 0; offset + hop.length <= signal.length; offset += hop.length) {
+                System.arraycopy(signal, offset, hop, 0, hop.length);
+                if (processor.process(hop)) {
+                    worst = Math.max(worst, Math.abs(processor.getEchoFrequency() - expectedHz));
+                    nFrames++;
+                }
+            }
+        }
+        assertTrue(nFrames >= 5);
+        return worst;
+    }
+
+    private static AnalysisParameters analysis(AnalysisParameters.SpectrumMode mode,
+                                               KISSFastFourierTransformer.Window window,
+                                               PeakEstimator.Method method) {
+        return new AnalysisParameters.Builder()
+                .setSpectrumMode(mode)
+                .setFftEngine(FftEngine.Kind.JAVA)
+                .setWindow(window)
+                .setPeakEstimator(method)
+                .build();
+    }
+
+    @Test
+    public void shortWindowBeatsLongWindowBins() {
+        final AudioParameters longWindow = new AudioParameters(SAMPLE_RATE, 16384, 4096, 20000);
+        final AudioParameters shortWindow = new AudioParameters(SAMPLE_RATE, 2048, 512, 20000);
+        final double longWindowError = worstError(longWindow, analysis(AnalysisParameters.SpectrumMode.FULL_FFT,
+                KISSFastFourierTransformer.Window.BLACKMAN_HARRIS, PeakEstimator.Method.BIN));
+        final double binHz = (double) SAMPLE_RATE / 16384;
+        assertTrue(longWindowError > 0.1 * binHz && longWindowError <= 0.5 * binHz);
+
+        for (PeakEstimator.Method method : new PeakEstimator.Method[]{PeakEstimator.Method.PARABOLIC,
+                PeakEstimator.Method.JACOBSEN, PeakEstimator.Method.PHASE}) {
+            final double error = worstError(shortWindow, analysis(AnalysisParameters.SpectrumMode.FULL_FFT,
+                    KISSFastFourierTransformer.Window.BLACKMAN_HARRIS, method));
+            assertTrue(method + ": " + error + " Hz", error < longWindowError);
+        }
+    }
+
+    @Test
+    public void quinnOnTheRectangularWindow() {
+        final AudioParameters audio = new AudioParameters(SAMPLE_RATE, 2048, 512, 20000);
+        final double error = worstError(audio, analysis(AnalysisParameters.SpectrumMode.FULL_FFT,
+                KISSFastFourierTransformer.Window.RECTANGULAR, PeakEstimator.Method.QUINN));
+        assertEquals(0, error, 0.2);
+    }
+
+    @Test
+    public void everyModeRefines() {
+        final AudioParameters audio = new AudioParameters(SAMPLE_RATE, 2048, 512, 20000);
+        for (AnalysisParameters.SpectrumMode mode : new AnalysisParameters.SpectrumMode[]{
+                AnalysisParameters.SpectrumMode.ZOOM, AnalysisParameters.SpectrumMode.BASEBAND}) {
+            for (PeakEstimator.Method method : new PeakEstimator.Method[]{
+                    PeakEstimator.Method.JACOBSEN, PeakEstimator.Method.PHASE}) {
+                final double error = worstError(audio, analysis(mode,
+                        KISSFastFourierTransformer.Window.HANN, method));
+                assertEquals(mode + " " + method, 0, error, 0.2);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package agalilov.doppler;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PipelineStatsTest {
+    private static final int SAMPLE_RATE = 44100;
+
+    @Test
+    public void bucketsCoverEveryValueWithinAnEighth() {
+        for (long micros = 0; micros < 1 << 20; micros += 1 + micros / 100) {
+            final int bucket = LatencyHistogram.bucket(micros);
+            assertTrue(LatencyHistogram.lowerBound(bucket) <= micros);
+            assertTrue(micros < LatencyHistogram.lowerBound(bucket + 1));
+            assertTrue(LatencyHistogram.lowerBound(bucket + 1) - LatencyHistogram.lowerBound(bucket)
+                    <= Math.max(1, micros / 8));
+        }
+    }
+
+    @Test
+    public void percentiles() {
+        final LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            h.record(i * 1000L); // 1..1000 us
+        }
+        assertEquals(1000, h.getCount());
+        assertEquals(500.5, h.getMeanMicros(), 1e-9);
+        assertEquals(1000, h.getMaxMicros(), 1e-9);
+        assertEquals(500, h.getPercentileMicros(0.5), 500 / 8.0);
+        assertEquals(990, h.getPercentileMicros(0.99), 990 / 8.0);
+        h.reset();
+        assertEquals(0, h.getPercentileMicros(0.5));
+    }
+
+    @Test
+    public void replayFillsTheProcessingStages() throws Exception {
+        final AudioParameters audio = new AudioParameters(SAMPLE_RATE, 4096, 1024, 20000);
+        final AnalysisParameters analysis = new AnalysisParameters.Builder()
+                .setFftEngine(FftEngine.Kind.JAVA)
+                .build();
+        final AtomicInteger frames = new AtomicInteger();
+        final RecordAudioThread thread = new RecordAudioThread(
+                new MemoryAudioSource(new short[10 * SAMPLE_RATE], SAMPLE_RATE, false), audio, analysis,
+                data -> frames.incrementAndGet());
+        final PipelineStats stats = thread.getProcessingThread().getStats();
+        thread.start();
+        thread.join(60000);
+        assertFalse(thread.isAlive());
+
+        assertEquals(frames.get(), stats.get(PipelineStats.Counter.FRAMES));
+        assertEquals(frames.get(), stats.get(PipelineStats.Stage.TRANSFORM).getCount());
+        assertEquals(frames.get(), stats.get(PipelineStats.Stage.DELIVERY).getCount());
+        assertEquals(10 * SAMPLE_RATE / 1024, stats.get(PipelineStats.Stage.QUEUE).getCount());
+        assertTrue(stats.get(PipelineStats.Stage.READ).getCount() > 0);
+        assertEquals(0, stats.get(PipelineStats.Counter.DROPPED_FRAMES));
+        // nothing draws here
+        assertEquals(0, stats.get(PipelineStats.Stage.RENDER).getCount());
+
+        final StringWriter csv = new StringWriter();
+        stats.writeCsv(csv);
+        assertTrue(csv.toString().contains("TRANSFORM," + frames.get() + ","));
+        assertTrue(csv.toString().contains("FRAMES," + frames.get()));
+    }
+
+    @Test
+    public void hopsRefillingTheWindowAfterAGapAreDropped() throws Exception {
+        final AudioParameters audio = new AudioParameters(SAMPLE_RATE, 4096, 1024, 20000);
+        final AnalysisParameters analysis = new AnalysisParameters.Builder()
+                .setFftEngine(FftEngine.Kind.JAVA)
+                .build();
+        final AtomicInteger frames = new AtomicInteger();
+        final ProcessingThread thread = new ProcessingThread(data -> frames.incrementAndGet(), audio, analysis);
+        // nothing is processed yet: the ring keeps the newest hops and the end marker, the older
+        // hops are a gap and the kept ones refill the window after it
+        final int nHops = 20;
+        for (int i = 0; i < nHops; i++) {
+            thread.enqueue(new short[1024], 1024);
+        }
+        thread.endOfStream();
+        thread.start();
+        thread.join(60000);
+        assertFalse(thread.isAlive());
+
+        assertEquals(0, frames.get());
+        assertEquals(nHops, thread.getDroppedFrames());
+        assertEquals(nHops, thread.getStats().get(PipelineStats.Counter.DROPPED_FRAMES));
+    }
+}
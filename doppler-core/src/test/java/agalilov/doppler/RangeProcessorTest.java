@@ -0,0 +1,63 @@
+package agalilov.doppler;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * The emitted chirp with a delayed echo, through the RANGE mode of the processor.
+ */
+public class RangeProcessorTest {
+    private static final int SAMPLE_RATE = 44100;
+    private static final AudioParameters AUDIO = new AudioParameters(SAMPLE_RATE, 4096, 1024, 20000);
+    private static final AnalysisParameters ANALYSIS = new AnalysisParameters.Builder()
+            .setSpectrumMode(AnalysisParameters.SpectrumMode.RANGE)
+            .setFftEngine(FftEngine.Kind.JAVA)
+            .setSoundSpeed(343, true)
+            .build();
+
+    /**
+     * @return the range of the strongest echo in the last frame
+     */
+    private static double echoRange(int directDelay, int echoDelay) {
+        final short[] chirp = new short[SAMPLE_RATE];
+        RangeProcessor.chirp(AUDIO, ANALYSIS).build().fill(chirp, 0, chirp.length);
+        final Random random = new Random(5);
+        final short[] received = new short[chirp.length];
+        for (int t = echoDelay; t < received.length; t++) {
+            received[t] = (short) (0.5 * chirp[t - directDelay] + 0.1 * chirp[t - echoDelay]
+                    + 200 * random.nextGaussian());
+        }
+        try (SpectrumProcessor processor = new SpectrumProcessor(AUDIO, ANALYSIS)) {
+            final short[] hop = new short[processor.getHopSamples()];
+            RangeProcessor.Profile profile = null;
+            int frames = 0;
+            for (int offset = 0; offset + hop.length <= received.length; offset += hop.length) {
+                System.arraycopy(received, offset, hop, 0, hop.length);
+                if (processor.process(hop)) {
+                    profile = processor.getRangeProfile();
+                    frames++;
+                    // every frame, not just aligned ones, sees the echo
+                    if (offset > echoDelay + AUDIO.getNFftChunkSamples()) {
+                        assertEquals(echoDelay - directDelay, profile.strongestEcho());
+                    }
+                }
+            }
+            assertTrue(frames > 30);
+            return profile.range(profile.strongestEcho());
+        }
+    }
+
+    @Test
+    public void findsTheEcho() {
+        // 150 samples of round trip behind the direct path
+        assertEquals(150 * 343.0 / SAMPLE_RATE / 2, echoRange(37, 187), 1e-9);
+    }
+
+    @Test
+    public void rangeDoesNotDependOnTheLatency() {
+        assertEquals(echoRange(5, 405), echoRange(1500, 1900), 1e-9);
+    }
+}
@@ -0,0 +1,36 @@
+package agalilov.doppler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SampleHistoryTest {
+    @Test
+    public void unrollsOldestFirstAcrossTheWrap() {
+        SampleHistory history = new SampleHistory(4);
+        history.append(new short[]{1, 2, 3}, 0, 3);
+        assertFalse(history.isFull());
+        history.append(new short[]{4, 5, 6}, 0, 3);
+        assertTrue(history.isFull());
+
+        double[] window = new double[4];
+        history.copyTo(window);
+        assertArrayEquals(new double[]{3, 4, 5, 6}, window, 0);
+
+        short[] pcm = new short[4];
+        history.copyTo(pcm);
+        assertArrayEquals(new short[]{3, 4, 5, 6}, pcm);
+        // the raw buffer unrolled from the oldest index gives the same order
+        assertEquals(3, history.getSamples()[history.getOldest()]);
+    }
+
+    @Test
+    public void resetStartsCollectingAgain() {
+        SampleHistory history = new SampleHistory(2);
+        history.append(new short[]{1, 2}, 0, 2);
+        history.reset();
+        assertFalse(history.isFull());
+        history.append(new short[]{7}, 0, 1);
+        assertFalse(history.isFull());
+    }
+}
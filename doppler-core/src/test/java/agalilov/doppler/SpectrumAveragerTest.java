@@ -0,0 +1,96 @@
+package agalilov.doppler;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SpectrumAveragerTest {
+    private static final int N_BINS = 64;
+    // 1024 / 44100 s hops: 10 frames to the time constant, 20 frames of WELCH
+    private static final AudioParameters AUDIO = new AudioParameters(44100, 4096, 1024, 20000);
+    private static final double TIME_CONSTANT = 10 * 1024 / 44100.0;
+
+    private static SpectrumAverager averager(SpectrumAverager.Kind kind) {
+        return new SpectrumAverager(AUDIO, new AnalysisParameters.Builder()
+                .setAveraging(kind, TIME_CONSTANT)
+                .build(), N_BINS);
+    }
+
+    private static double[] noise(Random random) {
+        final double[] data = new double[2 * N_BINS];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = 100 * random.nextGaussian();
+        }
+        return data;
+    }
+
+    @Test
+    public void welchIsTheMeanOfTheLastFrames() {
+        final SpectrumAverager averager = averager(SpectrumAverager.Kind.WELCH);
+        final int nFrames = averager.getFrames();
+        assertEquals(20, nFrames);
+        final Random random = new Random(31);
+        final double[][] frames = new double[5 * nFrames][];
+        for (int f = 0; f < frames.length; f++) {
+            frames[f] = noise(random);
+            final double[] average = averager.add(frames[f]);
+            for (int i = 0; i < N_BINS; i++) {
+                double expected = 0;
+                final int first = Math.max(0, f - nFrames + 1);
+                for (int g = first; g <= f; g++) {
+                    expected += PeakFinder.power(frames[g], i);
+                }
+                expected /= f - first + 1;
+                assertEquals("frame " + f, expected, PeakFinder.power(average, i), 1e-9 * expected);
+            }
+        }
+    }
+
+    @Test
+    public void exponentialFollowsAStepWithinTheTimeConstant() {
+        final SpectrumAverager averager = averager(SpectrumAverager.Kind.EXPONENTIAL);
+        final double[] low = new double[2 * N_BINS];
+        final double[] high = new double[2 * N_BINS];
+        for (int i = 0; i < N_BINS; i++) {
+            low[2 * i] = 1;
+            high[2 * i + 1] = 2;
+        }
+        assertEquals(1, PeakFinder.power(averager.add(low), 0), 1e-12);
+        double[] average = null;
+        for (int f = 0; f < 10; f++) {
+            average = averager.add(high);
+        }
+        // 1 - 1 / e of the way from 1 to 4
+        assertEquals(1 + 3 * (1 - Math.exp(-1)), PeakFinder.power(average, N_BINS - 1), 1e-9);
+        averager.reset();
+        assertEquals(4, PeakFinder.power(averager.add(high), 0), 1e-12);
+    }
+
+    @Test
+    public void averagingSettlesTheNoise() {
+        for (SpectrumAverager.Kind kind : new SpectrumAverager.Kind[]{
+                SpectrumAverager.Kind.EXPONENTIAL, SpectrumAverager.Kind.WELCH}) {
+            final SpectrumAverager averager = averager(kind);
+            final Random random = new Random(32);
+            double sum = 0, sumSquares = 0;
+            int n = 0;
+            for (int f = 0; f < 400; f++) {
+                final double[] average = averager.add(noise(random));
+                if (f >= 100) {
+                    for (int i = 0; i < N_BINS; i++) {
+                        final double power = PeakFinder.power(average, i);
+                        sum += power;
+                        sumSquares += power * power;
+                        n++;
+                    }
+                }
+            }
+            final double mean = sum / n;
+            final double spread = Math.sqrt(sumSquares / n - mean * mean) / mean;
+            // a single periodogram bin spreads by 100% of its mean, 20 frames' worth by 1/sqrt(20)
+            assertEquals(kind.name(), 1 / Math.sqrt(20), spread, 0.05);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package agalilov.doppler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * The whole FFT path on the pure Java engine, no native library needed.
+ */
+public class SpectrumProcessorTest {
+    private static final int SAMPLE_RATE = 44100;
+
+    private static double strongestEcho(AnalysisParameters.SpectrumMode mode, double echoHz) {
+        final AudioParameters audio = new AudioParameters(SAMPLE_RATE, 4096, 1024, 20000);
+        final AnalysisParameters analysis = new AnalysisParameters.Builder()
+                .setSpectrumMode(mode)
+                .setFftEngine(FftEngine.Kind.JAVA)
+                .build();
+        try (SpectrumProcessor processor = new SpectrumProcessor(audio, analysis)) {
+            final SpectrumLayout layout = processor.getLayout();
+            final short[] hop = new short[audio.getHopSamples()];
+            int frames = 0, t = 0;
+            for (int h = 0; h < 12; h++) {
+                for (int i = 0; i < hop.length; i++, t++) {
+                    hop[i] = (short) (8000 * Math.sin(2 * Math.PI * audio.getCarrierFreq() * t / SAMPLE_RATE)
+                            + 2000 * Math.sin(2 * Math.PI * echoHz * t / SAMPLE_RATE));
+                }
+                if (processor.process(hop)) {
+                    frames++;
+                }
+            }
+            // the first frame needs a full window, then one per hop
+            assertEquals(12 - 4 + 1, frames);
+            // above the main lobe of the carrier, +-4 bins of the window length for Blackman-Harris
+            final int from = layout.getCentralBin() + (int) Math.ceil(4.5 * SAMPLE_RATE / 4096 / layout.getBinHz());
+            return layout.frequency(PeakFinder.strongestBin(processor.getSpectre(), from,
+                    layout.getNBins(), -1));
+        }
+    }
+
+    @Test
+    public void findsTheEchoInEveryMode() {
+        final double echoHz = 20000 + 150;
+        for (AnalysisParameters.SpectrumMode mode : AnalysisParameters.SpectrumMode.values()) {
+            assertEquals(mode.name(), echoHz, strongestEcho(mode, echoHz), 44100.0 / 4096);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package agalilov.doppler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SpscRingTest {
+    @Test
+    public void keepsFifoOrder() {
+        SpscRing<Integer> ring = new SpscRing<>(3, SpscRing.OverflowPolicy.OVERWRITE_OLDEST);
+        assertNull(ring.offer(1));
+        assertNull(ring.offer(2));
+        assertEquals(Integer.valueOf(1), ring.poll());
+        assertEquals(Integer.valueOf(2), ring.poll());
+        assertNull(ring.poll());
+    }
+
+    @Test
+    public void overwritesOldestWhenFull() {
+        SpscRing<Integer> ring = new SpscRing<>(2, SpscRing.OverflowPolicy.OVERWRITE_OLDEST);
+        ring.offer(1);
+        ring.offer(2);
+        assertEquals(Integer.valueOf(1), ring.offer(3));
+        assertEquals(1, ring.getDropped());
+        assertEquals(Integer.valueOf(2), ring.poll());
+        assertEquals(Integer.valueOf(3), ring.poll());
+    }
+
+    @Test
+    public void dropsNewestWhenFull() {
+        SpscRing<Integer> ring = new SpscRing<>(2, SpscRing.OverflowPolicy.DROP_NEWEST);
+        ring.offer(1);
+        ring.offer(2);
+        assertEquals(Integer.valueOf(3), ring.offer(3));
+        assertEquals(1, ring.getDropped());
+        assertEquals(Integer.valueOf(1), ring.poll());
+        assertEquals(Integer.valueOf(2), ring.poll());
+    }
+
+    @Test
+    public void concurrentProducerNeverLosesCount() throws InterruptedException {
+        final int n = 200000;
+        final SpscRing<Integer> ring = new SpscRing<>(8, SpscRing.OverflowPolicy.OVERWRITE_OLDEST);
+        final int[] received = new int[1];
+        final boolean[] ordered = {true};
+        Thread consumer = new Thread(() -> {
+            int last = -1;
+            try {
+                for (; ; ) {
+                    int v = ring.take();
+                    if (v <= last) {
+                        ordered[0] = false;
+                    }
+                    last = v;
+                    received[0]++;
+                    if (v == n - 1) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException ignored) {
+            }
+        });
+        consumer.start();
+        for (int i = 0; i < n; i++) {
+            ring.offer(i);
+        }
+        consumer.join(10000);
+        assertFalse(consumer.isAlive());
+        assertTrue(ordered[0]);
+        assertEquals(n, received[0] + ring.getDropped());
+    }
+}
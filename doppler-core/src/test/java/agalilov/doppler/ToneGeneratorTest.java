@@ -0,0 +1,123 @@
+package agalilov.doppler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ToneGeneratorTest {
+    private static final int SAMPLE_RATE = 44100;
+
+    @Test
+    public void toneStaysOnTheSineForMillionsOfSamples() {
+        // the carrier of a 4096 point window, as PlayAudioThread emits it
+        final int harmonic = 1860, n = 4096;
+        final ToneGenerator generator = new ToneGenerator.Builder(SAMPLE_RATE)
+                .addTone((double) harmonic * SAMPLE_RATE / n, 1)
+                .build();
+        final short[] samples = new short[10000];
+        long t = 0;
+        for (int block = 0; block < 500; block++) {
+            generator.fill(samples, 0, samples.length);
+            for (short sample : samples) {
+                final double expected = Short.MAX_VALUE * Math.sin(2 * Math.PI * (t++ * harmonic % n) / n);
+                assertEquals("t = " + t, expected, sample, 1.5);
+            }
+        }
+    }
+
+    @Test
+    public void chunkingDoesNotMatter() {
+        final ToneGenerator.Builder builder = new ToneGenerator.Builder(SAMPLE_RATE)
+                .addTone(18000, 0.3)
+                .addTone(19000.5, 0.3)
+                .addChirp(15000, 17000, 0.01, 0, 0.3);
+        final short[] whole = new short[20000];
+        builder.build().fill(whole, 0, whole.length);
+        final short[] pieces = new short[whole.length];
+        final ToneGenerator generator = builder.build();
+        for (int offset = 0, length = 1; offset < pieces.length; offset += length, length = length * 3 % 997 + 1) {
+            generator.fill(pieces, offset, Math.min(length, pieces.length - offset));
+        }
+        assertArrayEquals(whole, pieces);
+    }
+
+    @Test
+    public void linearChirp() {
+        final double f0 = 1000, f1 = 5000, period = 0.5;
+        final int periodSamples = (int) (period * SAMPLE_RATE);
+        final ToneGenerator generator = new ToneGenerator.Builder(SAMPLE_RATE)
+                .addChirp(f0, f1, period, 0, 1)
+                .build();
+        final short[] samples = new short[2 * periodSamples];
+        generator.fill(samples, 0, samples.length);
+        final double k = (f1 - f0) / SAMPLE_RATE / periodSamples; // turns per sample^2
+        double phase = 0;
+        for (int i = 0; i < samples.length; i++) {
+            final int m = i % periodSamples;
+            assertEquals("i = " + i, Short.MAX_VALUE * Math.sin(2 * Math.PI * phase), samples[i], 3);
+            phase += f0 / SAMPLE_RATE + k * m;
+        }
+    }
+
+    @Test
+    public void steppedChirp() {
+        final int steps = 4;
+        final ToneGenerator generator = new ToneGenerator.Builder(SAMPLE_RATE)
+                .addChirp(1000, 2000, 0.4, steps, 1)
+                .build();
+        final short[] samples = new short[(int) (0.4 * SAMPLE_RATE)];
+        generator.fill(samples, 0, samples.length);
+        final int stepSamples = samples.length / steps;
+        for (int step = 0; step < steps; step++) {
+            int crossings = 0;
+            for (int i = step * stepSamples + 1; i < (step + 1) * stepSamples; i++) {
+                if ((samples[i - 1] < 0) != (samples[i] < 0)) {
+                    crossings++;
+                }
+            }
+            final double hz = crossings / 2.0 * SAMPLE_RATE / stepSamples;
+            assertEquals("step " + step, 1000 + 250 * step, hz, 15);
+        }
+    }
+
+    @Test
+    public void periodicChirpRepeatsExactly() {
+        final int period = 4096;
+        final ToneGenerator generator = new ToneGenerator.Builder(SAMPLE_RATE)
+                .addPeriodicChirp(16000, 20000, period, 1)
+                .build();
+        final short[] samples = new short[20 * period];
+        generator.fill(samples, 0, samples.length);
+        for (int i = period; i < samples.length; i++) {
+            assertEquals("i = " + i, samples[i - period], samples[i]);
+        }
+        // a whole number of turns: no jump where the period starts over
+        assertEquals(20000, ToneGenerator.Builder.periodicChirpEnd(SAMPLE_RATE, 16000, 20000, period),
+                (double) SAMPLE_RATE / period);
+        assertTrue(Math.abs(samples[period] - samples[period - 1]) < Short.MAX_VALUE);
+    }
+
+    @Test
+    public void sumIsClippedNotWrapped() {
+        final short[] samples = new short[SAMPLE_RATE / 10];
+        new ToneGenerator.Builder(SAMPLE_RATE)
+                .addTone(1000, 0.8)
+                .addTone(1000, 0.8)
+                .build()
+                .fill(samples, 0, samples.length);
+        int clipped = 0;
+        for (int i = 1; i < samples.length; i++) {
+            // a wrap around would jump across the whole range in one sample
+            assertTrue(Math.abs(samples[i] - samples[i - 1]) < 16000);
+            if (samples[i] == Short.MAX_VALUE) {
+                clipped++;
+            }
+        }
+        assertTrue(clipped > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void toneAboveNyquist() {
+        new ToneGenerator.Builder(SAMPLE_RATE).addTone(30000, 1);
+    }
+}
@@ -0,0 +1,69 @@
+package agalilov.doppler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WaterfallTest {
+    private static final int N_BINS = 64, CENTRAL = 32;
+
+    private static double[] spectrum(int echoBin, double echoAmplitude) {
+        final double[] data = new double[2 * N_BINS];
+        for (int i = 0; i < N_BINS; i++) {
+            data[2 * i] = 1e-3;
+        }
+        data[2 * CENTRAL] = 1e3;
+        data[2 * echoBin] = echoAmplitude;
+        return data;
+    }
+
+    @Test
+    public void paletteRunsFromBlackToWhite() {
+        final int[] palette = Waterfall.palette(Waterfall.LEVELS);
+        assertEquals(0xFF000000, palette[0]);
+        assertEquals(0xFFFFFFFF, palette[Waterfall.LEVELS - 1]);
+        for (int colour : palette) {
+            assertEquals(0xFF, colour >>> 24);
+        }
+    }
+
+    @Test
+    public void echoIsTheBrightestRowBesidesTheCarrier() {
+        final int nRows = 21;
+        final Waterfall waterfall = new Waterfall(nRows, 8, 60);
+        final int[] palette = Waterfall.palette(Waterfall.LEVELS);
+        waterfall.add(spectrum(CENTRAL + 3, 1), CENTRAL);
+        final int[] column = waterfall.getColumn();
+        // higher frequencies on top, the carrier in the middle row
+        final int carrierRow = nRows / 2, echoRow = carrierRow - 3;
+        assertEquals(palette[Waterfall.LEVELS - 1], column[carrierRow]);
+        assertEquals(palette[Waterfall.LEVELS - 1], column[echoRow]);
+        // 60 dB below the echo is the floor
+        assertEquals(palette[0], column[echoRow + 1]);
+    }
+
+    @Test
+    public void ringWrapsAtTheOldestColumn() {
+        final Waterfall waterfall = new Waterfall(9, 4, 60);
+        assertEquals(0, waterfall.getOldestColumn());
+        for (int i = 0; i < 6; i++) {
+            assertEquals(i % 4, waterfall.add(spectrum(CENTRAL + 1, 1), CENTRAL));
+        }
+        assertEquals(2, waterfall.getOldestColumn());
+        waterfall.clear();
+        assertEquals(0, waterfall.add(spectrum(CENTRAL + 1, 1), CENTRAL));
+    }
+
+    @Test
+    public void fadingEchoDimsAgainstTheRecentPeak() {
+        final Waterfall waterfall = new Waterfall(9, 4, 60);
+        final int[] palette = Waterfall.palette(Waterfall.LEVELS);
+        waterfall.add(spectrum(CENTRAL + 2, 1), CENTRAL);
+        final int echoRow = 9 / 2 - 2;
+        waterfall.add(spectrum(CENTRAL + 2, 0.1), CENTRAL);
+        // 20 dB below the decayed reference, a third of the way down the palette
+        final double db = 10 * Math.log10(0.01 / 0.989);
+        final int level = (int) (Waterfall.LEVELS - 1 + db * (Waterfall.LEVELS - 1) / 60);
+        assertEquals(palette[level], waterfall.getColumn()[echoRow]);
+    }
+}
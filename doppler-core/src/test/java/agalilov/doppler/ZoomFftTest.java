@@ -0,0 +1,88 @@
+package agalilov.doppler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ZoomFftTest {
+    private static final int SAMPLE_RATE = 44100;
+    private static final double[] OFFSETS_HZ = {0, 37.3, -211.7, 500.2, -650};
+
+    private static AnalysisParameters zoom() {
+        return new AnalysisParameters.Builder()
+                .setSpectrumMode(AnalysisParameters.SpectrumMode.ZOOM)
+                .setFftEngine(FftEngine.Kind.JAVA)
+                .build();
+    }
+
+    /**
+     * @return the carrier and four weaker tones around it at time t, in samples
+     */
+    private static double signal(double carrierHz, double t) {
+        double value = 0;
+        for (int i = 0; i < OFFSETS_HZ.length; i++) {
+            final double amplitude = i == 0 ? 3000 : 300;
+            value += amplitude * Math.cos(2 * Math.PI * (carrierHz + OFFSETS_HZ[i]) * t / SAMPLE_RATE + i);
+        }
+        return value;
+    }
+
+    @Test
+    public void costsLessThanTheFullFft() {
+        final AnalysisParameters analysis = zoom();
+        for (int nFft = 2048; nFft <= 8192; nFft *= 2) {
+            final AudioParameters audio = new AudioParameters(SAMPLE_RATE, nFft, nFft / 4, 20000);
+            final SpectrumLayout layout = SpectrumLayout.of(audio, analysis);
+            final int decimation = ZoomFft.decimation(audio, analysis, layout, FftEngine.create(FftEngine.Kind.JAVA));
+            assertTrue(decimation > 1);
+            assertTrue("N = " + nFft, ZoomFft.cost(audio, analysis, layout, decimation)
+                    < BandAnalyzer.fullFftCost(nFft));
+        }
+    }
+
+    @Test
+    public void matchesTheBandAnalyzer() {
+        final AnalysisParameters analysis = zoom();
+        final AudioParameters audio = new AudioParameters(SAMPLE_RATE, 4096, 1024, 20000);
+        final int nFft = audio.getNFftChunkSamples();
+        final SpectrumLayout layout = SpectrumLayout.of(audio, analysis);
+        final FftEngine fft = FftEngine.create(FftEngine.Kind.JAVA);
+        final int decimation = ZoomFft.decimation(audio, analysis, layout, fft);
+        final ZoomFft zoom = ZoomFft.create(audio, analysis, layout, 0, fft);
+        assertNotNull(zoom);
+        final BandAnalyzer reference = BandAnalyzer.create(layout, nFft, SAMPLE_RATE,
+                FftEngine.create(FftEngine.Kind.JAVA));
+        final double carrierHz = audio.getCarrierFreq();
+        // the window the zoom sees ends the filter's group delay, less D - 1, before the last sample
+        final double delay = (decimation * analysis.getTapsPerBranch() - 1) / 2.0 - (decimation - 1);
+        final double[] window = new double[nFft];
+        fft.getWindow(analysis.getWindow(), analysis.getKaiserBeta(), window);
+        final short[] hop = new short[audio.getHopSamples()];
+        final double[] timeData = new double[nFft];
+        final double[] out = new double[2 * layout.getNBins()];
+        final double[] expected = new double[2 * layout.getNBins()];
+        int nFrames = 0;
+        for (int fed = 0; fed < 12 * hop.length; ) {
+            for (int i = 0; i < hop.length; i++, fed++) {
+                hop[i] = (short) Math.round(signal(carrierHz, fed));
+            }
+            zoom.append(hop, hop.length);
+            if (!zoom.isFull()) {
+                continue;
+            }
+            zoom.analyze(out);
+            final double start = fed - nFft - delay;
+            for (int i = 0; i < nFft; i++) {
+                timeData[i] = signal(carrierHz, start + i) * window[i];
+            }
+            reference.analyze(timeData, expected);
+            final double carrier = Math.sqrt(PeakFinder.power(expected, layout.getCentralBin()));
+            for (int b = 0; b < layout.getNBins(); b++) {
+                assertEquals("bin " + b, expected[2 * b], out[2 * b], 2e-3 * carrier);
+                assertEquals("bin " + b, expected[2 * b + 1], out[2 * b + 1], 2e-3 * carrier);
+            }
+            nFrames++;
+        }
+        assertEquals(9, nFrames);
+    }
+}
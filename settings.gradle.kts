@@ -21,3 +21,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "Doppler"
 include(":app")
+include(":doppler-core")
+include(":benchmark")